@@ -0,0 +1,218 @@
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import benchmarks.GameCore;
+
+/**
+ * Lets the benchmarks (which can't be in the default package) get at the
+ * game. See {@link GameCore}.
+ */
+public class GameCoreAdapter implements GameCore
+{
+  /**
+   * How many games to try, and how many random moves to play in each, when
+   * looking for a game with a particular kind of move in it.
+   */
+  private static final int SEARCH_GAMES = 1_000;
+  private static final int SEARCH_MOVES = 500;
+
+  /**
+   * The solvers' time budget, which is long enough that they always run
+   * out of nodes first.
+   */
+  private static final long SOLVER_TIME_BUDGET_MILLIS = 10 * 60 * 1000;
+
+  /**
+   * Where {@link #playRandom(long, int)} lists the legal moves.
+   */
+  private final int[] randomMoves = new int[SolitaireGame.MAX_LEGAL_MOVES];
+
+  @Override
+  public Object newGame()
+  {
+    return new SolitaireGame();
+  }
+
+  @Override
+  public Object newGame(long seed)
+  {
+    return new SolitaireGame(seed);
+  }
+
+  @Override
+  public Object positionWith(String startType, String destinationType)
+  {
+    PileType start = PileType.valueOf(startType);
+    PileType destination = PileType.valueOf(destinationType);
+    int[] moves = new int[SolitaireGame.MAX_LEGAL_MOVES];
+
+    for (long seed = 0; seed < SEARCH_GAMES; seed++)
+    {
+      SolitaireGame game = new SolitaireGame(seed);
+      SplittableRandom random = new SplittableRandom(seed);
+      for (int i = 0; i < SEARCH_MOVES; i++)
+      {
+        if (findMove(game, start, destination) >= 0)
+          return game;
+
+        int count = game.legalMoves(moves);
+        if (count == 0)
+          break;
+        game.tryMove(moves[random.nextInt(count)]);
+      }
+    }
+    throw new IllegalArgumentException(
+        "No game has a move from " + startType + " to " + destinationType);
+  }
+
+  @Override
+  public Object legalMove(Object game, String startType, String destinationType)
+  {
+    int code = findMove(
+        (SolitaireGame) game,
+        PileType.valueOf(startType),
+        PileType.valueOf(destinationType));
+    if (code < 0)
+      throw new IllegalArgumentException(
+          "There's no move from " + startType + " to " + destinationType);
+    return Move.decode(code);
+  }
+
+  /**
+   * Returns the first legal move from a pile of type {@code start} to a pile
+   * of type {@code destination}, or -1 if there isn't one.
+   */
+  private static int findMove(SolitaireGame game, PileType start, PileType destination)
+  {
+    int[] moves = new int[SolitaireGame.MAX_LEGAL_MOVES];
+    int count = game.legalMoves(moves);
+    for (int i = 0; i < count; i++)
+    {
+      if (Move.startTypeOf(moves[i]) == start
+          && Move.destinationTypeOf(moves[i]) == destination)
+        return moves[i];
+    }
+    return -1;
+  }
+
+  @Override
+  public void makeMove(Object game, Object move)
+  {
+    try
+    {
+      ((SolitaireGame) game).makeMove((Move) move);
+    }
+    catch (IllegalMoveException e)
+    {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void unmakeMove(Object game)
+  {
+    ((SolitaireGame) game).unmakeMove();
+  }
+
+  @Override
+  public boolean hasWon(Object game)
+  {
+    return ((SolitaireGame) game).hasWon();
+  }
+
+  @Override
+  public String format(Object game)
+  {
+    return GameFormatter.stringOfGame((SolitaireGame) game);
+  }
+
+  @Override
+  public ByteBuffer formatUtf8(Object writer, Object game)
+  {
+    return ((Utf8BoardWriter) writer).render((SolitaireGame) game);
+  }
+
+  @Override
+  public Object newBoardWriter()
+  {
+    return new Utf8BoardWriter(Channels.newChannel(OutputStream.nullOutputStream()));
+  }
+
+  @Override
+  public Object parseMove(String start, String destination)
+  {
+    return InputGetter.parseMove(start, destination);
+  }
+
+  @Override
+  public Object newSolver(int threads, long nodeBudget)
+  {
+    if (threads == 0)
+      return new KlondikeSolver(nodeBudget, SOLVER_TIME_BUDGET_MILLIS);
+    return new PooledSolver(threads, nodeBudget);
+  }
+
+  @Override
+  public Object solve(Object solver, Object game)
+  {
+    if (solver instanceof KlondikeSolver)
+      return ((KlondikeSolver) solver).solve((SolitaireGame) game);
+    return ((PooledSolver) solver).solver.solve((SolitaireGame) game);
+  }
+
+  @Override
+  public void closeSolver(Object solver)
+  {
+    if (solver instanceof PooledSolver)
+      ((PooledSolver) solver).pool.shutdownNow();
+  }
+
+  @Override
+  public long playRandom(long seed, int maxMoves)
+  {
+    SolitaireGame game = new SolitaireGame(seed);
+    SplittableRandom random = new SplittableRandom(seed);
+    int made = 0;
+    while (made < maxMoves && !game.hasWon())
+    {
+      int count = game.legalMoves(randomMoves);
+      if (count == 0)
+        break;
+      game.tryMove(randomMoves[random.nextInt(count)]);
+      made++;
+    }
+    return made;
+  }
+
+  @Override
+  public Object newBatch(int games)
+  {
+    return new BatchEngine(games);
+  }
+
+  @Override
+  public long playRandomBatch(Object batch, long firstSeed, int maxMoves)
+  {
+    BatchEngine engine = (BatchEngine) batch;
+    engine.dealAll(firstSeed);
+    return engine.playRandom(firstSeed, maxMoves);
+  }
+
+  /**
+   * A {@code ParallelKlondikeSolver} and the pool it runs in.
+   */
+  private static class PooledSolver
+  {
+    private final ForkJoinPool pool;
+    private final ParallelKlondikeSolver solver;
+
+    PooledSolver(int threads, long nodeBudget)
+    {
+      pool = new ForkJoinPool(threads);
+      solver = new ParallelKlondikeSolver(pool, nodeBudget, SOLVER_TIME_BUDGET_MILLIS);
+    }
+  }
+}
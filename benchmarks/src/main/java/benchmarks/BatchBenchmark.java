@@ -0,0 +1,91 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Playing many games with random legal moves: with {@code BatchEngine},
+ * and with one {@code SolitaireGame} per game.
+ *
+ * <p>
+ *   Each invocation deals {@link #games} games from the same seeds and
+ *   plays each one until it's won, stuck, or {@value #MAX_MOVES} moves in.
+ *   The two don't pick the same random moves, so they don't make the same
+ *   number of moves either; compare the {@code moves} rows, which count
+ *   moves per second.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark
+{
+  private static final int MAX_MOVES = 200;
+
+  /**
+   * The seed for the first game.
+   */
+  private static final long FIRST_SEED = 0;
+
+  @Param({"64", "1024", "16384"})
+  public int games;
+
+  private GameCore core;
+  private Object batch;
+
+  /**
+   * How many moves the games made.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Moves
+  {
+    public long moves;
+
+    @Setup(Level.Iteration)
+    public void reset()
+    {
+      moves = 0;
+    }
+  }
+
+  @Setup
+  public void setUp()
+  {
+    core = GameCore.load();
+    batch = core.newBatch(games);
+  }
+
+  @Benchmark
+  public void batch(Moves counter)
+  {
+    counter.moves += core.playRandomBatch(batch, FIRST_SEED, MAX_MOVES);
+  }
+
+  @Benchmark
+  public void objectPerGame(Moves counter)
+  {
+    long moves = 0;
+    for (int g = 0; g < games; g++)
+    {
+      moves += core.playRandom(FIRST_SEED + g, MAX_MOVES);
+    }
+    counter.moves += moves;
+  }
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the allocation profiler ({@code -prof gc})
+ * turned on, so that every result comes with how many bytes each operation
+ * allocated.
+ *
+ * <p>
+ *   It takes the same options as JMH's own runner; for example,
+ *   {@code java -jar benchmarks.jar MoveBenchmark -p kind=STOCK_TO_WASTE}
+ *   runs just the one benchmark. ({@code -h} lists them all.)
+ * </p>
+ */
+public class BenchmarkRunner
+{
+  public static void main(String[] args) throws IOException, RunnerException
+  {
+    CommandLineOptions commandLine;
+    try
+    {
+      commandLine = new CommandLineOptions(args);
+    }
+    catch (CommandLineOptionException e)
+    {
+      System.err.println("Error parsing the command line: " + e.getMessage());
+      System.exit(1);
+      return;
+    }
+
+    if (commandLine.shouldHelp())
+    {
+      commandLine.showHelp();
+      return;
+    }
+
+    Options options = new OptionsBuilder()
+        .parent(commandLine)
+        .addProfiler(GCProfiler.class)
+        .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,164 @@
+package benchmarks;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The parts of the game that the benchmarks measure.
+ *
+ * <p>
+ *   JMH won't run benchmarks that are in the default package, and code in a
+ *   named package can't see the game's classes, which are all in the
+ *   default package. So the benchmarks go through this interface instead,
+ *   and {@code GameCoreAdapter} (which is in the default package) implements
+ *   it by calling straight through to the game.
+ * </p>
+ *
+ * <p>
+ *   Games and moves are passed around as plain {@code Object}s: they're
+ *   really {@code SolitaireGame}s and {@code Move}s. There's only ever one
+ *   implementation, so the JIT compiler inlines every call, and the
+ *   benchmarks measure the game rather than this interface.
+ * </p>
+ */
+public interface GameCore
+{
+  /**
+   * Returns the implementation that calls through to the game.
+   */
+  static GameCore load()
+  {
+    try
+    {
+      return Class.forName("GameCoreAdapter")
+          .asSubclass(GameCore.class)
+          .getConstructor()
+          .newInstance();
+    }
+    catch (ReflectiveOperationException e)
+    {
+      throw new IllegalStateException("Couldn't load GameCoreAdapter", e);
+    }
+  }
+
+  /**
+   * Deal a new game, just like {@code new SolitaireGame()}.
+   */
+  Object newGame();
+
+  /**
+   * Deal the game with the given seed, just like
+   * {@code new SolitaireGame(seed)}.
+   */
+  Object newGame(long seed);
+
+  /**
+   * Returns a game in which there's a legal move from a pile of type
+   * {@code startType} to a pile of type {@code destinationType}.
+   *
+   * <p>
+   *   The game is always the same one for the same pile types, so runs of
+   *   the benchmarks can be compared.
+   * </p>
+   *
+   * @param startType The name of a {@code PileType}.
+   * @param destinationType The name of a {@code PileType}.
+   *
+   * @throws IllegalArgumentException If no such game turns up.
+   */
+  Object positionWith(String startType, String destinationType);
+
+  /**
+   * Returns a legal move in {@code game} from a pile of type
+   * {@code startType} to a pile of type {@code destinationType}.
+   *
+   * @throws IllegalArgumentException If there's no such move.
+   */
+  Object legalMove(Object game, String startType, String destinationType);
+
+  /**
+   * Make a move with {@code SolitaireGame.makeMove}.
+   *
+   * @throws IllegalStateException If the move isn't legal.
+   */
+  void makeMove(Object game, Object move);
+
+  /**
+   * Undo the last move made in a game.
+   */
+  void unmakeMove(Object game);
+
+  /**
+   * Returns {@code game.hasWon()}.
+   */
+  boolean hasWon(Object game);
+
+  /**
+   * Returns the text the text client prints for a game.
+   */
+  String format(Object game);
+
+  /**
+   * Draws the same text as {@link #format(Object)}, as UTF-8 bytes, with a
+   * {@code Utf8BoardWriter} made by {@link #newBoardWriter()}.
+   *
+   * @return The writer's buffer, holding the board.
+   */
+  ByteBuffer formatUtf8(Object writer, Object game);
+
+  /**
+   * Returns a new {@code Utf8BoardWriter}, which doesn't write anywhere.
+   */
+  Object newBoardWriter();
+
+  /**
+   * Parse a move the way the text client does.
+   *
+   * @return The move, or {@code null} if it isn't one.
+   */
+  Object parseMove(String start, String destination);
+
+  /**
+   * Returns a solver: a {@code KlondikeSolver} if {@code threads} is 0, and
+   * otherwise a {@code ParallelKlondikeSolver} with a pool of that many
+   * threads of its own. Give it back with {@link #closeSolver(Object)}.
+   *
+   * @param nodeBudget The most nodes a search can take. (The time budget
+   *   is too long to matter.)
+   */
+  Object newSolver(int threads, long nodeBudget);
+
+  /**
+   * Search for a way to win a game, with a solver from
+   * {@link #newSolver(int, long)}.
+   *
+   * @return The {@code SolverResult}.
+   */
+  Object solve(Object solver, Object game);
+
+  /**
+   * Shut down a solver's threads, if it has any.
+   */
+  void closeSolver(Object solver);
+
+  /**
+   * Deal the game with the given seed, and play random legal moves in it
+   * (picked from {@code SolitaireGame.legalMoves}) until it's won, stuck,
+   * or out of moves.
+   *
+   * @return How many moves were made.
+   */
+  long playRandom(long seed, int maxMoves);
+
+  /**
+   * Returns a {@code BatchEngine} that holds {@code games} games.
+   */
+  Object newBatch(int games);
+
+  /**
+   * Deal every game of a batch from consecutive seeds, and play them all
+   * with {@code BatchEngine.playRandom}.
+   *
+   * @return How many moves were made, across all the games.
+   */
+  long playRandomBatch(Object batch, long firstSeed, int maxMoves);
+}
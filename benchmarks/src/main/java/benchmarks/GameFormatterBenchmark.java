@@ -0,0 +1,64 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code GameFormatter.stringOfGame}, which the text client calls after
+ * every move, and drawing the same board as UTF-8 with a
+ * {@code Utf8BoardWriter}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameFormatterBenchmark
+{
+  /**
+   * {@code DEALT} is a game that's just been dealt, and {@code PLAYED} is
+   * one that's some way along, with cards on the foundations and in the
+   * waste.
+   */
+  @Param({"DEALT", "PLAYED"})
+  public String position;
+
+  private GameCore core;
+  private Object game;
+  private Object writer;
+
+  @Setup
+  public void setUp()
+  {
+    core = GameCore.load();
+    writer = core.newBoardWriter();
+    if (position.equals("DEALT"))
+      game = core.newGame(0);
+    else
+      game = core.positionWith("FOUNDATION", "TABLEAU");
+  }
+
+  @Benchmark
+  public String stringOfGame()
+  {
+    return core.format(game);
+  }
+
+  @Benchmark
+  public Object utf8Board()
+  {
+    return core.formatUtf8(writer, game);
+  }
+}
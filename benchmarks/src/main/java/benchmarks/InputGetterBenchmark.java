@@ -0,0 +1,61 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Turning what the user types into a move, the way {@code InputGetter}
+ * does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputGetterBenchmark
+{
+  /**
+   * Every pile, spelled every way it can be, plus a few things that aren't
+   * piles.
+   */
+  private static final String[] INPUTS = {
+      "1", "2", "3", "4", "5", "6", "7", "8", "9",
+      "c", "d", "s", "h", "C", "D", "S", "H",
+      " 3 ", "0", "x", "12"};
+
+  private GameCore core;
+
+  @Setup
+  public void setUp()
+  {
+    core = GameCore.load();
+  }
+
+  /**
+   * Parse every pair of inputs. (The time is for all of them, so divide by
+   * {@code 21 * 21}.)
+   */
+  @Benchmark
+  public void parseMove(Blackhole blackhole)
+  {
+    for (String start : INPUTS)
+    {
+      for (String destination : INPUTS)
+      {
+        blackhole.consume(core.parseMove(start, destination));
+      }
+    }
+  }
+}
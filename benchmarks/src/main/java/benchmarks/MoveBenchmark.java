@@ -0,0 +1,65 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code SolitaireGame.makeMove}, for each kind of legal move.
+ *
+ * <p>
+ *   Each invocation makes the move and then undoes it, so that the game is
+ *   back where it started for the next one. (So the numbers include
+ *   {@code unmakeMove}, which costs about the same as the move itself.)
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark
+{
+  /**
+   * The types of the start and destination piles.
+   */
+  @Param({
+      "TABLEAU_TO_TABLEAU",
+      "TABLEAU_TO_FOUNDATION",
+      "FOUNDATION_TO_TABLEAU",
+      "WASTE_TO_TABLEAU",
+      "WASTE_TO_FOUNDATION",
+      "STOCK_TO_WASTE"})
+  public String kind;
+
+  private GameCore core;
+  private Object game;
+  private Object move;
+
+  @Setup
+  public void setUp()
+  {
+    String[] types = kind.split("_TO_");
+    core = GameCore.load();
+    game = core.positionWith(types[0], types[1]);
+    move = core.legalMove(game, types[0], types[1]);
+  }
+
+  @Benchmark
+  public void makeMove()
+  {
+    core.makeMove(game, move);
+    core.unmakeMove(game);
+  }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dealing new games, and checking whether a game has been won.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolitaireGameBenchmark
+{
+  private GameCore core;
+  private Object game;
+  private long seed;
+
+  @Setup
+  public void setUp()
+  {
+    core = GameCore.load();
+    game = core.newGame(0);
+  }
+
+  /**
+   * {@code new SolitaireGame()}, which picks a random seed.
+   */
+  @Benchmark
+  public Object deal()
+  {
+    return core.newGame();
+  }
+
+  /**
+   * {@code new SolitaireGame(seed)}, with a different seed every time.
+   */
+  @Benchmark
+  public Object dealSeeded()
+  {
+    return core.newGame(seed++);
+  }
+
+  @Benchmark
+  public boolean hasWon()
+  {
+    return core.hasWon(game);
+  }
+}
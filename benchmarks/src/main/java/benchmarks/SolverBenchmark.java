@@ -0,0 +1,77 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Solving a few fixed deals, with {@code KlondikeSolver} and with
+ * {@code ParallelKlondikeSolver} on different numbers of threads.
+ *
+ * <p>
+ *   The deals are ones that take a real search: seeds 1 and 19 can't be
+ *   won, so the whole tree gets searched, and 6, 21 and 55 are won after
+ *   a few hundred thousand nodes. (Most deals are won, or given up on,
+ *   within a couple of hundred nodes, which says nothing about the
+ *   search.) For example, {@code -p seed=6 -p threads=0,1,4} compares the
+ *   sequential solver with the parallel one on one thread and on four.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark
+{
+  /**
+   * How many nodes a search can take. None of the deals needs this many.
+   */
+  private static final long NODE_BUDGET = 2_000_000;
+
+  /**
+   * How many threads the parallel solver gets, or 0 for
+   * {@code KlondikeSolver}.
+   */
+  @Param({"0", "1", "2", "4"})
+  public int threads;
+
+  @Param({"1", "6", "19", "21", "55"})
+  public long seed;
+
+  private GameCore core;
+  private Object solver;
+  private Object game;
+
+  @Setup
+  public void setUp()
+  {
+    core = GameCore.load();
+    solver = core.newSolver(threads, NODE_BUDGET);
+    game = core.newGame(seed);
+  }
+
+  @TearDown
+  public void tearDown()
+  {
+    core.closeSolver(solver);
+  }
+
+  @Benchmark
+  public Object solve()
+  {
+    return core.solve(solver, game);
+  }
+}
@@ -0,0 +1,230 @@
+import java.io.PrintStream;
+
+/**
+ * This class draws the game on an ANSI terminal, redrawing only what has
+ * changed since the last time.
+ *
+ * <p>
+ *   The first time it draws a game, it clears the screen and draws the
+ *   whole board (the same picture {@link GameFormatter} makes) in the top
+ *   left corner. After that, it remembers the last board it drew, compares
+ *   the new one with it character by character, and for each run of
+ *   characters that changed, it moves the cursor there and writes just
+ *   those characters. Most moves only change a few piles, so that's a
+ *   small fraction of the whole board.
+ * </p>
+ *
+ * <p>
+ *   Once the board is up to date, the cursor is left under it, after a
+ *   blank line, and everything below that is cleared, so whatever gets
+ *   printed next (like a prompt) goes underneath the board, just as it
+ *   would if the whole board had been printed.
+ * </p>
+ *
+ * <p>
+ *   The cursor addresses only stay right as long as the board stays where
+ *   it was drawn, so the renderer also sets the terminal's scrolling
+ *   region to the lines under the board (and moves it whenever the board
+ *   gets taller or shorter). However much gets printed under the board,
+ *   only those lines scroll, and the board stays put. (That needs a
+ *   terminal with room for the board and a line or two more; on a shorter
+ *   one, the board scrolls, and the updates land in the wrong place.)
+ *   Call {@link #close()} when the game is over, to give the whole screen
+ *   back to scrolling.
+ * </p>
+ *
+ * <p>
+ *   Everything for one update is put together first and then written in
+ *   one go, and flushed.
+ * </p>
+ */
+class AnsiRenderer
+{
+  private static final String ESC = "\u001b";
+  private static final String CSI = ESC + "[";
+
+  /**
+   * Runs of changes that are this close together are written as one run,
+   * unchanged characters and all, since that's about as short as moving
+   * the cursor.
+   */
+  private static final int MAX_GAP = 4;
+
+  private final PrintStream out;
+
+  /**
+   * The board that's on the screen now, and the one that's being drawn.
+   * (They swap places after every update.)
+   */
+  private StringBuilder shown = new StringBuilder(4096);
+  private StringBuilder next = new StringBuilder(4096);
+
+  /**
+   * What's going to be written to the terminal for this update.
+   */
+  private final StringBuilder output = new StringBuilder(4096);
+
+  private boolean cleared = false;
+
+  /**
+   * The first row of the scrolling region (counting from 1), or 0 if it
+   * hasn't been set.
+   */
+  private int scrollTop = 0;
+
+  /**
+   * Create a renderer that writes to the given terminal.
+   *
+   * @param out Where to write. It should be a terminal that understands
+   *   ANSI escape sequences.
+   */
+  AnsiRenderer(PrintStream out)
+  {
+    this.out = out;
+  }
+
+  /**
+   * Bring the board on the screen up to date with a game.
+   *
+   * @param game The game to draw. This method will not mutate it.
+   */
+  void render(SolitaireGame game)
+  {
+    next.setLength(0);
+    GameFormatter.appendGame(game, next);
+    output.setLength(0);
+
+    if (!cleared)
+    {
+      // Start from a blank screen, so that what's on it matches the
+      // (empty) board we've remembered.
+      output.append(CSI).append('H').append(CSI).append("2J");
+      cleared = true;
+    }
+
+    int row = 1;
+    int start = 0;
+    int shownStart = 0;
+    while (start < next.length())
+    {
+      int end = lineEnd(next, start);
+      int shownEnd = shownStart < shown.length() ? lineEnd(shown, shownStart) : shownStart;
+      appendLineChanges(row, start, end, shownStart, shownEnd);
+
+      start = end + 1;
+      shownStart = Math.min(shownEnd + 1, shown.length());
+      row++;
+    }
+
+    // Keep anything printed from now on from scrolling the board. (This
+    // moves the cursor, so it has to come before the last move.)
+    if (scrollTop != row + 1)
+    {
+      scrollTop = row + 1;
+      output.append(CSI).append(scrollTop).append('r');
+    }
+
+    // Leave the cursor after the board and a blank line, and get rid of
+    // whatever was there (including the end of a board that used to be
+    // longer).
+    moveTo(row, 1);
+    output.append(CSI).append('J').append('\n');
+
+    out.print(output);
+    out.flush();
+
+    StringBuilder swap = shown;
+    shown = next;
+    next = swap;
+  }
+
+  /**
+   * Let the whole screen scroll again. The cursor stays where it is.
+   */
+  void close()
+  {
+    if (scrollTop == 0)
+      return;
+
+    // Resetting the region moves the cursor, so save it and put it back
+    scrollTop = 0;
+    out.print(ESC + "7" + CSI + "r" + ESC + "8");
+    out.flush();
+  }
+
+  /**
+   * Add the changes to one line of the board to the output.
+   *
+   * @param row The line's row on the screen, counting from 1.
+   * @param start Where the line starts in {@link #next}.
+   * @param end Where it ends (just before the newline) in {@link #next}.
+   * @param shownStart Where the same line starts in {@link #shown}.
+   * @param shownEnd Where it ends in {@link #shown}. (This is the same as
+   *   {@code shownStart} if there was no such line.)
+   */
+  private void appendLineChanges(int row, int start, int end, int shownStart, int shownEnd)
+  {
+    int length = end - start;
+    int shownLength = shownEnd - shownStart;
+
+    int column = 0;
+    while (column < length)
+    {
+      if (column < shownLength
+          && next.charAt(start + column) == shown.charAt(shownStart + column))
+      {
+        column++;
+        continue;
+      }
+
+      // Found a change; find the end of it, carrying on through any short
+      // gaps of unchanged characters.
+      int runStart = column;
+      int runEnd = column + 1;
+      int gap = 0;
+      for (column++; column < length && gap <= MAX_GAP; column++)
+      {
+        if (column < shownLength
+            && next.charAt(start + column) == shown.charAt(shownStart + column))
+        {
+          gap++;
+        }
+        else
+        {
+          gap = 0;
+          runEnd = column + 1;
+        }
+      }
+      column = runEnd;
+
+      moveTo(row, runStart + 1);
+      output.append(next, start + runStart, start + runEnd);
+    }
+
+    // If the old line was longer, rub out the rest of it.
+    if (shownLength > length)
+    {
+      moveTo(row, length + 1);
+      output.append(CSI).append('K');
+    }
+  }
+
+  private void moveTo(int row, int column)
+  {
+    output.append(CSI).append(row).append(';').append(column).append('H');
+  }
+
+  /**
+   * Returns the index of the newline that ends the line starting at
+   * {@code start} (or the length of the text, if there isn't one).
+   */
+  private static int lineEnd(StringBuilder text, int start)
+  {
+    int end = start;
+    while (end < text.length() && text.charAt(end) != '\n')
+    {
+      end++;
+    }
+    return end;
+  }
+}
@@ -0,0 +1,782 @@
+import java.util.*;
+
+/**
+ * The rules of solitaire exactly as this project first wrote them, kept as
+ * a reference for {@link DifferentialFuzzer}.
+ *
+ * <p>
+ *   {@link SolitaireGame} and {@link PackedSolitaireGame} have both been
+ *   rewritten for speed, so neither one is a fair judge of the other. This
+ *   class is the original {@code SolitaireGame}'s move logic, copied over
+ *   with as few changes as possible: the piles are {@code Stack}s and
+ *   queues of cards that know whether they're face-up, and an illegal move
+ *   throws an exception with the original message. It's slow, and it's
+ *   meant to stay that way; nothing else should use it, and nothing in it
+ *   should be optimized.
+ * </p>
+ *
+ * <p>
+ *   The only changes are the ones it takes to check the other engines
+ *   against it: it deals the same deck from a seed (see {@link Deal})
+ *   instead of shuffling its own, it can be copied, its cards are a class
+ *   of its own (since {@link Card} can't be flipped any more), and it throws
+ *   {@link IllegalMove} instead of {@link IllegalMoveException} (which now
+ *   carries a {@link MoveStatus}, and this class shouldn't depend on that).
+ * </p>
+ */
+class BaselineSolitaireGame
+{
+  private final ArrayList<Stack<PlainCard>> tableaus;
+  private final ArrayList<Stack<PlainCard>> foundations;
+  private final Queue<PlainCard> stock;
+  private final Deque<PlainCard> waste;
+
+  /**
+   * Deal a new game from a seed. It's the same deal that
+   * {@link SolitaireGame#SolitaireGame(long)} makes from that seed.
+   *
+   * @param seed The seed to shuffle the cards with.
+   */
+  BaselineSolitaireGame(long seed)
+  {
+    //ArrayList to hold all our cards, in the order they get dealt
+    ArrayList<PlainCard> allCards = new ArrayList<>();
+    for(byte id : Deal.shuffle(seed))
+    {
+      allCards.add(new PlainCard(id % 13 + 1, Suit.values()[id / 13]));
+    }
+
+    //Initialize the list of tableaus
+    tableaus = new ArrayList<>();
+
+    for(int i = 0; i < 7; i++)
+    {
+      //Create the tableau
+      Stack<PlainCard> currentTableau = new Stack<>();
+
+      //Fill the tableau with cards from the shuffled ArrayList
+      for(int j = 0; j <= i; j++)
+      {
+        int lastIndex = allCards.size() - 1;
+        PlainCard currentCard = allCards.remove(lastIndex);
+        currentTableau.add(currentCard);
+      }
+
+      //Show the top card
+      currentTableau.peek().setShowing(true);
+
+      //Add to the list of tableaus
+      tableaus.add(currentTableau);
+    }
+
+    stock = new ArrayDeque<>();
+
+    while(!allCards.isEmpty())
+    {
+      PlainCard currentCard = allCards.remove(0);
+      stock.add(currentCard);
+    }
+
+    waste = new ArrayDeque<>();
+    //Create the foundations
+    foundations = new ArrayList<>();
+    for(int i = 0; i < 4; i++)
+    {
+      //The foundations start out empty
+      Stack<PlainCard> currentFoundation = new Stack<>();
+      foundations.add(currentFoundation);
+    }
+  }
+
+  /**
+   * Create a copy of a game, with copies of all of its cards.
+   *
+   * <p>
+   *   (The original class didn't have this. The fuzzer uses it to put the
+   *   oracle back after trying out a legal move.)
+   * </p>
+   *
+   * @param other The game to copy. This constructor will not mutate it.
+   */
+  BaselineSolitaireGame(BaselineSolitaireGame other)
+  {
+    tableaus = new ArrayList<>();
+    for(Stack<PlainCard> tableau : other.tableaus)
+    {
+      tableaus.add(copyCards(tableau, new Stack<>()));
+    }
+
+    foundations = new ArrayList<>();
+    for(Stack<PlainCard> foundation : other.foundations)
+    {
+      foundations.add(copyCards(foundation, new Stack<>()));
+    }
+
+    stock = copyCards(other.stock, new ArrayDeque<>());
+    waste = copyCards(other.waste, new ArrayDeque<>());
+  }
+
+  /**
+   * Add a copy of every card in one pile to another, in the same order.
+   *
+   * @return The pile the copies were added to.
+   */
+  private static <P extends Collection<PlainCard>> P copyCards(Collection<PlainCard> from, P to)
+  {
+    for(PlainCard card : from)
+    {
+      PlainCard copy = new PlainCard(card.getRank(), card.getSuit());
+      copy.setShowing(card.isShowing());
+      to.add(copy);
+    }
+    return to;
+  }
+
+  /**
+   * Get the tableau of the corresponding number.
+   *
+   * @param number the number corresponding to the tableau you want to return.
+   *  Note: goes from 0 to 6 not 1 to 7
+   * @return the tableau as a stack of cards
+   */
+  Stack<PlainCard> getTableau(int number)
+  {
+    return tableaus.get(number);
+  }
+
+  /**
+   * Returns the stock (ie, the pile you draw from).
+   *
+   * <p>
+   *   The front of the queue is the top of the stock.
+   * </p>
+   *
+   * @return The stock.
+   */
+  Queue<PlainCard> getStock()
+  {
+    return stock;
+  }
+
+  /**
+   * Returns the waste.
+   *
+   * <p>
+   *   The front of the deque is the top of the waste.
+   * </p>
+   *
+   * @return the waste.
+   */
+  Deque<PlainCard> getWaste()
+  {
+    return waste;
+  }
+
+  /**
+   * Gets the foundation of the corresponding number.
+   *
+   * @param number the number corresponding to the tableau you want to return.
+   *  Note: goes from 0 to 3, not 1 to 4.
+   *
+   * @return The foundation, as a stack of cards.
+   */
+  Stack<PlainCard> getFoundation(int number)
+  {
+    return foundations.get(number);
+  }
+
+  /**
+   * Return whether the user has won the game yet.
+   *
+   * <p>
+   *   The user has won if and only if all of the cards on the tableaus
+   *   are turned face-up.
+   * </p>
+   *
+   * @return {@code true} if the user has won the game, and {@code false} if
+   *   not.
+   */
+  boolean hasWon()
+  {
+    return tableaus.stream().allMatch(
+        tableau -> tableau.stream().allMatch(PlainCard::isShowing));
+  }
+
+  /**
+   * Given a move that the user wants to make, execute that move.
+   *
+   * <p>
+   *   This method mutates the {@code BaselineSolitaireGame} object, but only
+   *   if the move is legal; an illegal move leaves it just as it was.
+   * </p>
+   *
+   * @param move The move the user wants to make.
+   *
+   * @throws IllegalMove If the move in question is against the rules.
+   */
+  void makeMove(Move move) throws IllegalMove
+  {
+    PileType startType = move.getStartType();
+    PileType endType = move.getDestinationType();
+    int startID = move.getStartID();
+    int endID = move.getDestinationID();
+
+    switch(startType)
+    {
+      case TABLEAU:
+        moveFromTableau(startID, endID, endType);
+        break;
+      case STOCK:
+        moveFromStock(endType);
+        break;
+      case WASTE:
+        moveFromWaste(endID, endType);
+        break;
+      case FOUNDATION:
+        moveFromFoundation(startID, endID, endType);
+        break;
+    }
+  }
+
+  private void moveFromTableau(int startID, int endID, PileType endType)
+      throws IllegalMove
+  {
+    switch (endType)
+    {
+      case FOUNDATION:
+        tableauToFoundation(startID, endID);
+        break;
+      case TABLEAU:
+        tableauToTableau(startID, endID);
+        break;
+      case STOCK:
+        throw new IllegalMove(
+            "Can't move from a tableau to the stock");
+      case WASTE:
+        throw new IllegalMove(
+            "Can't move from a tableau to the waste");
+    }
+  }
+
+  private void moveFromStock(PileType endType)
+      throws IllegalMove
+  {
+    switch (endType)
+    {
+      case STOCK:
+      case WASTE:
+        wastePileDraw();
+        break;
+      case TABLEAU:
+        throw new IllegalMove(
+            "Can't move from the stock to a tableau");
+      case FOUNDATION:
+        throw new IllegalMove(
+            "Can't move from the stock to a foundation");
+    }
+  }
+
+  private void moveFromWaste(int endID, PileType endType)
+      throws IllegalMove
+  {
+    switch (endType)
+    {
+      case STOCK:
+      case WASTE:
+        wastePileDraw();
+        break;
+      case TABLEAU:
+        wasteToTableau(endID);
+        break;
+      case FOUNDATION:
+        wasteToFoundation(endID);
+        break;
+    }
+  }
+
+  private void moveFromFoundation(int startID, int endID, PileType endType)
+      throws IllegalMove
+  {
+    switch (endType)
+    {
+      case TABLEAU:
+        foundationToTableau(startID, endID);
+        break;
+      case FOUNDATION:
+        throw new IllegalMove(
+            "Can't move from one foundation to another.");
+      case STOCK:
+        throw new IllegalMove(
+            "Can't move from a foundation to the stock.");
+      case WASTE:
+        throw new IllegalMove(
+            "Can't move from a foundation to the waste.");
+    }
+  }
+
+  /**
+   * Method for moving cards from one tableau to the next
+   * @param startTableau the tableau the stack of cards come from
+   * @param endTableau the tableau the stack of cards ends up on
+   */
+  private void tableauToTableau(int startTableau, int endTableau) throws IllegalMove
+  {
+    //Get the tableaus
+    Stack<PlainCard> start = getTableau(startTableau);
+    Stack<PlainCard> end = getTableau(endTableau);
+
+    //Set to null in case the destination is empty
+    PlainCard endTopCard = null;
+    //If it's not empty, get the top card
+    if(!end.isEmpty())
+      endTopCard = end.peek();
+
+    //Find the color and rank that the next card should be
+    int requiredColor = getTableauNextColor(endTopCard);
+    int requiredRank = getTableauNextRank(endTopCard);
+
+    //If the starting stack is empty, move is illegal
+    if(start.isEmpty())
+      throw new IllegalMove("Can't move cards from an empty tableau");
+
+    //Get the first card that meets both requirements in the starting tableau
+    PlainCard stoppingCard = getEndOfStack(start, requiredColor, requiredRank);
+    Stack<PlainCard> tempStack = new Stack<>();
+
+    //Move the cards before it into a temporary stack for storage(and to preserve their order)
+    while(!start.peek().equals(stoppingCard))
+    {
+      PlainCard currentCard = start.pop();
+      tempStack.add(currentCard);
+    }
+
+    //Add the card that meets the requirements(didn't happen in the loop above)
+    end.add(start.pop());
+
+    //Move the other cards into the ending tableau
+    while(!tempStack.isEmpty())
+    {
+      PlainCard currentCard = tempStack.pop();
+      end.add(currentCard);
+    }
+
+    //If the top card isn't showing, show it
+    revealTopOfTableau(startTableau);
+  }
+
+  /**
+   * Get the color that the next card on the tableau should be given its top card
+   * @param topCard the current top card of the tableau, null means tableau is empty
+   * @return the color 0 for black, 1 for red, 2 for any colored King
+   */
+  private int getTableauNextColor(PlainCard topCard)
+  {
+    //If the ending tableau is empty, we're looking for any colored king
+    if(topCard == null)
+      return 2;
+
+    int color = topCard.getColor();
+    int nextColor = -1;
+
+    if(color == 0)
+      nextColor = 1;
+    else if(color == 1)
+      nextColor = 0;
+
+    return nextColor;
+  }
+
+  /**
+   * Get the rank that the next card on the tableau should be given its top
+   * card.
+   * @param topCard the current top card of the tableau, null means tableau is
+   *   empty.
+   * @return the rank.
+   * @throws IllegalMove If no card could possibly be placed on this
+   *   tableau.
+   */
+  private int getTableauNextRank(PlainCard topCard) throws IllegalMove
+  {
+    //If tableau is empty, we want a king
+    if(topCard == null)
+      return 13;
+
+    int rank = topCard.getRank();
+    int nextRank;
+
+    if(rank == 1)
+      throw new IllegalMove("Can't move to tableau with Ace on top");
+    else
+      nextRank = rank - 1;
+
+    return nextRank;
+  }
+
+  /**
+   * When moving multiple cards from one tableau to another, return which
+   * card is the first card to move (ie, the bottom card to move).
+   *
+   * @param tableau The tableau that we want to move cards from.
+   * @param requiredColor The destination tableau needs this color next.
+   *   (0 means black; 1 means red; 2 means either.)
+   * @param requiredRank The destination tableau needs this rank next.
+   * @return The first (ie, the most bottom) card in {@code tableau} that may
+   *   legally be placed on the destination tableau.
+   * @throws IllegalMove If no card in {@code tableau} may be legally
+   *   be placed on the destination tableau.
+   */
+  private PlainCard getEndOfStack(Stack<PlainCard> tableau, int requiredColor, int requiredRank) throws IllegalMove
+  {
+    //Iterate through every card, stopping at the first one that satisfies our required rank and color
+    PlainCard stoppingCard = null;
+    for (PlainCard currentCard : tableau)
+    {
+      boolean satisfiesColor = requiredColor == currentCard.getColor();
+      boolean satisfiesRank = requiredRank == currentCard.getRank();
+      boolean faceUp = currentCard.isShowing();
+
+      if (satisfiesColor && satisfiesRank && faceUp)
+      {
+        stoppingCard = currentCard;
+        break;
+      }
+      else if (satisfiesRank && faceUp && requiredColor == 2)
+      {
+        stoppingCard = currentCard;
+        break;
+      }
+    }
+
+    //If we didn't find a satisfactory card in the first tableau, move is illegal
+    if(stoppingCard == null)
+      throw new IllegalMove("No viable cards found in the starting tableau");
+
+    return stoppingCard;
+  }
+
+  /**
+   * Move one card from the front stock to the front of the waste.
+   *
+   * <p>
+   *   If the waste is empty, this method puts all of the cards from the
+   *   back of the waste into the back of the stock.
+   * </p>
+   *
+   * @throws IllegalMove If both the stock and the waste are empty.
+   */
+  private void wastePileDraw() throws IllegalMove{
+    if (stock.isEmpty() && waste.isEmpty()) {
+      throw new IllegalMove(
+          "There are no cards left to draw from the waste or stock");
+    }
+
+    if (stock.isEmpty()) {
+      while(!waste.isEmpty()) {
+        waste.getLast().setShowing(false);
+        stock.add(waste.removeLast());
+      }
+    }
+    else {
+      waste.addFirst(stock.poll());
+      waste.getFirst().setShowing(true);
+    }
+  }
+
+  /**
+   * Move one card from the front of the waste to the top of a tableau.
+   *
+   * @param endTableau The tableau that we're moving the card to.
+   *
+   * @throws IllegalMove If the card on top of the waste doesn't
+   *   match the bottom of the tableau. (Ie, its rank or its color isn't
+   *   right.)
+   */
+  private void wasteToTableau(int endTableau) throws IllegalMove
+  {
+
+    //Get the tableau
+    Stack<PlainCard> end = getTableau(endTableau);
+
+    //Set to null in case the destination is empty
+    PlainCard endTopCard = null;
+
+    //If it's not empty, get the top card
+    if (!end.isEmpty())
+      endTopCard = end.peek();
+
+    //Find the color and rank that the next card should be
+    int requiredColor = getTableauNextColor(endTopCard);
+    int requiredRank = getTableauNextRank(endTopCard);
+
+    //If waste is empty, move is illegal
+    if (waste.isEmpty()) {
+      throw new IllegalMove("Can't move cards from an empty waste");
+    }
+
+    //If the card is the correct one adds it to the tableau
+    else if (
+         waste.getFirst().getRank() == requiredRank
+         && (waste.getFirst().getColor() == requiredColor || requiredColor == 2)) {
+      end.add(waste.pop());
+    }
+    else {
+      throw new IllegalMove("The waste card cannot be added to the tableau");
+    }
+  }
+
+  /**
+   * Moves a card from the waste to the foundation with the given index
+   * @param foundationIndex the index of the foundation the card's being moved to
+   * @throws IllegalMove if the waste is empty or if the wrong foundation is given
+   */
+  private void wasteToFoundation(int foundationIndex) throws IllegalMove
+  {
+    Suit foundationSuit = findFoundationSuit(foundationIndex);
+    Stack<PlainCard> foundation = getFoundation(foundationIndex);
+
+    if(waste.isEmpty())
+      throw new IllegalMove("Can't move cards from an empty waste");
+
+    //Get the rank that the next card on the foundation should be
+    int requiredRank;
+    //Note: if the foundation is empty, looking for an ace
+    if(!foundation.isEmpty())
+      requiredRank = foundation.peek().getRank() + 1;
+    else
+      requiredRank = 1;
+
+    //Get the top card of the tableau
+    PlainCard topCard = waste.peek();
+
+    boolean satisfiesRank = topCard.getRank() == requiredRank;
+    boolean satisfiesSuit = topCard.getSuit().equals(foundationSuit);
+
+    if(satisfiesRank && satisfiesSuit)
+    {
+      topCard = waste.pop();
+      foundation.add(topCard);
+    }
+    else
+    {
+      throw new IllegalMove("That card can't be added to this foundation");
+    }
+  }
+
+  /**
+   * Move one card from tableau number {@code tableauIndex} to foundation
+   * number {@code foundationIndex}.
+   *
+   * @param tableauIndex The number of the start tableau.
+   * @param foundationIndex The number of the destination foundation.
+   * @throws IllegalMove If the card on top of the start tableau
+   *   doesn't fit on top of the destination foundation. (Ie, its rank or
+   *   its color isn't right.)
+   */
+  private void tableauToFoundation(int tableauIndex, int foundationIndex) throws IllegalMove
+  {
+    Suit foundationSuit = findFoundationSuit(foundationIndex);
+    Stack<PlainCard> foundation = getFoundation(foundationIndex);
+    Stack<PlainCard> tableau = getTableau(tableauIndex);
+
+    if(tableau.isEmpty())
+      throw new IllegalMove("Can't move anything from an empty tableau");
+
+    //Get the rank that the next card on the foundation should be
+    int requiredRank;
+    //Note: if the foundation is empty, looking for an ace
+    if(!foundation.isEmpty())
+      requiredRank = foundation.peek().getRank() + 1;
+    else
+      requiredRank = 1;
+
+    //Get the top card of the tableau
+    PlainCard topCard = tableau.peek();
+
+    boolean satisfiesRank = topCard.getRank() == requiredRank;
+    boolean satisfiesSuit = topCard.getSuit().equals(foundationSuit);
+
+    if(satisfiesRank && satisfiesSuit)
+    {
+      topCard = tableau.pop();
+      foundation.add(topCard);
+    }
+    else
+    {
+      throw new IllegalMove("That card can't be added to this foundation");
+    }
+
+    //If the top card isn't showing, show it
+    revealTopOfTableau(tableauIndex);
+  }
+
+  /**
+   * Move one card from foundation number {@code foundationIndex} to tableau
+   * number {@code tableauIndex}.
+   *
+   * @param foundationIndex The number of the start foundation.
+   * @param tableauIndex The number of the destination tableau.
+   * @throws IllegalMove If the card on top of the start foundation
+   *   doesn't fit on top of the destination tableau. (Ie, its rank or
+   *   its color isn't right.)
+   */
+  private void foundationToTableau(int foundationIndex, int tableauIndex) throws IllegalMove
+  {
+    //Get the appropriate foundation and tableau
+    Stack<PlainCard> foundation = getFoundation(foundationIndex);
+    Stack<PlainCard> tableau = getTableau(tableauIndex);
+
+    //Make sure the foundation is empty
+    if(foundation.isEmpty())
+      throw new IllegalMove("Can't move from an empty foundation");
+
+    //Get the top cards of both the foundation and the waste
+    PlainCard tableauTop;
+    PlainCard foundationTop = foundation.peek();
+
+    if(!tableau.isEmpty())
+      tableauTop = tableau.peek();
+    else
+      tableauTop = null;
+
+    int requiredColor = getTableauNextColor(tableauTop);
+
+    //Check whether the color and rank of the top card are what we're looking for on the tableau
+    boolean satisfiesRank = getTableauNextRank(tableauTop) == foundationTop.getRank();
+    boolean satisfiesColor = requiredColor == foundationTop.getColor() || requiredColor == 2;
+
+    //If the card is correct move it, if not throw an exception
+    if(satisfiesRank && satisfiesColor)
+    {
+      PlainCard movingCard = foundation.pop();
+      tableau.add(movingCard);
+    }
+    else
+      throw new IllegalMove("Can't move card from that foundation to that tableau");
+  }
+
+  /**
+   * Get the suit of the foundation with the given index
+   * @param foundationIndex index of the foundation whose suit you want to find
+   * @return the suit of the foundation
+   */
+  private Suit findFoundationSuit(int foundationIndex)
+  {
+    Suit foundationSuit = null;
+
+    //Figure out the suit of the foundation
+    switch(foundationIndex)
+    {
+      case 0:
+        foundationSuit = Suit.CLUBS;
+        break;
+      case 1:
+        foundationSuit = Suit.DIAMONDS;
+        break;
+      case 2:
+        foundationSuit = Suit.SPADES;
+        break;
+      case 3:
+        foundationSuit = Suit.HEARTS;
+        break;
+    }
+
+    return foundationSuit;
+  }
+
+  /**
+   * Show the top card of tableau number {@code tableauIndex}. (Flip it
+   * face-up.)
+   *
+   * @param tableauIndex The number of the tableau to show the top card of.
+   */
+  private void revealTopOfTableau(int tableauIndex)
+  {
+    Stack<PlainCard> tableau = getTableau(tableauIndex);
+
+    if(!tableau.isEmpty())
+    {
+      PlainCard topCard = tableau.peek();
+
+      if(!topCard.isShowing())
+      {
+        topCard.setShowing(true);
+      }
+    }
+  }
+
+  /**
+   * A card that knows whether it's face-up, the way {@link Card} used to.
+   *
+   * <p>
+   *   Each game (and each copy of one) has its own 52 of these, and they're
+   *   compared by identity.
+   * </p>
+   */
+  static class PlainCard
+  {
+    private final int rank;
+    private final Suit suit;
+    private boolean showing = false;
+
+    PlainCard(int r, Suit s)
+    {
+      this.rank = r;
+      this.suit = s;
+    }
+
+    int getRank()
+    {
+      return rank;
+    }
+
+    Suit getSuit()
+    {
+      return suit;
+    }
+
+    /**
+     * Returns the card's ID, as described in {@link Card}. (This is only
+     * for comparing it with the other engines' cards; the rules don't use
+     * it.)
+     */
+    int getId()
+    {
+      return suit.ordinal() * 13 + rank - 1;
+    }
+
+    int getColor()
+    {
+      if(getSuit().equals(Suit.CLUBS) || getSuit().equals(Suit.SPADES))
+        return 0;
+      else
+        return 1;
+    }
+
+    boolean isShowing()
+    {
+      return showing;
+    }
+
+    void setShowing(boolean shouldShow)
+    {
+      showing = shouldShow;
+    }
+  }
+
+  /**
+   * This exception is thrown to indicate that someone is trying to make
+   * a move that's against the rules.
+   *
+   * <p>
+   *   The fuzzer throws millions of these, and only ever reads the
+   *   message, so it doesn't fill in a stack trace.
+   * </p>
+   */
+  static class IllegalMove extends Exception
+  {
+    IllegalMove(String message)
+    {
+      super(message, null, false, false);
+    }
+  }
+}
@@ -0,0 +1,1008 @@
+import java.util.SplittableRandom;
+
+/**
+ * Many games of solitaire at once, stored lane by lane in flat arrays.
+ *
+ * <p>
+ *   This plays by exactly the same rules as {@link SolitaireGame} and
+ *   {@link PackedSolitaireGame}, and stores each game much the way
+ *   {@code PackedSolitaireGame} does: a card is a {@code byte} holding its
+ *   ID, the foundations are just their top ranks, and the stock and waste
+ *   share one talon with a cursor between them. The difference is that
+ *   there's no object per game. Each game is a lane, numbered from 0, and
+ *   every field of the games is one array for the whole batch, with the
+ *   same slot of every game side by side: slot {@code s} of game {@code g}
+ *   is at index {@code s * size() + g}. The fields are:
+ * </p>
+ *
+ * <ul>
+ *   <li>
+ *     {@code tableauCards}: {@code 7 * }{@value #TABLEAU_CAPACITY} slots,
+ *     tableau by tableau, bottom card first.
+ *   </li>
+ *   <li>
+ *     {@code tableauSizes}, {@code faceDownCounts} and
+ *     {@code tableauTops}: 7 slots. ({@code tableauTops} is the top card of
+ *     each tableau, or {@value #NO_CARD} if it's empty.)
+ *   </li>
+ *   <li>
+ *     {@code faceUpMasks}: 7 slots. Like {@link Pile#getFaceUpMask()}, each
+ *     one has the bit for card ID {@code n} set if that card is face-up on
+ *     that tableau.
+ *   </li>
+ *   <li>
+ *     {@code foundationRanks}: 4 slots.
+ *   </li>
+ *   <li>
+ *     {@code talon}: {@value #TALON_CAPACITY} slots, with the waste (bottom
+ *     to top) in the first {@code wasteSizes[g]} and the stock (top to
+ *     bottom) in the rest of the first {@code talonSizes[g]}.
+ *   </li>
+ *   <li>
+ *     One slot each: {@code hiddenCounts} (the number of face-down cards
+ *     on all the tableaus, so checking for a win is one compare),
+ *     {@code talonSizes}, {@code wasteSizes}, {@code wasteTops}, and two
+ *     bitmasks of cards: {@code foundationTops}, the top card of each
+ *     foundation, and {@code foundationNexts}, the card that goes on each
+ *     foundation next.
+ *   </li>
+ * </ul>
+ *
+ * <p>
+ *   That layout is for finding moves. {@link #generateMoves(int, int)}
+ *   works out every legal move in a whole range of games in one pass per
+ *   kind of move, and each pass is a plain loop over the games that reads
+ *   a few slots that sit next to each other for every game. (For example,
+ *   whether any card on tableau 2 fits on tableau 5 is an AND of two
+ *   bitmasks, 2's face-up cards and the cards that fit on 5's top card,
+ *   for every game in turn.) There are no branches and no per-game
+ *   lookups in those loops, so the JIT compiler is free to unroll and
+ *   vectorize them. The result for each game is a set of up to 93 legal
+ *   moves packed into two {@code long}s, so that picking one of them is a
+ *   couple of bit counts.
+ * </p>
+ *
+ * <p>
+ *   Making the move that was picked is a different matter: each game makes
+ *   a different move, so that part goes game by game, like
+ *   {@code PackedSolitaireGame}. {@link #playRandom(long, int)} plays a
+ *   block of {@value #PLAY_BLOCK} games at a time, so that all of a
+ *   block's slots stay in the processor's fastest cache between the two
+ *   halves.
+ * </p>
+ */
+class BatchEngine
+{
+  /**
+   * The most cards a tableau can ever hold.
+   */
+  static final int TABLEAU_CAPACITY = SolitaireGame.TABLEAU_CAPACITY;
+
+  /**
+   * The most cards the stock and waste can hold between them.
+   */
+  static final int TALON_CAPACITY = SolitaireGame.TALON_CAPACITY;
+
+  /**
+   * What {@code tableauTops} and {@code wasteTops} hold for an empty pile.
+   * It's one past the last card ID, so it has a bit of its own that's
+   * never set in any mask of cards.
+   */
+  static final byte NO_CARD = Card.NUMBER_OF_CARDS;
+
+  /**
+   * How many games {@link #playRandom(long, int)} plays side by side. (At
+   * about 300 bytes a game, that's 19 KiB.)
+   */
+  static final int PLAY_BLOCK = 64;
+
+  /**
+   * For each card ID, and for {@link #NO_CARD}, a bitmask of the cards that
+   * may be placed on top of it on a tableau.
+   */
+  private static final long[] SUCCESSORS = new long[Card.NUMBER_OF_CARDS + 1];
+
+  static
+  {
+    for (int id = 0; id < Card.NUMBER_OF_CARDS; id++)
+    {
+      SUCCESSORS[id] = SolitaireGame.tableauSuccessorsOf(id);
+    }
+    SUCCESSORS[NO_CARD] = SolitaireGame.KINGS;
+  }
+
+  /*
+   * Where each legal move goes in a game's set of moves, which is two
+   * longs. In the low one:
+   *
+   *   0-48   Tableau s to tableau d, at 7 * s + d. (Never s = d.)
+   *   49-55  Tableau s to its top card's foundation, at 49 + s.
+   *   56     The waste to its top card's foundation.
+   *   57-63  The waste to tableau d, at 57 + d.
+   *
+   * And in the high one:
+   *
+   *   0-27   Foundation f to tableau d, at 7 * f + d.
+   *   28     Drawing a card.
+   */
+  private static final int TABLEAU_TO_FOUNDATION = 49;
+  private static final int WASTE_TO_FOUNDATION = 56;
+  private static final int WASTE_TO_TABLEAU = 57;
+  private static final int DRAW = 28;
+
+  private final int games;
+
+  private final byte[] tableauCards;
+  private final byte[] tableauSizes;
+  private final byte[] faceDownCounts;
+  private final byte[] tableauTops;
+  private final long[] faceUpMasks;
+  private final byte[] hiddenCounts;
+  private final byte[] foundationRanks;
+  private final long[] foundationTops;
+  private final long[] foundationNexts;
+  private final byte[] talon;
+  private final byte[] talonSizes;
+  private final byte[] wasteSizes;
+  private final byte[] wasteTops;
+
+  /**
+   * Each game's legal moves, as of the last {@link #generateMoves(int, int)}
+   * that covered it.
+   */
+  private final long[] lowMoves;
+  private final long[] highMoves;
+
+  /**
+   * The cards that fit on each tableau of each game, laid out like
+   * {@code tableauTops}. ({@link #generateMoves(int, int)} works these out
+   * first, and then uses each one many times.)
+   */
+  private final long[] successors;
+
+  /**
+   * Create a batch of games. They all start out empty; deal them with
+   * {@link #deal(int, long)} or {@link #dealAll(long)} before playing.
+   *
+   * @param games How many games the batch holds.
+   */
+  BatchEngine(int games)
+  {
+    this.games = games;
+    tableauCards = new byte[7 * TABLEAU_CAPACITY * games];
+    tableauSizes = new byte[7 * games];
+    faceDownCounts = new byte[7 * games];
+    tableauTops = new byte[7 * games];
+    faceUpMasks = new long[7 * games];
+    hiddenCounts = new byte[games];
+    foundationRanks = new byte[4 * games];
+    foundationTops = new long[games];
+    foundationNexts = new long[games];
+    talon = new byte[TALON_CAPACITY * games];
+    talonSizes = new byte[games];
+    wasteSizes = new byte[games];
+    wasteTops = new byte[games];
+    lowMoves = new long[games];
+    highMoves = new long[games];
+    successors = new long[7 * games];
+  }
+
+  /**
+   * Returns how many games the batch holds.
+   */
+  int size()
+  {
+    return games;
+  }
+
+  /**
+   * Deal every game in the batch, from consecutive seeds.
+   *
+   * @param firstSeed The seed for game 0. Game {@code g} gets
+   *   {@code firstSeed + g}.
+   */
+  void dealAll(long firstSeed)
+  {
+    for (int g = 0; g < games; g++)
+    {
+      deal(g, firstSeed + g);
+    }
+  }
+
+  /**
+   * Deal one game of the batch from a seed. It's the same deal that
+   * {@link SolitaireGame#SolitaireGame(long)} makes from that seed.
+   *
+   * @param game Which game to deal.
+   * @param seed The seed to shuffle the cards with.
+   */
+  void deal(int game, long seed)
+  {
+    byte[] deck = Deal.shuffle(seed);
+
+    // Deal from the back of the deck onto the tableaus, just like
+    // SolitaireGame does. The top card of each tableau is face-up.
+    int next = deck.length - 1;
+    for (int t = 0; t < 7; t++)
+    {
+      for (int i = 0; i <= t; i++)
+      {
+        tableauCards[cardIndex(game, t, i)] = deck[next--];
+      }
+      faceDownCounts[t * games + game] = (byte) t;
+      setTableauSize(game, t, t + 1);
+      faceUpMasks[t * games + game] = 1L << tableauTops[t * games + game];
+    }
+    hiddenCounts[game] = (byte) (Deal.TABLEAU_CARDS - 7);
+
+    for (int f = 0; f < 4; f++)
+    {
+      setFoundationRank(game, f, 0);
+    }
+
+    // Whatever is left over goes into the stock, front of the deck first.
+    for (int i = 0; i <= next; i++)
+    {
+      talon[i * games + game] = deck[i];
+    }
+    talonSizes[game] = (byte) (next + 1);
+    setWasteSize(game, 0);
+  }
+
+  /**
+   * Copy one game of the batch over another, so that it's in exactly the
+   * same position.
+   *
+   * @param from Which game to copy.
+   * @param to Which game to overwrite.
+   */
+  void copyGame(int from, int to)
+  {
+    for (int slot = 0; slot < 7 * TABLEAU_CAPACITY; slot++)
+    {
+      tableauCards[slot * games + to] = tableauCards[slot * games + from];
+    }
+    for (int t = 0; t < 7; t++)
+    {
+      tableauSizes[t * games + to] = tableauSizes[t * games + from];
+      faceDownCounts[t * games + to] = faceDownCounts[t * games + from];
+      tableauTops[t * games + to] = tableauTops[t * games + from];
+      faceUpMasks[t * games + to] = faceUpMasks[t * games + from];
+    }
+    for (int f = 0; f < 4; f++)
+    {
+      foundationRanks[f * games + to] = foundationRanks[f * games + from];
+    }
+    for (int i = 0; i < TALON_CAPACITY; i++)
+    {
+      talon[i * games + to] = talon[i * games + from];
+    }
+    hiddenCounts[to] = hiddenCounts[from];
+    foundationTops[to] = foundationTops[from];
+    foundationNexts[to] = foundationNexts[from];
+    talonSizes[to] = talonSizes[from];
+    wasteSizes[to] = wasteSizes[from];
+    wasteTops[to] = wasteTops[from];
+  }
+
+  /**
+   * Returns the number of cards in a tableau of one game.
+   *
+   * @param game Which game.
+   * @param tableau The tableau's ID number (0 through 6).
+   */
+  int getTableauSize(int game, int tableau)
+  {
+    return tableauSizes[tableau * games + game];
+  }
+
+  /**
+   * Returns the number of face-down cards at the bottom of a tableau of one
+   * game.
+   *
+   * @param game Which game.
+   * @param tableau The tableau's ID number (0 through 6).
+   */
+  int getFaceDownCount(int game, int tableau)
+  {
+    return faceDownCounts[tableau * games + game];
+  }
+
+  /**
+   * Returns one card from a tableau of one game.
+   *
+   * @param game Which game.
+   * @param tableau The tableau's ID number (0 through 6).
+   * @param index The position of the card in the tableau, counting up
+   *   from 0 at the bottom.
+   * @return The card's ID.
+   */
+  byte getTableauCard(int game, int tableau, int index)
+  {
+    return tableauCards[cardIndex(game, tableau, index)];
+  }
+
+  /**
+   * Returns the rank of the card on top of a foundation of one game.
+   *
+   * @param game Which game.
+   * @param foundation The foundation's ID number (0 through 3).
+   * @return The rank of the top card, or 0 if the foundation is empty.
+   */
+  int getFoundationRank(int game, int foundation)
+  {
+    return foundationRanks[foundation * games + game];
+  }
+
+  /**
+   * Returns the number of cards in the stock of one game.
+   *
+   * @param game Which game.
+   */
+  int getStockSize(int game)
+  {
+    return talonSizes[game] - wasteSizes[game];
+  }
+
+  /**
+   * Returns one card from the stock of one game.
+   *
+   * @param game Which game.
+   * @param index The position of the card in the stock, counting down
+   *   from 0 at the top. (So the card at index 0 is the next one drawn.)
+   * @return The card's ID.
+   */
+  byte getStockCard(int game, int index)
+  {
+    return talon[(wasteSizes[game] + index) * games + game];
+  }
+
+  /**
+   * Returns the number of cards in the waste of one game.
+   *
+   * @param game Which game.
+   */
+  int getWasteSize(int game)
+  {
+    return wasteSizes[game];
+  }
+
+  /**
+   * Returns one card from the waste of one game.
+   *
+   * @param game Which game.
+   * @param index The position of the card in the waste, counting down
+   *   from 0 at the top.
+   * @return The card's ID.
+   */
+  byte getWasteCard(int game, int index)
+  {
+    return talon[(wasteSizes[game] - 1 - index) * games + game];
+  }
+
+  /**
+   * Returns whether one game has been won: that is, whether all of the
+   * cards on its tableaus are face-up.
+   *
+   * @param game Which game.
+   */
+  boolean hasWon(int game)
+  {
+    return hiddenCounts[game] == 0;
+  }
+
+  /**
+   * Returns how many games of the batch have been won.
+   */
+  int countWon()
+  {
+    int won = 0;
+    for (int g = 0; g < games; g++)
+    {
+      won += hiddenCounts[g] == 0 ? 1 : 0;
+    }
+    return won;
+  }
+
+  /**
+   * Make a move in one game, if it's legal.
+   *
+   * <p>
+   *   This behaves exactly like {@link SolitaireGame#tryMove(int)}: the same
+   *   moves are legal, and illegal ones get the same status.
+   * </p>
+   *
+   * @param game Which game.
+   * @param code The move, encoded by
+   *   {@link Move#encode(PileType, int, PileType, int)}.
+   * @return {@link MoveStatus#LEGAL} if the move was made, or the reason
+   *   it's against the rules.
+   */
+  MoveStatus tryMove(int game, int code)
+  {
+    return move(game, code, true);
+  }
+
+  /**
+   * Check whether a move is legal in one game, without making it.
+   *
+   * @param game Which game.
+   * @param code The move, encoded by
+   *   {@link Move#encode(PileType, int, PileType, int)}.
+   * @return {@link MoveStatus#LEGAL} if the move could be made, or the
+   *   reason it's against the rules.
+   */
+  MoveStatus checkMove(int game, int code)
+  {
+    return move(game, code, false);
+  }
+
+  /**
+   * Make one move in each game of the batch.
+   *
+   * @param codes The move for game {@code g} at index {@code g}, encoded by
+   *   {@link Move#encode(PileType, int, PileType, int)}, or a negative
+   *   number to leave that game alone.
+   * @param statuses Where to put the result of each move. (Games that were
+   *   left alone get {@code null}.)
+   */
+  void makeMoves(int[] codes, MoveStatus[] statuses)
+  {
+    for (int g = 0; g < games; g++)
+    {
+      statuses[g] = codes[g] < 0 ? null : move(g, codes[g], true);
+    }
+  }
+
+  /**
+   * Work out the legal moves of a range of games, a kind of move at a time.
+   * (See the class description.)
+   *
+   * @param from The first game.
+   * @param to One past the last game.
+   */
+  void generateMoves(int from, int to)
+  {
+    for (int g = from; g < to; g++)
+    {
+      lowMoves[g] = 0;
+      highMoves[g] = nonZero(talonSizes[g]) << DRAW;
+    }
+
+    for (int t = 0; t < 7; t++)
+    {
+      int tableau = t * games;
+      for (int g = from; g < to; g++)
+      {
+        successors[tableau + g] = SUCCESSORS[tableauTops[tableau + g]];
+      }
+    }
+
+    for (int start = 0; start < 7; start++)
+    {
+      int startSlot = start * games;
+      for (int end = 0; end < 7; end++)
+      {
+        if (start == end)
+          continue;
+
+        int endSlot = end * games;
+        int bit = 7 * start + end;
+        for (int g = from; g < to; g++)
+        {
+          lowMoves[g] |= nonZero(faceUpMasks[startSlot + g] & successors[endSlot + g]) << bit;
+        }
+      }
+
+      // Only the top card can go up, and only on its own suit's foundation
+      // (and NO_CARD's bit is never set in foundationNexts)
+      for (int g = from; g < to; g++)
+      {
+        lowMoves[g] |= (foundationNexts[g] >>> tableauTops[startSlot + g] & 1)
+            << (TABLEAU_TO_FOUNDATION + start);
+      }
+    }
+
+    for (int g = from; g < to; g++)
+    {
+      lowMoves[g] |= (foundationNexts[g] >>> wasteTops[g] & 1) << WASTE_TO_FOUNDATION;
+    }
+
+    for (int end = 0; end < 7; end++)
+    {
+      int endSlot = end * games;
+      for (int g = from; g < to; g++)
+      {
+        lowMoves[g] |=
+            nonZero(1L << wasteTops[g] & successors[endSlot + g]) << (WASTE_TO_TABLEAU + end);
+      }
+
+      for (int f = 0; f < 4; f++)
+      {
+        long suit = 0x1FFFL << (f * 13);
+        int bit = 7 * f + end;
+        for (int g = from; g < to; g++)
+        {
+          highMoves[g] |= nonZero(foundationTops[g] & suit & successors[endSlot + g]) << bit;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns 1 if {@code x} isn't zero, and 0 if it is, without a branch.
+   */
+  private static long nonZero(long x)
+  {
+    return (x | -x) >>> 63;
+  }
+
+  /**
+   * List every legal move in one game.
+   *
+   * <p>
+   *   Every legal move is listed exactly once, with drawing from the stock
+   *   spelled as a move from the stock to the waste, just like
+   *   {@link SolitaireGame#legalMoves(int[])}. (The moves may come out in
+   *   a different order, though.)
+   * </p>
+   *
+   * @param game Which game.
+   * @param moves The array to write the encoded moves into, starting at
+   *   index 0. It needs room for {@link SolitaireGame#MAX_LEGAL_MOVES}.
+   * @return How many moves there are.
+   */
+  int legalMoves(int game, int[] moves)
+  {
+    generateMoves(game, game + 1);
+
+    int count = 0;
+    for (long low = lowMoves[game]; low != 0; low &= low - 1)
+    {
+      moves[count++] = lowMoveCode(game, Long.numberOfTrailingZeros(low));
+    }
+    for (long high = highMoves[game]; high != 0; high &= high - 1)
+    {
+      moves[count++] = highMoveCode(Long.numberOfTrailingZeros(high));
+    }
+    return count;
+  }
+
+  /**
+   * Returns the code of a move in the low half of a game's set of moves.
+   */
+  private int lowMoveCode(int game, int bit)
+  {
+    if (bit < TABLEAU_TO_FOUNDATION)
+      return Move.encode(PileType.TABLEAU, bit / 7, PileType.TABLEAU, bit % 7);
+
+    if (bit < WASTE_TO_FOUNDATION)
+    {
+      int tableau = bit - TABLEAU_TO_FOUNDATION;
+      return Move.encode(
+          PileType.TABLEAU, tableau,
+          PileType.FOUNDATION, tableauTops[tableau * games + game] / 13);
+    }
+
+    if (bit == WASTE_TO_FOUNDATION)
+      return Move.encode(PileType.WASTE, 0, PileType.FOUNDATION, wasteTops[game] / 13);
+
+    return Move.encode(PileType.WASTE, 0, PileType.TABLEAU, bit - WASTE_TO_TABLEAU);
+  }
+
+  /**
+   * Returns the code of a move in the high half of a game's set of moves.
+   */
+  private static int highMoveCode(int bit)
+  {
+    if (bit == DRAW)
+      return Move.encode(PileType.STOCK, 0, PileType.WASTE, 0);
+    return Move.encode(PileType.FOUNDATION, bit / 7, PileType.TABLEAU, bit % 7);
+  }
+
+  /**
+   * Play every game of the batch with random legal moves until each one is
+   * won, stuck, or out of moves.
+   *
+   * <p>
+   *   The games are played a block of {@value #PLAY_BLOCK} at a time. Each
+   *   round finds the legal moves of every game in the block with
+   *   {@link #generateMoves(int, int)}, and then makes one of them, picked
+   *   at random, in every game that's still going. The same seed always
+   *   plays the same moves.
+   * </p>
+   *
+   * @param seed The seed for choosing moves.
+   * @param maxMoves The most moves to make in any one game.
+   * @return The total number of moves made, across all the games.
+   */
+  long playRandom(long seed, int maxMoves)
+  {
+    SplittableRandom random = new SplittableRandom(seed);
+    boolean[] playing = new boolean[PLAY_BLOCK];
+
+    long total = 0;
+    for (int first = 0; first < games; first += PLAY_BLOCK)
+    {
+      int last = Math.min(games, first + PLAY_BLOCK);
+      int stillPlaying = 0;
+      for (int g = first; g < last; g++)
+      {
+        playing[g - first] = hiddenCounts[g] != 0;
+        stillPlaying += playing[g - first] ? 1 : 0;
+      }
+
+      for (int round = 0; round < maxMoves && stillPlaying > 0; round++)
+      {
+        generateMoves(first, last);
+
+        for (int g = first; g < last; g++)
+        {
+          if (!playing[g - first])
+            continue;
+
+          long low = lowMoves[g];
+          long high = highMoves[g];
+          int lowCount = Long.bitCount(low);
+          int count = lowCount + Long.bitCount(high);
+          if (count == 0)
+          {
+            playing[g - first] = false;
+            stillPlaying--;
+            continue;
+          }
+
+          int pick = random.nextInt(count);
+          if (pick < lowCount)
+            move(g, lowMoveCode(g, nthSetBit(low, pick)), true);
+          else
+            move(g, highMoveCode(nthSetBit(high, pick - lowCount)), true);
+          total++;
+
+          if (hiddenCounts[g] == 0)
+          {
+            playing[g - first] = false;
+            stillPlaying--;
+          }
+        }
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Returns the index of the {@code n}th set bit of {@code bits}, counting
+   * from 0 at the lowest.
+   */
+  private static int nthSetBit(long bits, int n)
+  {
+    for (int i = 0; i < n; i++)
+    {
+      bits &= bits - 1;
+    }
+    return Long.numberOfTrailingZeros(bits);
+  }
+
+  /**
+   * Check a move in one game, and make it if it's legal and {@code apply}
+   * is set.
+   */
+  private MoveStatus move(int game, int code, boolean apply)
+  {
+    int startID = Move.startIDOf(code);
+    int endID = Move.destinationIDOf(code);
+    PileType endType = Move.destinationTypeOf(code);
+
+    switch (Move.startTypeOf(code))
+    {
+      case TABLEAU:
+        switch (endType)
+        {
+          case FOUNDATION:
+            return tableauToFoundation(game, startID, endID, apply);
+          case TABLEAU:
+            return tableauToTableau(game, startID, endID, apply);
+          case STOCK:
+            return MoveStatus.TABLEAU_TO_STOCK;
+          case WASTE:
+          default:
+            return MoveStatus.TABLEAU_TO_WASTE;
+        }
+      case STOCK:
+        switch (endType)
+        {
+          case STOCK:
+          case WASTE:
+            return wastePileDraw(game, apply);
+          case TABLEAU:
+            return MoveStatus.STOCK_TO_TABLEAU;
+          case FOUNDATION:
+          default:
+            return MoveStatus.STOCK_TO_FOUNDATION;
+        }
+      case WASTE:
+        switch (endType)
+        {
+          case STOCK:
+          case WASTE:
+            return wastePileDraw(game, apply);
+          case TABLEAU:
+            return wasteToTableau(game, endID, apply);
+          case FOUNDATION:
+          default:
+            return wasteToFoundation(game, endID, apply);
+        }
+      case FOUNDATION:
+      default:
+        switch (endType)
+        {
+          case TABLEAU:
+            return foundationToTableau(game, startID, endID, apply);
+          case FOUNDATION:
+            return MoveStatus.FOUNDATION_TO_FOUNDATION;
+          case STOCK:
+            return MoveStatus.FOUNDATION_TO_STOCK;
+          case WASTE:
+          default:
+            return MoveStatus.FOUNDATION_TO_WASTE;
+        }
+    }
+  }
+
+  private MoveStatus tableauToTableau(int game, int start, int end, boolean apply)
+  {
+    int requiredRank = requiredTableauRank(game, end);
+    if (requiredRank == 0)
+      return MoveStatus.ACE_ON_TABLEAU;
+
+    int startSize = tableauSizes[start * games + game];
+    if (startSize == 0)
+      return MoveStatus.EMPTY_TABLEAU;
+
+    int stoppingIndex = findRunStart(game, start, end);
+    if (stoppingIndex == -1)
+      return MoveStatus.NO_VIABLE_CARDS;
+
+    if (apply)
+    {
+      int endSize = tableauSizes[end * games + game];
+      int count = startSize - stoppingIndex;
+      long movedMask = 0;
+      for (int i = 0; i < count; i++)
+      {
+        byte card = tableauCards[cardIndex(game, start, stoppingIndex + i)];
+        tableauCards[cardIndex(game, end, endSize + i)] = card;
+        movedMask |= 1L << card;
+      }
+
+      setTableauSize(game, end, endSize + count);
+      setTableauSize(game, start, stoppingIndex);
+      faceUpMasks[start * games + game] &= ~movedMask;
+      faceUpMasks[end * games + game] |= movedMask;
+      revealTopOfTableau(game, start);
+    }
+    return MoveStatus.LEGAL;
+  }
+
+  private MoveStatus wastePileDraw(int game, boolean apply)
+  {
+    if (talonSizes[game] == 0)
+      return MoveStatus.NOTHING_TO_DRAW;
+
+    if (apply)
+      setWasteSize(game, wasteSizes[game] == talonSizes[game] ? 0 : wasteSizes[game] + 1);
+    return MoveStatus.LEGAL;
+  }
+
+  private MoveStatus wasteToTableau(int game, int end, boolean apply)
+  {
+    int requiredRank = requiredTableauRank(game, end);
+    if (requiredRank == 0)
+      return MoveStatus.ACE_ON_TABLEAU;
+
+    if (wasteSizes[game] == 0)
+      return MoveStatus.EMPTY_WASTE;
+
+    byte card = wasteTops[game];
+    if (!fitsOnTableau(game, card, end, requiredRank))
+      return MoveStatus.WASTE_CARD_DOES_NOT_FIT;
+
+    if (apply)
+    {
+      removeTopOfWaste(game);
+      pushOntoTableau(game, end, card);
+    }
+    return MoveStatus.LEGAL;
+  }
+
+  private MoveStatus wasteToFoundation(int game, int foundation, boolean apply)
+  {
+    if (wasteSizes[game] == 0)
+      return MoveStatus.EMPTY_WASTE;
+
+    if (!fitsOnFoundation(game, wasteTops[game], foundation))
+      return MoveStatus.CARD_DOES_NOT_FIT_FOUNDATION;
+
+    if (apply)
+    {
+      removeTopOfWaste(game);
+      setFoundationRank(game, foundation, foundationRanks[foundation * games + game] + 1);
+    }
+    return MoveStatus.LEGAL;
+  }
+
+  private MoveStatus tableauToFoundation(int game, int tableau, int foundation, boolean apply)
+  {
+    int size = tableauSizes[tableau * games + game];
+    if (size == 0)
+      return MoveStatus.EMPTY_TABLEAU_TO_FOUNDATION;
+
+    byte card = tableauTops[tableau * games + game];
+    if (!fitsOnFoundation(game, card, foundation))
+      return MoveStatus.CARD_DOES_NOT_FIT_FOUNDATION;
+
+    if (apply)
+    {
+      setTableauSize(game, tableau, size - 1);
+      faceUpMasks[tableau * games + game] &= ~(1L << card);
+      setFoundationRank(game, foundation, foundationRanks[foundation * games + game] + 1);
+      revealTopOfTableau(game, tableau);
+    }
+    return MoveStatus.LEGAL;
+  }
+
+  private MoveStatus foundationToTableau(int game, int foundation, int tableau, boolean apply)
+  {
+    int rank = foundationRanks[foundation * games + game];
+    if (rank == 0)
+      return MoveStatus.EMPTY_FOUNDATION;
+
+    int requiredRank = requiredTableauRank(game, tableau);
+    if (requiredRank == 0)
+      return MoveStatus.ACE_ON_TABLEAU;
+
+    byte card = (byte) (foundation * 13 + rank - 1);
+    if (!fitsOnTableau(game, card, tableau, requiredRank))
+      return MoveStatus.FOUNDATION_CARD_DOES_NOT_FIT;
+
+    if (apply)
+    {
+      setFoundationRank(game, foundation, rank - 1);
+      pushOntoTableau(game, tableau, card);
+    }
+    return MoveStatus.LEGAL;
+  }
+
+  /**
+   * Find the face-up card of one tableau that fits on another. (This is the
+   * same card {@code SolitaireGame.getEndOfStack} finds.)
+   *
+   * @return The card's index in its tableau, or {@code -1} if none fit.
+   */
+  private int findRunStart(int game, int start, int end)
+  {
+    //A run has at most one card of each rank, so at most one of them fits
+    long fits = faceUpMasks[start * games + game] & SUCCESSORS[tableauTops[end * games + game]];
+    if (fits == 0)
+      return -1;
+
+    int runStart = faceDownCounts[start * games + game];
+    int runBase = tableauCards[cardIndex(game, start, runStart)];
+    return runStart + Card.rankOf(runBase) - Card.rankOf(Long.numberOfTrailingZeros(fits));
+  }
+
+  /**
+   * Returns the rank that the next card on a tableau should be: 13 if it's
+   * empty, or one less than the rank of its top card.
+   */
+  private int requiredTableauRank(int game, int tableau)
+  {
+    byte top = tableauTops[tableau * games + game];
+    return top == NO_CARD ? 13 : Card.rankOf(top) - 1;
+  }
+
+  /**
+   * Returns whether a card may be placed on top of a tableau.
+   */
+  private boolean fitsOnTableau(int game, byte card, int tableau, int requiredRank)
+  {
+    if (Card.rankOf(card) != requiredRank)
+      return false;
+
+    byte top = tableauTops[tableau * games + game];
+    return top == NO_CARD || Card.colorOf(card) != Card.colorOf(top);
+  }
+
+  /**
+   * Returns whether a card may be placed on top of a foundation.
+   */
+  private boolean fitsOnFoundation(int game, int card, int foundation)
+  {
+    return (foundationNexts[game] & 0x1FFFL << (foundation * 13) & 1L << card) != 0;
+  }
+
+  /**
+   * Put a face-up card on top of a tableau.
+   */
+  private void pushOntoTableau(int game, int tableau, byte card)
+  {
+    int size = tableauSizes[tableau * games + game];
+    tableauCards[cardIndex(game, tableau, size)] = card;
+    setTableauSize(game, tableau, size + 1);
+    faceUpMasks[tableau * games + game] |= 1L << card;
+  }
+
+  /**
+   * Take the top card off of the waste, closing the gap it leaves in the
+   * talon.
+   */
+  private void removeTopOfWaste(int game)
+  {
+    int wasteSize = wasteSizes[game];
+    int talonSize = talonSizes[game];
+    for (int i = wasteSize; i < talonSize; i++)
+    {
+      talon[(i - 1) * games + game] = talon[i * games + game];
+    }
+    talonSizes[game] = (byte) (talonSize - 1);
+    setWasteSize(game, wasteSize - 1);
+  }
+
+  /**
+   * Flip the top card of a tableau face-up, if it isn't already.
+   */
+  private void revealTopOfTableau(int game, int tableau)
+  {
+    int slot = tableau * games + game;
+    if (faceDownCounts[slot] == tableauSizes[slot] && faceDownCounts[slot] > 0)
+    {
+      faceDownCounts[slot]--;
+      hiddenCounts[game]--;
+      faceUpMasks[slot] |= 1L << tableauTops[slot];
+    }
+  }
+
+  /**
+   * Change the number of cards in a tableau, keeping its top card up to
+   * date.
+   */
+  private void setTableauSize(int game, int tableau, int size)
+  {
+    int slot = tableau * games + game;
+    tableauSizes[slot] = (byte) size;
+    tableauTops[slot] = size == 0 ? NO_CARD : tableauCards[cardIndex(game, tableau, size - 1)];
+  }
+
+  /**
+   * Change the number of cards in the waste, keeping its top card up to
+   * date.
+   */
+  private void setWasteSize(int game, int size)
+  {
+    wasteSizes[game] = (byte) size;
+    wasteTops[game] = size == 0 ? NO_CARD : talon[(size - 1) * games + game];
+  }
+
+  /**
+   * Change the rank of a foundation, keeping the masks of the foundations'
+   * top and next cards up to date. (A full foundation has no next card.)
+   */
+  private void setFoundationRank(int game, int foundation, int rank)
+  {
+    foundationRanks[foundation * games + game] = (byte) rank;
+
+    long suit = 0x1FFFL << (foundation * 13);
+    long top = rank == 0 ? 0 : 1L << (foundation * 13 + rank - 1);
+    long next = rank == 13 ? 0 : 1L << (foundation * 13 + rank);
+    foundationTops[game] = foundationTops[game] & ~suit | top;
+    foundationNexts[game] = foundationNexts[game] & ~suit | next;
+  }
+
+  /**
+   * Returns where a tableau card of one game is in {@code tableauCards}.
+   */
+  private int cardIndex(int game, int tableau, int index)
+  {
+    return (tableau * TABLEAU_CAPACITY + index) * games + game;
+  }
+}
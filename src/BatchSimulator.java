@@ -0,0 +1,253 @@
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * This class plays lots of games automatically, to find out how often a
+ * policy wins.
+ *
+ * <p>
+ *   It deals games from a range of seeds and plays each one with a
+ *   {@link MovePolicy} until it's won, the policy gives up, or it hits the
+ *   move limit. The games are shared out between threads, one per core by
+ *   default.
+ * </p>
+ *
+ * <p>
+ *   Each game's result is written to standard output as soon as it's
+ *   finished, as a line of comma-separated values: the seed, {@code WON} or
+ *   {@code LOST}, and the number of moves made. (So the lines come out in
+ *   whatever order the games finish in.) Once every game is done, a summary
+ *   goes to standard error.
+ * </p>
+ *
+ * <p>
+ *   Usage:
+ * </p>
+ *
+ * <pre>
+ *   java BatchSimulator [--games N] [--seed FIRST_SEED]
+ *       [--policy random|greedy|solver] [--threads N] [--max-moves N]
+ *       [--nodes N] [--millis N]
+ * </pre>
+ *
+ * <p>
+ *   {@code --nodes} and {@code --millis} are the budgets for each game when
+ *   the policy is {@code solver}.
+ * </p>
+ */
+public class BatchSimulator
+{
+  private long games = 10_000;
+  private long firstSeed = 0;
+  private String policyName = "greedy";
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private int maxMoves = 1_000;
+  private long nodeBudget = 200_000;
+  private long timeBudgetMillis = 10_000;
+
+  private final AtomicLong nextGame = new AtomicLong();
+  private final LongAdder gamesPlayed = new LongAdder();
+  private final LongAdder gamesWon = new LongAdder();
+  private final LongAdder movesMade = new LongAdder();
+
+  private PrintWriter out;
+
+  public static void main(String[] args) throws InterruptedException
+  {
+    BatchSimulator simulator = new BatchSimulator();
+    try
+    {
+      simulator.parseArguments(args);
+    }
+    catch (IllegalArgumentException e)
+    {
+      System.err.println(e.getMessage());
+      System.exit(2);
+    }
+    simulator.run();
+  }
+
+  /**
+   * Read the command-line options into this simulator's settings.
+   *
+   * @param args The command-line arguments.
+   *
+   * @throws IllegalArgumentException If an option is unknown, is missing its
+   *   value, or has a value that doesn't make sense.
+   */
+  private void parseArguments(String[] args)
+  {
+    for (int i = 0; i < args.length; i++)
+    {
+      String option = args[i];
+      if (i + 1 == args.length)
+        throw new IllegalArgumentException("Missing a value for " + option);
+      String value = args[++i];
+
+      try
+      {
+        switch (option)
+        {
+          case "--games":
+            games = Long.parseLong(value);
+            break;
+          case "--seed":
+            firstSeed = Long.parseLong(value);
+            break;
+          case "--policy":
+            policyName = value;
+            break;
+          case "--threads":
+            threads = Integer.parseInt(value);
+            break;
+          case "--max-moves":
+            maxMoves = Integer.parseInt(value);
+            break;
+          case "--nodes":
+            nodeBudget = Long.parseLong(value);
+            break;
+          case "--millis":
+            timeBudgetMillis = Long.parseLong(value);
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown option " + option);
+        }
+      }
+      catch (NumberFormatException e)
+      {
+        throw new IllegalArgumentException("Not a number for " + option + ": " + value);
+      }
+    }
+
+    if (games < 0 || threads <= 0 || maxMoves <= 0)
+      throw new IllegalArgumentException(
+          "--games can't be negative, and --threads and --max-moves have to be positive");
+
+    //Fail now, rather than in every thread
+    policySupplier().get();
+  }
+
+  /**
+   * Returns something that makes a new policy of the chosen kind.
+   *
+   * @throws IllegalArgumentException If there's no policy with the chosen
+   *   name.
+   */
+  private Supplier<MovePolicy> policySupplier()
+  {
+    switch (policyName)
+    {
+      case "random":
+        return RandomPolicy::new;
+      case "greedy":
+        return GreedyPolicy::new;
+      case "solver":
+        return () -> new SolverPolicy(nodeBudget, timeBudgetMillis);
+      default:
+        throw new IllegalArgumentException("Unknown policy " + policyName);
+    }
+  }
+
+  /**
+   * Play every game, writing out the results as they come in, and then
+   * the summary.
+   */
+  private void run() throws InterruptedException
+  {
+    out = new PrintWriter(new BufferedWriter(
+        new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+    Supplier<MovePolicy> policies = policySupplier();
+
+    long start = System.nanoTime();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> workers = new ArrayList<>();
+    for (int i = 0; i < threads; i++)
+    {
+      workers.add(executor.submit(() -> playGames(policies.get())));
+    }
+    executor.shutdown();
+
+    try
+    {
+      for (Future<?> worker : workers)
+      {
+        worker.get();
+      }
+    }
+    catch (ExecutionException e)
+    {
+      throw new IllegalStateException("A game failed", e.getCause());
+    }
+    long elapsed = System.nanoTime() - start;
+    out.flush();
+
+    long played = gamesPlayed.sum();
+    long won = gamesWon.sum();
+    double seconds = elapsed / 1e9;
+    System.err.printf("Policy:         %s (%d threads)%n", policyName, threads);
+    System.err.printf("Games:          %d%n", played);
+    System.err.printf("Win rate:       %.2f%% (%d won)%n",
+        played == 0 ? 0 : 100.0 * won / played, won);
+    System.err.printf("Moves per game: %.1f%n",
+        played == 0 ? 0 : (double) movesMade.sum() / played);
+    System.err.printf("Games/second:   %.1f (%.2f s)%n", played / seconds, seconds);
+  }
+
+  /**
+   * Keep taking the next game and playing it, until there are none left.
+   *
+   * @param policy This thread's policy.
+   */
+  private void playGames(MovePolicy policy)
+  {
+    long index;
+    while ((index = nextGame.getAndIncrement()) < games)
+    {
+      long seed = firstSeed + index;
+      SolitaireGame game = new SolitaireGame(seed);
+      policy.startGame(game, seed);
+
+      int moves = 0;
+      while (!game.hasWon() && moves < maxMoves)
+      {
+        int code = policy.chooseMove(game);
+        if (code < 0)
+          break;
+
+        MoveStatus status = game.tryMove(code);
+        if (!status.isLegal())
+          throw new IllegalStateException(
+              "Policy chose an illegal move " + Move.decode(code) + ": " + status.getMessage());
+        moves++;
+      }
+
+      boolean won = game.hasWon();
+      gamesPlayed.increment();
+      movesMade.add(moves);
+      if (won)
+        gamesWon.increment();
+
+      // Each line is flushed as soon as it's written, so that a long run
+      // shows its results as they come in. (A game takes far longer than
+      // a flush.)
+      synchronized (out)
+      {
+        out.print(seed);
+        out.print(won ? ",WON," : ",LOST,");
+        out.println(moves);
+        out.flush();
+      }
+    }
+  }
+}
@@ -0,0 +1,269 @@
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * This class knows where everything goes in {@code GraphicalOutput}'s
+ * window, and which card is at any point in it.
+ *
+ * <p>
+ *   The tableaus go in a row along the top, with each card a little
+ *   lower than the one under it. The stock, the waste and the foundations
+ *   go in a row along the bottom, and are painted after the tableaus, so a
+ *   tall tableau goes behind them.
+ * </p>
+ *
+ * <p>
+ *   Since all of that is fixed, {@link #hitTest(GameSnapshot, int, int)}
+ *   doesn't have to search: two tables, built once from the same
+ *   numbers, say which pile's column each {@code x} is in (one table for
+ *   each row of piles), and the card within a tableau is worked out from
+ *   {@code y}. So it takes the same time wherever the click is, and
+ *   doesn't depend on what was painted last.
+ * </p>
+ */
+class BoardLayout
+{
+  static final int CARD_WIDTH = 60;
+  static final int CARD_HEIGHT = 110;
+  static final int CORNER_ARC = 10;
+
+  /**
+   * How far down each card in a tableau is from the one under it.
+   */
+  static final int TABLEAU_SPACING = 30;
+
+  /**
+   * How far outside a card anything painted for it can go. (Its outline
+   * is centered on its edge, and the highlight around a selected card is
+   * wider than that.)
+   */
+  static final int OUTLINE_MARGIN = 3;
+
+  static final int TABLEAU_Y = 30;
+  static final int BOTTOM_ROW_Y = 600;
+  static final int STOCK_X = 130;
+  static final int WASTE_X = 220;
+
+  /**
+   * How far apart the piles in each row are.
+   */
+  private static final int PILE_SPACING = 90;
+  private static final int FIRST_TABLEAU_X = 140;
+  private static final int FIRST_FOUNDATION_X = 410;
+
+  /**
+   * For each {@code x}, which pile along the bottom has a card there:
+   * the foundations are 0 through 3, then come {@link #STOCK_SLOT} and
+   * {@link #WASTE_SLOT}, and -1 means none of them.
+   */
+  private static final byte[] BOTTOM_ROW_SLOTS;
+  private static final int STOCK_SLOT = 4;
+  private static final int WASTE_SLOT = 5;
+
+  /**
+   * For each {@code x}, which tableau has its cards there, or -1 for
+   * none.
+   */
+  private static final byte[] TABLEAU_COLUMNS;
+
+  static
+  {
+    int width = foundationX(3) + CARD_WIDTH;
+    BOTTOM_ROW_SLOTS = new byte[width];
+    TABLEAU_COLUMNS = new byte[width];
+    Arrays.fill(BOTTOM_ROW_SLOTS, (byte) -1);
+    Arrays.fill(TABLEAU_COLUMNS, (byte) -1);
+
+    for (int i = 0; i < 4; i++)
+    {
+      fillColumn(BOTTOM_ROW_SLOTS, foundationX(i), i);
+    }
+    fillColumn(BOTTOM_ROW_SLOTS, STOCK_X, STOCK_SLOT);
+    fillColumn(BOTTOM_ROW_SLOTS, WASTE_X, WASTE_SLOT);
+
+    for (int i = 0; i < 7; i++)
+    {
+      fillColumn(TABLEAU_COLUMNS, tableauX(i), i);
+    }
+  }
+
+  private BoardLayout()
+  {
+  }
+
+  private static void fillColumn(byte[] columns, int x, int value)
+  {
+    Arrays.fill(columns, x, x + CARD_WIDTH, (byte) value);
+  }
+
+  /**
+   * Returns the {@code x} of the left edge of a tableau.
+   *
+   * @param tableau The tableau's ID number (0 through 6).
+   */
+  static int tableauX(int tableau)
+  {
+    return FIRST_TABLEAU_X + PILE_SPACING * tableau;
+  }
+
+  /**
+   * Returns the {@code y} of the top edge of a card in a tableau.
+   *
+   * @param index The position of the card in the tableau, counting up
+   *   from 0 at the bottom.
+   */
+  static int tableauY(int index)
+  {
+    return TABLEAU_Y + TABLEAU_SPACING * index;
+  }
+
+  /**
+   * Returns the {@code x} of the left edge of a foundation.
+   *
+   * @param foundation The foundation's ID number (0 through 3).
+   */
+  static int foundationX(int foundation)
+  {
+    return FIRST_FOUNDATION_X + PILE_SPACING * foundation;
+  }
+
+  /**
+   * Returns where the top card of a pile is painted (or where the empty
+   * pile is painted, if it's empty).
+   *
+   * @param game The game, as it's shown.
+   * @param pileType The type of the pile.
+   * @param pileId The pile's ID number.
+   * @return The card's bounds, in the window's coordinates.
+   */
+  static Rectangle topCardBounds(GameSnapshot game, PileType pileType, int pileId)
+  {
+    switch (pileType)
+    {
+      case TABLEAU:
+        int index = Math.max(0, game.getTableau(pileId).size() - 1);
+        return new Rectangle(tableauX(pileId), tableauY(index), CARD_WIDTH, CARD_HEIGHT);
+      case FOUNDATION:
+        return new Rectangle(foundationX(pileId), BOTTOM_ROW_Y, CARD_WIDTH, CARD_HEIGHT);
+      case STOCK:
+        return new Rectangle(STOCK_X, BOTTOM_ROW_Y, CARD_WIDTH, CARD_HEIGHT);
+      default:
+        return new Rectangle(WASTE_X, BOTTOM_ROW_Y, CARD_WIDTH, CARD_HEIGHT);
+    }
+  }
+
+  /**
+   * Returns everywhere that a pile is painted, outlines and all: the
+   * window has to be painted there again if the pile changes.
+   *
+   * @param game The game, as it's shown.
+   * @param pileType The type of the pile.
+   * @param pileId The pile's ID number.
+   * @return The pile's bounds, in the window's coordinates. (For a
+   *   tableau, they go from its bottom card down to its top one, so they
+   *   get bigger as it grows.)
+   */
+  static Rectangle pileBounds(GameSnapshot game, PileType pileType, int pileId)
+  {
+    Rectangle bounds = topCardBounds(game, pileType, pileId);
+    if (pileType == PileType.TABLEAU)
+    {
+      bounds.height += bounds.y - TABLEAU_Y;
+      bounds.y = TABLEAU_Y;
+    }
+    bounds.grow(OUTLINE_MARGIN, OUTLINE_MARGIN);
+    return bounds;
+  }
+
+  /**
+   * Find the card (or empty pile) that's painted at a point.
+   *
+   * @param game The game, as it's shown.
+   * @param x The point's {@code x}, in the window's coordinates.
+   * @param y The point's {@code y}, in the window's coordinates.
+   * @return What's there, or {@code null} if it's just the table.
+   */
+  static Hit hitTest(GameSnapshot game, int x, int y)
+  {
+    if (x < 0 || x >= TABLEAU_COLUMNS.length)
+      return null;
+
+    // The bottom row is painted over the tableaus, so it goes first.
+    if (y >= BOTTOM_ROW_Y && y < BOTTOM_ROW_Y + CARD_HEIGHT)
+    {
+      int slot = BOTTOM_ROW_SLOTS[x];
+      if (slot == STOCK_SLOT)
+        return new Hit(PileType.STOCK, 0, game.getStock().size() - 1);
+
+      // (There's nothing painted for an empty waste.)
+      if (slot == WASTE_SLOT && !game.getWaste().isEmpty())
+        return new Hit(PileType.WASTE, 0, game.getWaste().size() - 1);
+
+      if (slot >= 0 && slot < 4)
+        return new Hit(PileType.FOUNDATION, slot, game.getFoundation(slot).size() - 1);
+    }
+
+    int tableau = TABLEAU_COLUMNS[x];
+    int offset = y - TABLEAU_Y;
+    if (tableau < 0 || offset < 0)
+      return null;
+
+    // Each card shows its top strip, except the top card, which shows all
+    // of itself.
+    int size = game.getTableau(tableau).size();
+    int index = Math.min(offset / TABLEAU_SPACING, Math.max(size - 1, 0));
+    if (offset >= TABLEAU_SPACING * index + CARD_HEIGHT)
+      return null;
+    return new Hit(PileType.TABLEAU, tableau, size == 0 ? -1 : index);
+  }
+
+  /**
+   * A card (or empty pile) that's been clicked on.
+   */
+  static final class Hit
+  {
+    private final PileType pileType;
+    private final int pileId;
+    private final int cardIndex;
+
+    private Hit(PileType pileType, int pileId, int cardIndex)
+    {
+      this.pileType = pileType;
+      this.pileId = pileId;
+      this.cardIndex = cardIndex;
+    }
+
+    /**
+     * Returns the type of pile that was clicked on.
+     */
+    PileType getPileType()
+    {
+      return pileType;
+    }
+
+    /**
+     * Returns the ID number of the pile that was clicked on.
+     */
+    int getPileId()
+    {
+      return pileId;
+    }
+
+    /**
+     * Returns the position in the pile of the card that was clicked on,
+     * counting up from 0 at the bottom, or -1 if the pile is empty.
+     */
+    int getCardIndex()
+    {
+      return cardIndex;
+    }
+
+    /**
+     * Returns whether this is the same pile as another hit.
+     */
+    boolean isSamePile(Hit other)
+    {
+      return pileType == other.pileType && pileId == other.pileId;
+    }
+  }
+}
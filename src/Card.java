@@ -2,25 +2,101 @@
  * This class represents a playing card.
  *
  * <p>
- *   It can be either face up (visible) or face down (not visible).
+ *   Cards are immutable, and there are only ever 52 of them: one for each
+ *   rank and suit. You get them from {@link #of(int)} or
+ *   {@link #of(int, Suit)} instead of constructing them, so every game can
+ *   share the same card objects, and two cards are the same card if and
+ *   only if they're {@code ==}.
+ * </p>
+ *
+ * <p>
+ *   Each card has a small integer ID, {@code suit * 13 + (rank - 1)}, where
+ *   {@code suit} is the suit's position in {@link Suit#values()}. (So the
+ *   clubs are 0 through 12, the diamonds are 13 through 25, and so on.)
+ * </p>
+ *
+ * <p>
+ *   A card doesn't know whether it's face up or face down; that depends on
+ *   where it is, so the {@link Pile} holding it keeps track.
  * </p>
  */
-class Card
+final class Card
 {
-  private final int rank;
-  private final Suit suit;
-  private boolean showing = false;
-  private boolean onTop = false;
+  /**
+   * How many cards there are in a deck.
+   */
+  static final int NUMBER_OF_CARDS = 52;
+
+  // I got some feedback from my parents, who say that question marks look
+  // a little 'busy' on the screen. How about rectangles?
+  /**
+   * The string to show instead of a card that's face-down.
+   */
+  static final String FACE_DOWN_STRING = "▓▓▓";
+
+  private static final Card[] CARDS = new Card[NUMBER_OF_CARDS];
+  private static final byte[] RANKS = new byte[NUMBER_OF_CARDS];
+  private static final byte[] COLORS = new byte[NUMBER_OF_CARDS];
+  private static final Suit[] SUITS = new Suit[NUMBER_OF_CARDS];
+  private static final String[] STRINGS = new String[NUMBER_OF_CARDS];
+
+  static {
+    Suit[] suits = Suit.values();
+    for (int id = 0; id < NUMBER_OF_CARDS; id++)
+    {
+      Suit suit = suits[id / 13];
+      int rank = id % 13 + 1;
+
+      RANKS[id] = (byte) rank;
+      SUITS[id] = suit;
+      // Clubs and spades are black (0); diamonds and hearts are red (1).
+      COLORS[id] =
+          (byte) (suit == Suit.CLUBS || suit == Suit.SPADES ? 0 : 1);
+      STRINGS[id] = String.format("%s%s", stringOfRank(rank), suit);
+      CARDS[id] = new Card(id);
+    }
+  }
+
+  private final int id;
+
+  /**
+   * Create the card with the given ID. (This is only done once per card,
+   * when the class is loaded.)
+   *
+   * @param id the card's ID
+   */
+  private Card(int id)
+  {
+    this.id = id;
+  }
+
+  /**
+   * Returns the card with the given ID.
+   *
+   * @param id the card's ID, from 0 through 51
+   */
+  static Card of(int id)
+  {
+    return CARDS[id];
+  }
 
   /**
-   * Create a new card face-down.
+   * Returns the card with the given rank and suit.
    *
-   * @param r the card's rank
-   * @param s the card's suit
+   * @param rank the card's rank, from 1 (ace) through 13 (king)
+   * @param suit the card's suit
    */
-  Card(int r, Suit s){
-    this.rank = r;
-    this.suit = s;
+  static Card of(int rank, Suit suit)
+  {
+    return CARDS[suit.ordinal() * 13 + rank - 1];
+  }
+
+  /**
+   * Returns the ID of the card
+   */
+  int getId()
+  {
+    return id;
   }
 
   /**
@@ -28,7 +104,7 @@ class Card
    */
   int getRank()
   {
-    return rank;
+    return RANKS[id];
   }
 
   /**
@@ -36,7 +112,7 @@ class Card
    */
   Suit getSuit()
   {
-    return suit;
+    return SUITS[id];
   }
 
   /**
@@ -45,66 +121,48 @@ class Card
    */
   int getColor()
   {
-    if(getSuit().equals(Suit.CLUBS) || getSuit().equals(Suit.SPADES))
-      return 0;
-    else
-      return 1;
+    return COLORS[id];
   }
 
   /**
-   * Returns if the card is flipped over or not
+   * Returns the rank of the card with the given ID
    */
-  boolean isShowing()
+  static int rankOf(int id)
   {
-    return showing;
+    return RANKS[id];
   }
 
   /**
-   * Returns if the card is on top of the stack or not
-   */
-  boolean isTop(){
-    return onTop;
-  }
-
-  /**
-   * Sets if the card is showing or not
+   * Get the color of the card with the given ID
+   * @return 0 for black, 1 for red
    */
-  void setShowing(boolean shouldShow)
+  static int colorOf(int id)
   {
-    showing = shouldShow;
+    return COLORS[id];
   }
 
   /**
-   * Sets if the card is on top of the stack or not
+   * Converts a card to a string, as it looks when it's face up
    */
-  void setTop(boolean top){
-    onTop = top;
+  @Override
+  public String toString()
+  {
+    return STRINGS[id];
   }
 
   /**
    * Converts a card to a string depending on if it is face up or not
    */
-  @Override
-  public String toString()
+  String toString(boolean showing)
   {
-    if (isShowing())
-    {
-      return String.format("%s%s", stringOfRank(), getSuit());
-    }
-    else
-    {
-      // I got some feedback from my parents, who say that question marks look
-      // a little 'busy' on the screen. How about rectangles?
-      return "▓▓▓";
-    }
+    return showing ? STRINGS[id] : FACE_DOWN_STRING;
   }
 
   /**
-   * Returns the string of the rank of the card
+   * Returns the string of a rank
    */
-  private String stringOfRank()
+  private static String stringOfRank(int rank)
   {
-    int rank = getRank();
     switch (rank)
     {
       case 1:
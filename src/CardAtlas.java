@@ -0,0 +1,227 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Shape;
+import java.awt.Toolkit;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+
+/**
+ * This class draws the cards for {@code GraphicalOutput}, from a sprite
+ * atlas.
+ *
+ * <p>
+ *   Every picture a card can need (each of the 52 faces, the back of a
+ *   face-down card, an empty tableau, the four empty foundations with
+ *   their suit symbols, and the stock, both full and empty) is drawn once,
+ *   with its outline, fill and text, into one big image. Painting a card
+ *   is then just copying its part of that image onto the screen, instead
+ *   of building shapes, strokes, fonts and paints and laying out text
+ *   every time.
+ * </p>
+ *
+ * <p>
+ *   The atlas is drawn at the scale of the screen it's painted on (so that
+ *   cards stay sharp on high-DPI screens), and drawn again if that scale
+ *   changes, say because the window moved to another screen.
+ * </p>
+ */
+class CardAtlas
+{
+  static final int CARD_WIDTH = BoardLayout.CARD_WIDTH;
+  static final int CARD_HEIGHT = BoardLayout.CARD_HEIGHT;
+  static final int CORNER_ARC = BoardLayout.CORNER_ARC;
+
+  /**
+   * The sprites that aren't card faces. (The face of the card with ID
+   * {@code n} is sprite {@code n}.)
+   */
+  static final int FACE_DOWN = Card.NUMBER_OF_CARDS;
+  static final int EMPTY_TABLEAU = FACE_DOWN + 1;
+  static final int STOCK = EMPTY_TABLEAU + 1;
+  static final int EMPTY_STOCK = STOCK + 1;
+
+  /**
+   * The first of the four empty foundations; the one for foundation
+   * {@code i} is {@code EMPTY_FOUNDATION + i}.
+   */
+  static final int EMPTY_FOUNDATION = EMPTY_STOCK + 1;
+
+  private static final int SPRITES = EMPTY_FOUNDATION + 4;
+  private static final int COLUMNS = 10;
+
+  /**
+   * How far outside the card each sprite goes, to leave room for the
+   * outline (which is centered on the card's edge).
+   */
+  private static final int PADDING = 2;
+
+  /**
+   * Where the stock is painted. (Its gradient is lined up with the
+   * window, not with the card, so the sprite has to know.)
+   */
+  private static final int STOCK_X = BoardLayout.STOCK_X;
+  private static final int STOCK_Y = BoardLayout.BOTTOM_ROW_Y;
+
+  private static final Color[] FOUNDATION_COLORS = {
+      Color.BLACK, Color.RED, Color.BLACK, Color.RED};
+  private static final String[] FOUNDATION_SYMBOLS = {"♣", "♢", "♠", "♡"};
+
+  private BufferedImage atlas;
+  private double scaleX;
+  private double scaleY;
+
+  /**
+   * The size of each sprite in the atlas, in pixels.
+   */
+  private int spriteWidth;
+  private int spriteHeight;
+
+  /**
+   * Paint one sprite.
+   *
+   * @param g Where to paint it.
+   * @param sprite Which sprite: a card ID for that card's face, or one of
+   *   the other sprite constants.
+   * @param x Where the left edge of the card goes.
+   * @param y Where the top edge of the card goes.
+   */
+  void draw(Graphics2D g, int sprite, int x, int y)
+  {
+    drawTop(g, sprite, x, y, CARD_HEIGHT + PADDING);
+  }
+
+  /**
+   * Paint just the top part of a sprite, for a card that's mostly covered
+   * up by another one.
+   *
+   * @param g Where to paint it.
+   * @param sprite Which sprite: a card ID for that card's face, or one of
+   *   the other sprite constants.
+   * @param x Where the left edge of the card goes.
+   * @param y Where the top edge of the card goes.
+   * @param height How much of the card to paint, from its top edge down.
+   */
+  void drawTop(Graphics2D g, int sprite, int x, int y, int height)
+  {
+    AffineTransform transform = g.getTransform();
+    if (atlas == null
+        || transform.getScaleX() != scaleX
+        || transform.getScaleY() != scaleY)
+      build(g.getDeviceConfiguration(), transform.getScaleX(), transform.getScaleY());
+
+    int sourceX = sprite % COLUMNS * spriteWidth;
+    int sourceY = sprite / COLUMNS * spriteHeight;
+    int sourceHeight =
+        Math.min(spriteHeight, (int) Math.ceil((PADDING + height) * scaleY));
+    g.drawImage(
+        atlas,
+        x - PADDING, y - PADDING,
+        x + CARD_WIDTH + PADDING, y + height,
+        sourceX, sourceY,
+        sourceX + spriteWidth, sourceY + sourceHeight,
+        null);
+  }
+
+  /**
+   * Draw every sprite into a new atlas.
+   *
+   * @param screen The screen (or image) the atlas will be painted on. The
+   *   atlas is made in whatever format is quickest to copy onto it.
+   * @param scaleX How many pixels across there are to one unit of the
+   *   window's coordinates.
+   * @param scaleY How many pixels down there are to one unit of the
+   *   window's coordinates.
+   */
+  private void build(GraphicsConfiguration screen, double scaleX, double scaleY)
+  {
+    this.scaleX = scaleX;
+    this.scaleY = scaleY;
+    spriteWidth = (int) Math.ceil((CARD_WIDTH + 2 * PADDING) * scaleX);
+    spriteHeight = (int) Math.ceil((CARD_HEIGHT + 2 * PADDING) * scaleY);
+
+    int rows = (SPRITES + COLUMNS - 1) / COLUMNS;
+    atlas = screen.createCompatibleImage(
+        COLUMNS * spriteWidth, rows * spriteHeight, Transparency.TRANSLUCENT);
+
+    Graphics2D g = atlas.createGraphics();
+    Map<?, ?> desktopHints =
+        (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+    if (desktopHints != null)
+      g.addRenderingHints(desktopHints);
+
+    Font cardFont = new Font(Font.SANS_SERIF, Font.PLAIN, 20);
+    Font symbolFont = new Font(Font.SANS_SERIF, Font.PLAIN, 50);
+    BasicStroke outline = new BasicStroke(3);
+    Shape card = new RoundRectangle2D.Double(0, 0, CARD_WIDTH, CARD_HEIGHT, CORNER_ARC, CORNER_ARC);
+
+    for (int sprite = 0; sprite < SPRITES; sprite++)
+    {
+      // Draw each sprite with the card's top left corner at (0, 0).
+      Graphics2D cell = (Graphics2D) g.create();
+      cell.translate(sprite % COLUMNS * spriteWidth, sprite / COLUMNS * spriteHeight);
+      cell.scale(scaleX, scaleY);
+      cell.translate(PADDING, PADDING);
+
+      if (sprite == EMPTY_TABLEAU)
+      {
+        drawOutline(cell, card, outline);
+      }
+      else if (sprite == STOCK)
+      {
+        cell.setPaint(new GradientPaint(
+            1 - STOCK_X, 1 - STOCK_Y, Color.red, 10 - STOCK_X, 10 - STOCK_Y, Color.green, true));
+        cell.fill(card);
+        drawOutline(cell, card, outline);
+      }
+      else
+      {
+        cell.setPaint(Color.WHITE);
+        cell.fill(card);
+        drawOutline(cell, card, outline);
+
+        if (sprite == EMPTY_STOCK)
+        {
+          cell.setFont(symbolFont);
+          cell.setPaint(Color.BLACK);
+          cell.drawString("⟳", 10, 50);
+        }
+        else if (sprite >= EMPTY_FOUNDATION)
+        {
+          int foundation = sprite - EMPTY_FOUNDATION;
+          cell.setFont(symbolFont);
+          cell.setPaint(FOUNDATION_COLORS[foundation]);
+          cell.drawString(FOUNDATION_SYMBOLS[foundation], 13, 71);
+        }
+        else if (sprite == FACE_DOWN)
+        {
+          cell.setFont(cardFont);
+          cell.setPaint(Color.GRAY);
+          cell.drawString(Card.FACE_DOWN_STRING, 5, 20);
+        }
+        else
+        {
+          Card face = Card.of(sprite);
+          cell.setFont(cardFont);
+          cell.setPaint(face.getColor() == 1 ? Color.RED : Color.BLACK);
+          cell.drawString(face.toString(), 5, 20);
+        }
+      }
+      cell.dispose();
+    }
+    g.dispose();
+  }
+
+  private static void drawOutline(Graphics2D g, Shape card, BasicStroke outline)
+  {
+    g.setPaint(Color.BLACK);
+    g.setStroke(outline);
+    g.draw(card);
+  }
+}
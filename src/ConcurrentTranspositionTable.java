@@ -0,0 +1,191 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A set of position hashes that many threads can add to at once.
+ *
+ * <p>
+ *   This is the thread-safe version of {@link TranspositionTable}. It uses
+ *   the same open addressing with linear probing, but each entry is claimed
+ *   with a single compare-and-set, so there are no locks; two threads only
+ *   ever contend if they're adding to the very same entry.
+ * </p>
+ *
+ * <p>
+ *   Like {@code TranspositionTable}, it starts small and doubles when it's
+ *   three quarters full (or when a position won't fit near where it
+ *   belongs), up to a maximum size. Whichever thread notices first copies
+ *   the entries into the bigger array while the others carry on adding to
+ *   the old one, so a position that's added during the copy can be missed.
+ *   That's safe, the same way a full table is: once the table is at its
+ *   maximum size and full, {@link #add(long)} treats every position as
+ *   new, which means the search will do some work twice but will still be
+ *   correct.
+ * </p>
+ */
+class ConcurrentTranspositionTable
+{
+  private static final long EMPTY = 0;
+  private static final long ZERO_HASH = 0x9E37_79B9_7F4A_7C15L;
+
+  /**
+   * How many entries to look at before deciding the table is full.
+   */
+  private static final int MAX_PROBES = 64;
+
+  /**
+   * How many entries an add has to look at before it checks whether the
+   * table should grow. (Counting every add exactly would have every thread
+   * fighting over one counter; long probes are the sign that the table is
+   * filling up anyway.)
+   */
+  private static final int GROW_CHECK_PROBES = 4;
+
+  private volatile AtomicLongArray entries;
+  private final int maxLength;
+
+  /**
+   * Roughly how many positions are in the table. (Adds that race with a
+   * copy can be counted twice, or lost.)
+   */
+  private final LongAdder size = new LongAdder();
+  private final AtomicBoolean growing = new AtomicBoolean();
+
+  /**
+   * Create a new, empty table.
+   *
+   * @param initialCapacity How many entries to make room for at first.
+   *   (It's rounded up to a power of two.)
+   * @param maxCapacity The most entries the table will ever grow to. (It's
+   *   rounded up to a power of two too.)
+   */
+  ConcurrentTranspositionTable(int initialCapacity, int maxCapacity)
+  {
+    maxLength = lengthFor(maxCapacity);
+    entries = new AtomicLongArray(Math.min(lengthFor(initialCapacity), maxLength));
+  }
+
+  private static int lengthFor(int capacity)
+  {
+    return Math.max(16, Integer.highestOneBit(capacity - 1) << 1);
+  }
+
+  /**
+   * Add a position to the table.
+   *
+   * @param hash The position's hash.
+   * @return {@code true} if the position was added (or the table is too full
+   *   to tell), or {@code false} if it was already there.
+   */
+  boolean add(long hash)
+  {
+    if (hash == EMPTY)
+      hash = ZERO_HASH;
+
+    while (true)
+    {
+      AtomicLongArray table = entries;
+      int mask = table.length() - 1;
+      int index = (int) hash & mask;
+      for (int probe = 0; probe < MAX_PROBES; probe++)
+      {
+        long entry = table.get(index);
+        if (entry == EMPTY)
+        {
+          if (table.compareAndSet(index, EMPTY, hash))
+          {
+            size.increment();
+            if (probe >= GROW_CHECK_PROBES)
+              growIfNeeded(table);
+            return true;
+          }
+
+          //Somebody else got there first; see what they put in it
+          entry = table.get(index);
+        }
+        if (entry == hash)
+          return false;
+
+        index = (index + 1) & mask;
+      }
+
+      //There's no room near where this position goes. Giving up here would
+      //leave it out of the table for good, and the search would go through
+      //everything under it every time it came back to it, so make the table
+      //bigger (or wait for whoever's doing that already) and try again.
+      if (table.length() >= maxLength)
+        return true;
+      grow(table);
+      if (entries == table)
+        Thread.onSpinWait();
+    }
+  }
+
+  /**
+   * Returns how many bytes the table takes up.
+   */
+  long getMemoryBytes()
+  {
+    return (long) entries.length() * Long.BYTES;
+  }
+
+  /**
+   * Double the size of the table, if it's three quarters full and nobody
+   * else is doing it already.
+   *
+   * @param table The array that the caller added to.
+   */
+  private void growIfNeeded(AtomicLongArray table)
+  {
+    int length = table.length();
+    if (length < maxLength && size.sum() > length - (length >>> 2))
+      grow(table);
+  }
+
+  /**
+   * Double the size of the table, unless somebody else is doing it
+   * already (or has just done it).
+   *
+   * @param table The array that the caller found too full.
+   */
+  private void grow(AtomicLongArray table)
+  {
+    if (!growing.compareAndSet(false, true))
+      return;
+
+    try
+    {
+      //Somebody else may have just grown it
+      if (entries != table)
+        return;
+
+      int length = table.length();
+      AtomicLongArray bigger = new AtomicLongArray(length * 2);
+      int mask = bigger.length() - 1;
+      int copied = 0;
+      for (int i = 0; i < length; i++)
+      {
+        long hash = table.get(i);
+        if (hash == EMPTY)
+          continue;
+
+        int index = (int) hash & mask;
+        while (bigger.get(index) != EMPTY)
+        {
+          index = (index + 1) & mask;
+        }
+        bigger.set(index, hash);
+        copied++;
+      }
+
+      size.reset();
+      size.add(copied);
+      entries = bigger;
+    }
+    finally
+    {
+      growing.set(false);
+    }
+  }
+}
@@ -0,0 +1,88 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * This class shuffles decks of cards for new games.
+ *
+ * <p>
+ *   A shuffled deck is a {@code byte[]} of the 52 card IDs (see
+ *   {@link Card}), in the order they get dealt. Every game deals a deck the
+ *   same way:
+ * </p>
+ *
+ * <ul>
+ *   <li>
+ *     The tableaus are dealt from the back of the deck: tableau 0 gets the
+ *     last card, tableau 1 gets the two cards before that, and so on, up to
+ *     tableau 6. Within a tableau, the card dealt first is at the bottom.
+ *   </li>
+ *   <li>
+ *     The 24 cards left over (the front of the deck) go into the stock, with
+ *     the first card of the deck on top.
+ *   </li>
+ * </ul>
+ *
+ * <p>
+ *   A deck shuffled from a seed is always the same, on every machine and
+ *   with every version of Java, so a seed is all it takes to play a deal
+ *   again.
+ * </p>
+ */
+final class Deal
+{
+  /**
+   * How many cards are dealt onto the tableaus. (Whatever's left goes into
+   * the stock.)
+   */
+  static final int TABLEAU_CARDS = 28;
+
+  private Deal()
+  {
+  }
+
+  /**
+   * Returns a deck shuffled by the given seed.
+   *
+   * @param seed The seed. The same seed always gives the same deck.
+   * @return A new array of the 52 card IDs, in dealing order.
+   */
+  static byte[] shuffle(long seed)
+  {
+    return shuffle(new SplittableRandom(seed));
+  }
+
+  /**
+   * Returns a deck shuffled by the given random number generator.
+   *
+   * @param random Where to get the random numbers from.
+   * @return A new array of the 52 card IDs, in dealing order.
+   */
+  static byte[] shuffle(RandomGenerator random)
+  {
+    byte[] deck = new byte[Card.NUMBER_OF_CARDS];
+    for (int i = 0; i < deck.length; i++)
+    {
+      deck[i] = (byte) i;
+    }
+
+    // Fisher-Yates shuffle.
+    for (int i = deck.length - 1; i > 0; i--)
+    {
+      int j = random.nextInt(i + 1);
+      byte temp = deck[i];
+      deck[i] = deck[j];
+      deck[j] = temp;
+    }
+    return deck;
+  }
+
+  /**
+   * Returns a seed for a new game that nobody asked for a particular deal
+   * of.
+   */
+  static long randomSeed()
+  {
+    return ThreadLocalRandom.current().nextLong();
+  }
+}
@@ -0,0 +1,1018 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class checks that the game engines still follow exactly the rules
+ * that this project started with.
+ *
+ * <p>
+ *   The judge is {@link BaselineSolitaireGame}, a plain copy of the
+ *   original rules, which nothing has optimized. The fuzzer deals games
+ *   from a range of seeds and plays a stream of moves in each one, making
+ *   every move in the oracle, {@link SolitaireGame},
+ *   {@link PackedSolitaireGame} and one game of a {@link BatchEngine} side
+ *   by side. (The batch's other games are dealt from other seeds, and get
+ *   the same moves.) After every move it checks that every engine agrees
+ *   with the oracle on whether the move was legal (and, if it wasn't, why
+ *   not), on the position afterwards (every card, and which way up it is),
+ *   and on whether the game has been won.
+ * </p>
+ *
+ * <p>
+ *   Then it tries every move between two piles from that position, in
+ *   every engine, and checks that they agree on every one; that undoing
+ *   each legal one puts {@code SolitaireGame} back where it was; and that
+ *   {@link SolitaireGame#legalMoves(int[])} and
+ *   {@link BatchEngine#legalMoves(int, int[])} list exactly the legal ones.
+ *   If the game can be auto-completed from there, it checks that every
+ *   move {@link SolitaireGame#autoComplete()} makes is legal in the
+ *   others, that it finishes the game, and that undoing it puts everything
+ *   back. (That makes a move about forty times slower to check than
+ *   making it, but it's the only way to catch a rule that's only wrong in
+ *   positions that the stream happens to walk past.)
+ * </p>
+ *
+ * <p>
+ *   The moves in a stream come from a random number generator seeded by
+ *   the game's seed, so every stream can be played again. The streams
+ *   take turns, by seed, at a few ways of choosing them (see
+ *   {@link Strategy}): purely at random, mostly greedily, greedily but
+ *   holding one suit back, and the solver's winning line followed by the
+ *   endgame. A random move is picked from the legal moves that
+ *   {@code SolitaireGame} lists about half the time, so that games get
+ *   somewhere, and otherwise is any move at all between piles that exist,
+ *   so that the illegal ones get made too.
+ * </p>
+ *
+ * <p>
+ *   As soon as an engine disagrees with the oracle, the fuzzer stops, and
+ *   shrinks the stream of moves that led there (by delta debugging) to as
+ *   few moves as it can that still make them disagree. It prints that
+ *   stream, which is then easy to step through by hand, and exits with
+ *   status 1.
+ * </p>
+ *
+ * <p>
+ *   Usage:
+ * </p>
+ *
+ * <pre>
+ *   java DifferentialFuzzer [--streams N] [--seed FIRST_SEED]
+ *       [--moves N] [--threads N]
+ * </pre>
+ *
+ * <p>
+ *   {@code --moves} is how many moves are in each stream, after the
+ *   solver's moves in a stream that starts with them.
+ * </p>
+ */
+public class DifferentialFuzzer
+{
+  private long streams = 100_000;
+  private long firstSeed = 0;
+  private int movesPerStream = 200;
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * The ways a stream can choose its moves.
+   */
+  private enum Strategy
+  {
+    /**
+     * Every move is random. (See {@link #randomMove}.)
+     */
+    RANDOM,
+
+    /**
+     * Three moves in four are {@link GreedyPolicy}'s, which plays cards to
+     * the foundations as soon as it can, and the rest are random.
+     */
+    GREEDY,
+
+    /**
+     * The same as {@link #GREEDY}, except that one suit (not clubs) is held
+     * back: nothing goes on its foundation until the foundation before it
+     * is full. (See {@link #holdingMove}.) That's how a full foundation
+     * gets offered the next suit's ace, which playing the aces as soon as
+     * they turn up never does.
+     */
+    HOLD_SUIT,
+
+    /**
+     * The moves that {@link KlondikeSolver} finds to win the game (if it
+     * finds them quickly), up to where every card on the tableaus is
+     * face-up, and then the foundations get built one suit at a time.
+     * (See {@link #suitBySuitMove}.) That's the endgame, where foundations
+     * fill up while the next suit's ace is still waiting to go on one. If
+     * the solver doesn't find a win, it's the same as {@link #GREEDY}.
+     */
+    SOLVER
+  }
+
+  /**
+   * The streams take turns at these by seed, so every run has some of
+   * each, and a stream plays the same way whenever its seed comes up.
+   */
+  private static final Strategy[] STRATEGIES = Strategy.values();
+
+  /**
+   * How hard the solver tries to find a winning line for a
+   * {@link Strategy#SOLVER} stream. (A lot of deals take just a few
+   * hundred nodes; there's no need to spend long on the rest.)
+   */
+  private static final long SOLVER_NODE_BUDGET = 20_000;
+  private static final long SOLVER_TIME_BUDGET_MILLIS = 1_000;
+
+  /**
+   * Streams that have made an engine disagree with the oracle before.
+   * Every run plays these first, so they're checked even when the run's
+   * seeds don't happen to walk past the same kind of position.
+   */
+  private static final Regression[] REGRESSIONS = {
+      new Regression(
+          "a full foundation takes the next suit's ace (PackedSolitaireGame)",
+          106,
+          0x0a0, 0x0a6, 0x218, 0x218, 0x308, 0x218, 0x218, 0x30b, 0x218, 0x305,
+          0x305, 0x210, 0x005, 0x020, 0x020, 0x218, 0x30a, 0x218, 0x218, 0x308,
+          0x218, 0x30b, 0x218, 0x301, 0x0a1, 0x0a2, 0x065, 0x0c3, 0x218, 0x0c8,
+          0x0a6, 0x085, 0x086, 0x082, 0x0cb, 0x305, 0x318, 0x0c5, 0x302, 0x302,
+          0x218, 0x218, 0x300, 0x040, 0x218, 0x302, 0x218, 0x301, 0x218, 0x218,
+          0x300, 0x300, 0x060, 0x06a, 0x0a6, 0x022, 0x06b, 0x043, 0x0ab, 0x0c5,
+          0x0cb, 0x046, 0x0c2, 0x0a6, 0x0c3, 0x0cb, 0x218, 0x065, 0x218, 0x305,
+          0x218, 0x218, 0x301, 0x0c1, 0x0c8, 0x308, 0x308, 0x218, 0x302, 0x302,
+          0x082, 0x003, 0x218, 0x218, 0x218, 0x0a1, 0x310, 0x210, 0x30b, 0x218,
+          0x308, 0x040, 0x060, 0x0a8, 0x068, 0x025, 0x02b, 0x028, 0x022, 0x001,
+          0x040, 0x006, 0x0a0, 0x065, 0x025, 0x003, 0x062, 0x020, 0x0a1, 0x00b,
+          0x046, 0x005, 0x0a8, 0x04b, 0x0ab, 0x0a0, 0x003, 0x0c2, 0x0c8, 0x025,
+          0x0a3, 0x0a8
+      )
+  };
+
+  private final AtomicLong nextStream = new AtomicLong();
+  private final AtomicBoolean failed = new AtomicBoolean();
+  private final LongAdder streamsPlayed = new LongAdder();
+  private final LongAdder movesMade = new LongAdder();
+  private final LongAdder legalMoves = new LongAdder();
+
+  public static void main(String[] args) throws InterruptedException
+  {
+    DifferentialFuzzer fuzzer = new DifferentialFuzzer();
+    try
+    {
+      fuzzer.parseArguments(args);
+    }
+    catch (IllegalArgumentException e)
+    {
+      System.err.println(e.getMessage());
+      System.exit(2);
+    }
+    System.exit(fuzzer.run() ? 0 : 1);
+  }
+
+  /**
+   * Read the command-line options into this fuzzer's settings.
+   *
+   * @param args The command-line arguments.
+   *
+   * @throws IllegalArgumentException If an option is unknown, is missing its
+   *   value, or has a value that doesn't make sense.
+   */
+  private void parseArguments(String[] args)
+  {
+    for (int i = 0; i < args.length; i++)
+    {
+      String option = args[i];
+      if (i + 1 == args.length)
+        throw new IllegalArgumentException("Missing a value for " + option);
+      String value = args[++i];
+
+      try
+      {
+        switch (option)
+        {
+          case "--streams":
+            streams = Long.parseLong(value);
+            break;
+          case "--seed":
+            firstSeed = Long.parseLong(value);
+            break;
+          case "--moves":
+            movesPerStream = Integer.parseInt(value);
+            break;
+          case "--threads":
+            threads = Integer.parseInt(value);
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown option " + option);
+        }
+      }
+      catch (NumberFormatException e)
+      {
+        throw new IllegalArgumentException("Not a number for " + option + ": " + value);
+      }
+    }
+
+    if (streams < 0 || threads <= 0 || movesPerStream <= 0)
+      throw new IllegalArgumentException(
+          "--streams can't be negative, and --threads and --moves have to be positive");
+  }
+
+  /**
+   * Play every stream (or until the engines disagree), and then print a
+   * summary.
+   *
+   * @return {@code true} if the engines agreed on every move.
+   */
+  private boolean run() throws InterruptedException
+  {
+    Engines regressionEngines = new Engines();
+    for (Regression regression : REGRESSIONS)
+    {
+      String mismatch = replay(regressionEngines, regression.seed, regression.codes);
+      if (mismatch != null)
+      {
+        System.err.println("Regression: " + regression.description);
+        System.err.println(mismatch);
+        return false;
+      }
+    }
+
+    long start = System.nanoTime();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> workers = new ArrayList<>();
+    for (int i = 0; i < threads; i++)
+    {
+      workers.add(executor.submit(this::playStreams));
+    }
+    executor.shutdown();
+
+    try
+    {
+      for (Future<?> worker : workers)
+      {
+        worker.get();
+      }
+    }
+    catch (ExecutionException e)
+    {
+      throw new IllegalStateException("An engine failed", e.getCause());
+    }
+    long elapsed = System.nanoTime() - start;
+
+    double seconds = elapsed / 1e9;
+    long moves = movesMade.sum();
+    System.err.printf("Streams:        %d (%d threads)%n", streamsPlayed.sum(), threads);
+    System.err.printf("Moves:          %d (%d legal)%n", moves, legalMoves.sum());
+    System.err.printf("Moves/second:   %.0f (%.2f s)%n", moves / seconds, seconds);
+    System.err.println(failed.get() ? "Result:         MISMATCH" : "Result:         ok");
+    return !failed.get();
+  }
+
+  /**
+   * Keep taking the next stream and playing it, until there are none left
+   * or some thread has found a mismatch.
+   */
+  private void playStreams()
+  {
+    Engines engines = new Engines();
+    GreedyPolicy greedy = new GreedyPolicy();
+    KlondikeSolver solver = new KlondikeSolver(SOLVER_NODE_BUDGET, SOLVER_TIME_BUDGET_MILLIS);
+    int[] codes = new int[movesPerStream];
+    int[] choices = new int[SolitaireGame.MAX_LEGAL_MOVES];
+
+    long index;
+    while (!failed.get() && (index = nextStream.getAndIncrement()) < streams)
+    {
+      long seed = firstSeed + index;
+      Strategy strategy = STRATEGIES[Math.floorMod(seed, STRATEGIES.length)];
+      SplittableRandom random = new SplittableRandom(seed);
+      engines.deal(seed);
+      greedy.startGame(engines.game, seed);
+
+      int[] prefix = strategy == Strategy.SOLVER ? revealingLine(solver, seed) : new int[0];
+      int held = 1 + random.nextInt(3);
+      int limit = prefix.length + movesPerStream;
+      if (codes.length < limit)
+        codes = new int[limit];
+
+      String mismatch = engines.check();
+      int length = 0;
+      while (mismatch == null && length < limit)
+      {
+        int code = -1;
+        if (length < prefix.length)
+          code = prefix[length];
+        else if (prefix.length > 0)
+          code = suitBySuitMove(engines.game, random, choices);
+        else if (strategy == Strategy.HOLD_SUIT)
+          code = holdingMove(engines.game, greedy, held, random, choices);
+        else if (strategy != Strategy.RANDOM && random.nextInt(4) != 0)
+          code = greedy.chooseMove(engines.game);
+        if (code < 0)
+          code = randomMove(engines.game, random, choices);
+
+        codes[length++] = code;
+        mismatch = engines.move(code);
+      }
+
+      streamsPlayed.increment();
+      movesMade.add(length);
+      legalMoves.add(engines.legalMovesMade);
+
+      if (mismatch != null && failed.compareAndSet(false, true))
+        report(seed, Arrays.copyOf(codes, length));
+    }
+  }
+
+  /**
+   * Returns the start of the moves that win a game, up to where every card
+   * on the tableaus is face-up, if the solver can find them quickly.
+   *
+   * @param solver The solver to use.
+   * @param seed The seed the game is dealt from.
+   * @return The moves, encoded, or no moves at all if the solver didn't
+   *   find a win.
+   */
+  private static int[] revealingLine(KlondikeSolver solver, long seed)
+  {
+    SolitaireGame game = new SolitaireGame(seed);
+    List<Move> moves = solver.solve(game).getMoves();
+    int[] codes = new int[moves.size()];
+    int length = 0;
+    while (length < codes.length && !game.isFullyRevealed())
+    {
+      codes[length] = moves.get(length).encode();
+      game.tryMove(codes[length++]);
+    }
+    return Arrays.copyOf(codes, length);
+  }
+
+  /**
+   * Returns a move that builds the foundations one suit at a time: a card
+   * onto the first foundation that isn't full, if one can go there, and
+   * otherwise a random legal move that doesn't put a card on any other
+   * foundation (or, if there are none of those, a random move).
+   */
+  private static int suitBySuitMove(SolitaireGame game, SplittableRandom random, int[] choices)
+  {
+    int building = 0;
+    while (building < 4 && game.getFoundation(building).size() == 13)
+    {
+      building++;
+    }
+
+    int count = game.legalMoves(choices);
+    int kept = 0;
+    for (int i = 0; i < count; i++)
+    {
+      int code = choices[i];
+      if (isOntoFoundation(code, building))
+        return code;
+      if (Move.destinationTypeOf(code) != PileType.FOUNDATION)
+        choices[kept++] = code;
+    }
+    return kept > 0 ? choices[random.nextInt(kept)] : randomCode(random);
+  }
+
+  /**
+   * Returns {@link GreedyPolicy}'s move three times in four, and otherwise
+   * a random one, but never one that puts a card on the held-back suit's
+   * foundation before the foundation before it is full.
+   *
+   * @param held The held-back suit's foundation (1 to 3).
+   */
+  private static int holdingMove(
+      SolitaireGame game, GreedyPolicy greedy, int held, SplittableRandom random, int[] choices)
+  {
+    boolean waiting = game.getFoundation(held - 1).size() < 13;
+    int code = random.nextInt(4) != 0 ? greedy.chooseMove(game) : -1;
+    if (code >= 0 && !(waiting && isOntoFoundation(code, held)))
+      return code;
+
+    int count = game.legalMoves(choices);
+    int kept = 0;
+    for (int i = 0; i < count; i++)
+    {
+      if (!(waiting && isOntoFoundation(choices[i], held)))
+        choices[kept++] = choices[i];
+    }
+    return kept > 0 && random.nextBoolean() ? choices[random.nextInt(kept)] : randomCode(random);
+  }
+
+  private static boolean isOntoFoundation(int code, int foundation)
+  {
+    return Move.destinationTypeOf(code) == PileType.FOUNDATION
+        && Move.destinationIDOf(code) == foundation;
+  }
+
+  /**
+   * Returns a random move: half the time one of the legal moves (if there
+   * are any), and otherwise any move at all between piles that exist.
+   */
+  private static int randomMove(SolitaireGame game, SplittableRandom random, int[] choices)
+  {
+    int count = game.legalMoves(choices);
+    if (count > 0 && random.nextBoolean())
+      return choices[random.nextInt(count)];
+    return randomCode(random);
+  }
+
+  /**
+   * Returns a move between any two piles that exist. (It's probably
+   * illegal.)
+   */
+  private static int randomCode(SplittableRandom random)
+  {
+    PileType startType = PileType.values()[random.nextInt(4)];
+    PileType endType = PileType.values()[random.nextInt(4)];
+    return Move.encode(
+        startType, randomPileID(random, startType),
+        endType, randomPileID(random, endType));
+  }
+
+  private static int randomPileID(SplittableRandom random, PileType type)
+  {
+    switch (type)
+    {
+      case TABLEAU:
+        return random.nextInt(7);
+      case FOUNDATION:
+        return random.nextInt(4);
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Shrink a stream of moves that makes the engines disagree, and print it.
+   *
+   * @param seed The seed the game was dealt from.
+   * @param codes The moves, up to and including the one where the engines
+   *   disagreed.
+   */
+  private static void report(long seed, int[] codes)
+  {
+    Engines engines = new Engines();
+    int[] shrunk = shrink(engines, seed, codes);
+
+    StringBuilder report = new StringBuilder();
+    report.append("The engines disagree with the oracle on the game dealt from seed ").append(seed)
+        .append(", after ").append(codes.length).append(" moves.\n")
+        .append("Shrunk to ").append(shrunk.length).append(" moves:\n");
+    BaselineSolitaireGame oracle = new BaselineSolitaireGame(seed);
+    for (int code : shrunk)
+    {
+      report.append("  ").append(Move.decode(code)).append("  (");
+      try
+      {
+        oracle.makeMove(Move.decode(code));
+        report.append("legal");
+      }
+      catch (BaselineSolitaireGame.IllegalMove e)
+      {
+        report.append(e.getMessage());
+      }
+      report.append(")\n");
+    }
+    report.append(replay(engines, seed, shrunk)).append('\n');
+    System.out.print(report);
+    System.out.flush();
+  }
+
+  /**
+   * Find a shorter stream of moves that still makes the engines disagree,
+   * using delta debugging (ddmin).
+   *
+   * <p>
+   *   It keeps cutting the stream into pieces and trying it without each
+   *   piece, keeping any cut that still fails, and cutting into smaller
+   *   pieces when none does, until no single move can be left out.
+   * </p>
+   *
+   * @param engines The engines to replay the moves with.
+   * @param seed The seed the game was dealt from.
+   * @param codes A stream of moves that makes the engines disagree.
+   * @return A stream with no moves that aren't needed.
+   */
+  private static int[] shrink(Engines engines, long seed, int[] codes)
+  {
+    int pieces = 2;
+    while (codes.length >= 2)
+    {
+      int pieceLength = (codes.length + pieces - 1) / pieces;
+      boolean cut = false;
+      for (int from = 0; from < codes.length; from += pieceLength)
+      {
+        int to = Math.min(codes.length, from + pieceLength);
+        int[] rest = new int[codes.length - (to - from)];
+        System.arraycopy(codes, 0, rest, 0, from);
+        System.arraycopy(codes, to, rest, from, codes.length - to);
+
+        if (replay(engines, seed, rest) != null)
+        {
+          codes = rest;
+          pieces = Math.max(pieces - 1, 2);
+          cut = true;
+          break;
+        }
+      }
+
+      if (!cut)
+      {
+        if (pieces >= codes.length)
+          break;
+        pieces = Math.min(pieces * 2, codes.length);
+      }
+    }
+    return codes;
+  }
+
+  /**
+   * Play a stream of moves from a fresh deal.
+   *
+   * @return A description of the first place the engines disagree, or
+   *   {@code null} if they never do.
+   */
+  private static String replay(Engines engines, long seed, int[] codes)
+  {
+    engines.deal(seed);
+    String mismatch = engines.check();
+    for (int i = 0; mismatch == null && i < codes.length; i++)
+    {
+      mismatch = engines.move(codes[i]);
+    }
+    return mismatch;
+  }
+
+  /**
+   * A stream of moves that once made an engine disagree with the oracle.
+   */
+  private static class Regression
+  {
+    private final String description;
+    private final long seed;
+    private final int[] codes;
+
+    /**
+     * @param description What the engine got wrong.
+     * @param seed The seed the game is dealt from.
+     * @param codes The moves, encoded, up to the one where the engine
+     *   disagreed (or, if it disagreed on a move it didn't make, the one
+     *   that led to the position where it did).
+     */
+    Regression(String description, long seed, int... codes)
+    {
+      this.description = description;
+      this.seed = seed;
+      this.codes = codes;
+    }
+  }
+
+  /**
+   * One game in each of the engines, and in the oracle, played side by
+   * side.
+   */
+  private static class Engines
+  {
+    /**
+     * Every move between two piles that exist.
+     */
+    private static final Move[] EVERY_MOVE;
+
+    private static final int DRAW = Move.encode(PileType.STOCK, 0, PileType.WASTE, 0);
+
+    static
+    {
+      List<Move> moves = new ArrayList<>();
+      for (PileType startType : PileType.values())
+      {
+        for (int startID = 0; startID < pileCount(startType); startID++)
+        {
+          for (PileType endType : PileType.values())
+          {
+            for (int endID = 0; endID < pileCount(endType); endID++)
+            {
+              moves.add(new Move(startType, startID, endType, endID));
+            }
+          }
+        }
+      }
+      EVERY_MOVE = moves.toArray(new Move[0]);
+    }
+
+    private static int pileCount(PileType type)
+    {
+      switch (type)
+      {
+        case TABLEAU:
+          return 7;
+        case FOUNDATION:
+          return 4;
+        default:
+          return 1;
+      }
+    }
+
+    /**
+     * Returns whether a move is between the stock and the waste (in either
+     * direction, or from one of them to itself), which always means
+     * drawing a card.
+     */
+    private static boolean isDraw(Move move)
+    {
+      return move.getStartType().ordinal() >= PileType.STOCK.ordinal()
+          && move.getDestinationType().ordinal() >= PileType.STOCK.ordinal();
+    }
+
+    /**
+     * Which game of {@link #batch} is the one being played, and which one
+     * holds a copy of it while {@link #checkEveryMove()} and
+     * {@link #checkAutoComplete()} try moves. The others are dealt from
+     * other seeds, and get the same moves, so that a move made in the
+     * wrong game shows up.
+     */
+    private static final int LANE = 1;
+    private static final int SAVED = 3;
+
+    private BaselineSolitaireGame oracle;
+    private SolitaireGame game;
+    private PackedSolitaireGame packed;
+    private final BatchEngine batch = new BatchEngine(4);
+    private final int[] batchMoves = {0, 0, 0, -1};
+    private final MoveStatus[] batchStatuses = new MoveStatus[4];
+
+    /**
+     * Which moves (indexed by their codes) are legal from the position
+     * {@link #checkEveryMove()} is checking, and which ones
+     * {@code SolitaireGame} listed.
+     */
+    private final boolean[] legal = new boolean[1 << 10];
+    private final boolean[] listed = new boolean[1 << 10];
+    private final int[] legalMoves = new int[SolitaireGame.MAX_LEGAL_MOVES];
+
+    /**
+     * How many of the moves since the deal were legal.
+     */
+    private int legalMovesMade;
+
+    /**
+     * Deal a new game in every engine.
+     */
+    void deal(long seed)
+    {
+      oracle = new BaselineSolitaireGame(seed);
+      game = new SolitaireGame(seed);
+      packed = new PackedSolitaireGame(seed);
+      batch.deal(0, ~seed);
+      batch.deal(LANE, seed);
+      batch.deal(2, seed + 1);
+      legalMovesMade = 0;
+    }
+
+    /**
+     * Make a move in every engine.
+     *
+     * @return A description of how the engines disagree with the oracle,
+     *   or {@code null} if they agree on the move and everything about the
+     *   position after it. (See {@link #check()}.)
+     */
+    String move(int code)
+    {
+      Move move = Move.decode(code);
+      String expected = oracleMove(move);
+      Arrays.fill(batchMoves, 0, SAVED, code);
+      batch.makeMoves(batchMoves, batchStatuses);
+      String mismatch = statusMismatch(
+          move, expected, game.tryMove(code), packed.tryMove(move), batchStatuses[LANE]);
+      if (mismatch != null)
+        return mismatch;
+
+      if (expected == null)
+        legalMovesMade++;
+      return check();
+    }
+
+    /**
+     * Check everything about the current position: that every engine is in
+     * the same position as the oracle, that they agree with it about every
+     * move that could be made from here, and that {@code autoComplete}
+     * agrees with it too (if it can run from here).
+     *
+     * @return A description of how the engines disagree with the oracle,
+     *   or {@code null} if they agree.
+     */
+    String check()
+    {
+      String mismatch = compare();
+      if (mismatch == null)
+        mismatch = checkEveryMove();
+      if (mismatch == null)
+        mismatch = checkAutoComplete();
+      return mismatch;
+    }
+
+    /**
+     * Make a move in the oracle, if it's legal.
+     *
+     * @return {@code null} if the move was legal, or the oracle's reason
+     *   why it isn't.
+     */
+    private String oracleMove(Move move)
+    {
+      try
+      {
+        oracle.makeMove(move);
+        return null;
+      }
+      catch (BaselineSolitaireGame.IllegalMove e)
+      {
+        return e.getMessage();
+      }
+    }
+
+    /**
+     * Check that every engine gave a move the same status as the oracle.
+     * (A legal move has no message, so this checks whether it was legal
+     * and, if it wasn't, why not.)
+     *
+     * @param expected The oracle's reason why the move is illegal, or
+     *   {@code null} if it's legal.
+     * @return A description of how they disagree, or {@code null} if they
+     *   agree.
+     */
+    private static String statusMismatch(
+        Move move, String expected,
+        MoveStatus gameStatus, MoveStatus packedStatus, MoveStatus batchStatus)
+    {
+      if (Objects.equals(gameStatus.getMessage(), expected)
+          && Objects.equals(packedStatus.getMessage(), expected)
+          && Objects.equals(batchStatus.getMessage(), expected))
+        return null;
+
+      return String.format(
+          "%s: the oracle says %s, SolitaireGame says %s, PackedSolitaireGame says %s, "
+              + "BatchEngine says %s",
+          move, expected == null ? "LEGAL" : '"' + expected + '"',
+          gameStatus, packedStatus, batchStatus);
+    }
+
+    /**
+     * Try every move between two piles from the current position, in every
+     * engine, and check that they all agree about which ones are legal.
+     *
+     * <p>
+     *   {@link BatchEngine#checkMove(int, int)} has to agree with
+     *   {@link BatchEngine#tryMove(int, int)} too. After each legal move,
+     *   {@code SolitaireGame} undoes it with
+     *   {@link SolitaireGame#unmakeMove()}, and has to end up where it
+     *   started; the others are put back from copies. Then
+     *   {@link SolitaireGame#legalMoves(int[])} and
+     *   {@link BatchEngine#legalMoves(int, int[])} have to list exactly the
+     *   legal moves, once each. (They only spell drawing a card as a move
+     *   from the stock to the waste, though any move between the stock and
+     *   the waste draws one.)
+     * </p>
+     *
+     * @return A description of how the engines disagree with the oracle,
+     *   or {@code null} if they agree.
+     */
+    private String checkEveryMove()
+    {
+      BaselineSolitaireGame oracleBefore = new BaselineSolitaireGame(oracle);
+      PackedSolitaireGame packedBefore = new PackedSolitaireGame(packed);
+      batch.copyGame(LANE, SAVED);
+      long hash = game.getPositionHash();
+
+      Arrays.fill(legal, false);
+      for (Move move : EVERY_MOVE)
+      {
+        int code = move.encode();
+        MoveStatus checked = batch.checkMove(LANE, code);
+        MoveStatus batchStatus = batch.tryMove(LANE, code);
+        if (checked != batchStatus)
+          return String.format(
+              "Trying every move, %s: BatchEngine's checkMove says %s, but tryMove says %s",
+              move, checked, batchStatus);
+
+        String expected = oracleMove(move);
+        String mismatch = statusMismatch(
+            move, expected, game.tryMove(code), packed.tryMove(move), batchStatus);
+        if (mismatch != null)
+          return "Trying every move, " + mismatch;
+
+        if (expected == null)
+        {
+          legal[code] = true;
+          oracle = new BaselineSolitaireGame(oracleBefore);
+          packed = new PackedSolitaireGame(packedBefore);
+          batch.copyGame(SAVED, LANE);
+          game.unmakeMove();
+          if (game.getPositionHash() != hash)
+            return "Undoing " + move + " didn't put SolitaireGame back where it was";
+        }
+      }
+
+      String mismatch = listingMismatch("SolitaireGame", game.legalMoves(legalMoves));
+      if (mismatch == null)
+        mismatch = listingMismatch("BatchEngine", batch.legalMoves(LANE, legalMoves));
+      if (mismatch != null)
+        return mismatch;
+
+      // None of that should have changed anything.
+      mismatch = compare();
+      return mismatch == null ? null : "After trying every move, " + mismatch;
+    }
+
+    /**
+     * Check that the moves an engine listed in {@link #legalMoves} are
+     * exactly the ones {@link #checkEveryMove()} found to be legal, once
+     * each.
+     *
+     * @param engine The engine's name, for the description.
+     * @param count How many moves it listed.
+     * @return A description of how they differ, or {@code null} if they
+     *   don't.
+     */
+    private String listingMismatch(String engine, int count)
+    {
+      Arrays.fill(listed, false);
+      for (int i = 0; i < count; i++)
+      {
+        int code = legalMoves[i];
+        if (!legal[code])
+          return engine + " lists " + Move.decode(code) + " as legal, but it isn't";
+        if (listed[code])
+          return engine + " lists " + Move.decode(code) + " twice";
+        listed[code] = true;
+      }
+      for (Move move : EVERY_MOVE)
+      {
+        int code = move.encode();
+        if (legal[code] && !listed[code] && (code == DRAW || !isDraw(move)))
+          return engine + " doesn't list " + move + ", which is legal";
+      }
+      return null;
+    }
+
+    /**
+     * If {@code SolitaireGame} can auto-complete the game from here, check
+     * that every move it makes is legal, that it finishes the game, and
+     * that undoing all of them puts it back where it was.
+     *
+     * <p>
+     *   The moves come from the game's {@link GameChange}s, and they're
+     *   made in the oracle and the other engines too, so that the
+     *   finished games can be compared. Afterwards, everything is put back
+     *   the way it was.
+     * </p>
+     *
+     * @return A description of how the engines disagree with the oracle,
+     *   or {@code null} if they agree (or the game can't be auto-completed).
+     */
+    private String checkAutoComplete()
+    {
+      if (!game.canAutoComplete())
+        return null;
+
+      BaselineSolitaireGame oracleBefore = new BaselineSolitaireGame(oracle);
+      PackedSolitaireGame packedBefore = new PackedSolitaireGame(packed);
+      batch.copyGame(LANE, SAVED);
+      long hash = game.getPositionHash();
+
+      List<GameChange> changes = new ArrayList<>();
+      game.setListener(changes::addAll);
+      int made = game.autoComplete();
+      game.setListener(null);
+
+      // Every card is face-up already, so nothing gets flipped; each change
+      // is one move (or turning the waste over, which is a draw).
+      for (GameChange change : changes)
+      {
+        if (change.getKind() != GameChange.Kind.CARDS_MOVED
+            && change.getKind() != GameChange.Kind.STOCK_RECYCLED)
+          return "autoComplete made a change that isn't a move: " + change;
+
+        Move move = Move.decode(Move.encode(
+            change.getStartType(), change.getStartID(),
+            change.getDestinationType(), change.getDestinationID()));
+        String expected = oracleMove(move);
+        MoveStatus packedStatus = packed.tryMove(move);
+        MoveStatus batchStatus = batch.tryMove(LANE, move.encode());
+        if (expected != null || !packedStatus.isLegal() || !batchStatus.isLegal())
+          return String.format(
+              "autoComplete made %s (%s), but the oracle says \"%s\", "
+                  + "PackedSolitaireGame says %s, and BatchEngine says %s",
+              move, change.getKind(), expected, packedStatus, batchStatus);
+      }
+
+      if (changes.size() != made)
+        return "autoComplete says it made " + made + " moves, but it made " + changes.size();
+      if (!game.isComplete())
+        return "autoComplete didn't finish the game";
+      String mismatch = compare();
+      if (mismatch != null)
+        return "After autoComplete, " + mismatch;
+
+      for (int i = 0; i < made; i++)
+      {
+        game.unmakeMove();
+      }
+      oracle = oracleBefore;
+      packed = packedBefore;
+      batch.copyGame(SAVED, LANE);
+      if (game.getPositionHash() != hash)
+        return "Undoing autoComplete didn't put SolitaireGame back where it was";
+      mismatch = compare();
+      return mismatch == null ? null : "After undoing autoComplete, " + mismatch;
+    }
+
+    /**
+     * Check that every engine is in the same position as the oracle.
+     *
+     * @return A description of how the engines disagree with the oracle,
+     *   or {@code null} if they agree.
+     */
+    String compare()
+    {
+      for (int t = 0; t < 7; t++)
+      {
+        Stack<BaselineSolitaireGame.PlainCard> expected = oracle.getTableau(t);
+        PileView tableau = game.getTableau(t);
+        if (tableau.size() != expected.size() || packed.getTableauSize(t) != expected.size()
+            || batch.getTableauSize(LANE, t) != expected.size())
+          return "Tableau " + t + " has a different size";
+
+        for (int i = 0; i < expected.size(); i++)
+        {
+          BaselineSolitaireGame.PlainCard card = expected.get(i);
+          if (tableau.get(i).getId() != card.getId() || packed.getTableauCard(t, i) != card.getId()
+              || batch.getTableauCard(LANE, t, i) != card.getId())
+            return "Tableau " + t + " has a different card at index " + i;
+          if (tableau.isFaceUp(i) != card.isShowing()
+              || (i >= packed.getFaceDownCount(t)) != card.isShowing()
+              || (i >= batch.getFaceDownCount(LANE, t)) != card.isShowing())
+            return "Tableau " + t + " has the card at index " + i + " the other way up";
+        }
+      }
+
+      for (int f = 0; f < 4; f++)
+      {
+        Stack<BaselineSolitaireGame.PlainCard> expected = oracle.getFoundation(f);
+        PileView foundation = game.getFoundation(f);
+        if (foundation.size() != expected.size() || packed.getFoundationRank(f) != expected.size()
+            || batch.getFoundationRank(LANE, f) != expected.size())
+          return "Foundation " + f + " has a different size";
+        if (!expected.isEmpty() && foundation.peek().getId() != expected.peek().getId())
+          return "Foundation " + f + " has a different card on top";
+      }
+
+      // The oracle, PackedSolitaireGame and BatchEngine count the stock and
+      // the waste down from the top, but a PileView counts up from the bottom.
+      PileView stock = game.getStock();
+      if (stock.size() != oracle.getStock().size()
+          || packed.getStockSize() != oracle.getStock().size()
+          || batch.getStockSize(LANE) != oracle.getStock().size())
+        return "The stock has a different size";
+      int i = 0;
+      for (BaselineSolitaireGame.PlainCard card : oracle.getStock())
+      {
+        if (stock.get(stock.size() - 1 - i).getId() != card.getId()
+            || packed.getStockCard(i) != card.getId()
+            || batch.getStockCard(LANE, i) != card.getId())
+          return "The stock has a different card at index " + i;
+        i++;
+      }
+
+      PileView waste = game.getWaste();
+      if (waste.size() != oracle.getWaste().size()
+          || packed.getWasteSize() != oracle.getWaste().size()
+          || batch.getWasteSize(LANE) != oracle.getWaste().size())
+        return "The waste has a different size";
+      i = 0;
+      for (BaselineSolitaireGame.PlainCard card : oracle.getWaste())
+      {
+        if (waste.get(waste.size() - 1 - i).getId() != card.getId()
+            || packed.getWasteCard(i) != card.getId()
+            || batch.getWasteCard(LANE, i) != card.getId())
+          return "The waste has a different card at index " + i;
+        i++;
+      }
+
+      boolean won = oracle.hasWon();
+      if (game.hasWon() != won || packed.hasWon() != won || batch.hasWon(LANE) != won)
+        return "The engines disagree with the oracle about whether the game is won";
+      return null;
+    }
+  }
+}
@@ -0,0 +1,205 @@
+/**
+ * One change to the piles of a {@link SolitaireGame}, as reported to a
+ * {@link GameListener}.
+ *
+ * <p>
+ *   Each change names the pile it took cards from and the pile it put
+ *   them on, the same way a {@link Move} does (for a change that flips a
+ *   card, they're the same tableau). Between them, the changes in a batch
+ *   say exactly which piles a move touched and how, so whoever is
+ *   listening doesn't have to look through the whole game to find out.
+ * </p>
+ *
+ * <p>
+ *   A change is just a few numbers, packed into one {@code int} the same
+ *   way {@link Move#encode(PileType, int, PileType, int)} packs a move;
+ *   this class is only a wrapper around that.
+ * </p>
+ */
+final class GameChange
+{
+  /**
+   * The kinds of change.
+   */
+  enum Kind
+  {
+    /**
+     * Some cards were taken off the top of one pile and put on top of
+     * another, in the same order. (That covers drawing a card from the
+     * stock, and putting it back, too; it gets flipped on the way.)
+     */
+    CARDS_MOVED,
+
+    /**
+     * The top card of a tableau was flipped face-up.
+     */
+    CARD_REVEALED,
+
+    /**
+     * The top card of a tableau was flipped face-down, because the move
+     * that revealed it was undone.
+     */
+    CARD_HIDDEN,
+
+    /**
+     * The whole waste was turned over to make a new stock, or (if the
+     * move was undone) the whole stock was turned back over into the
+     * waste.
+     */
+    STOCK_RECYCLED
+  }
+
+  /**
+   * All of the kinds, indexed by their ordinals.
+   */
+  private static final Kind[] KINDS = Kind.values();
+
+  /**
+   * Where each part of a packed change goes: the start and destination
+   * piles (as a move code) in the low bits, then how many cards there
+   * were, then the card (for a flip), then the kind.
+   */
+  private static final int MOVE_MASK = 0x3FF;
+  private static final int COUNT_SHIFT = 10;
+  private static final int CARD_SHIFT = 15;
+  private static final int KIND_SHIFT = 21;
+
+  private final int code;
+
+  private GameChange(Kind kind, int moveCode, int count, int cardId)
+  {
+    this.code = kind.ordinal() << KIND_SHIFT
+        | cardId << CARD_SHIFT
+        | count << COUNT_SHIFT
+        | moveCode;
+  }
+
+  /**
+   * Returns a change that moved cards from one pile to another.
+   *
+   * @param moveCode The start and destination piles, encoded by
+   *   {@link Move#encode(PileType, int, PileType, int)}.
+   * @param count How many cards were moved.
+   */
+  static GameChange moved(int moveCode, int count)
+  {
+    return new GameChange(Kind.CARDS_MOVED, moveCode, count, 0);
+  }
+
+  /**
+   * Returns a change that flipped the top card of a tableau.
+   *
+   * @param tableau The tableau's ID number.
+   * @param card The card that was flipped.
+   * @param faceUp {@code true} if it was flipped face-up, and
+   *   {@code false} if it was flipped face-down.
+   */
+  static GameChange flipped(int tableau, Card card, boolean faceUp)
+  {
+    return new GameChange(
+        faceUp ? Kind.CARD_REVEALED : Kind.CARD_HIDDEN,
+        Move.encode(PileType.TABLEAU, tableau, PileType.TABLEAU, tableau),
+        1,
+        card.getId());
+  }
+
+  /**
+   * Returns a change that turned the waste over into the stock.
+   *
+   * @param count How many cards were turned over.
+   * @param undone {@code true} if this is undoing that, so that the stock
+   *   was turned back over into the waste.
+   */
+  static GameChange recycled(int count, boolean undone)
+  {
+    int moveCode = undone ?
+        Move.encode(PileType.STOCK, 0, PileType.WASTE, 0) :
+        Move.encode(PileType.WASTE, 0, PileType.STOCK, 0);
+    return new GameChange(Kind.STOCK_RECYCLED, moveCode, count, 0);
+  }
+
+  /**
+   * Returns what kind of change this is.
+   */
+  Kind getKind()
+  {
+    return KINDS[code >>> KIND_SHIFT];
+  }
+
+  /**
+   * Returns the type of pile that cards were taken from (or flipped on).
+   */
+  PileType getStartType()
+  {
+    return Move.startTypeOf(code & MOVE_MASK);
+  }
+
+  /**
+   * Returns the ID number of the pile that cards were taken from (or
+   * flipped on).
+   */
+  int getStartID()
+  {
+    return Move.startIDOf(code & MOVE_MASK);
+  }
+
+  /**
+   * Returns the type of pile that cards were put on (or flipped on).
+   */
+  PileType getDestinationType()
+  {
+    return Move.destinationTypeOf(code & MOVE_MASK);
+  }
+
+  /**
+   * Returns the ID number of the pile that cards were put on (or flipped
+   * on).
+   */
+  int getDestinationID()
+  {
+    return Move.destinationIDOf(code & MOVE_MASK);
+  }
+
+  /**
+   * Returns how many cards were moved, turned over or flipped.
+   */
+  int getCount()
+  {
+    return code >>> COUNT_SHIFT & 0b11111;
+  }
+
+  /**
+   * Returns the card that was flipped, for a {@link Kind#CARD_REVEALED}
+   * or {@link Kind#CARD_HIDDEN} change.
+   *
+   * @throws IllegalStateException If this change didn't flip a card.
+   */
+  Card getCard()
+  {
+    Kind kind = getKind();
+    if (kind != Kind.CARD_REVEALED && kind != Kind.CARD_HIDDEN)
+      throw new IllegalStateException(kind + " doesn't flip a card");
+
+    return Card.of(code >>> CARD_SHIFT & 0b111111);
+  }
+
+  /**
+   * Returns the packed form of this change.
+   */
+  int encode()
+  {
+    return code;
+  }
+
+  @Override
+  public String toString()
+  {
+    Kind kind = getKind();
+    if (kind == Kind.CARD_REVEALED || kind == Kind.CARD_HIDDEN)
+      return String.format("%s %s on TABLEAU %d", kind, getCard(), getStartID());
+
+    return String.format(
+        "%s %d: %s %d -> %s %d",
+        kind, getCount(), getStartType(), getStartID(), getDestinationType(), getDestinationID());
+  }
+}
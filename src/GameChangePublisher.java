@@ -0,0 +1,72 @@
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * This class hands a game's changes on to any number of subscribers, each
+ * on its own time, as a {@link Flow.Publisher}.
+ *
+ * <p>
+ *   Set it as a {@link SolitaireGame}'s listener, and every batch of
+ *   changes becomes one item for the subscribers. (So a subscriber asking
+ *   for one more item is asking for one more move's worth of changes.)
+ *   The batches are delivered on the publisher's executor, not the thread
+ *   making the moves, so a slow subscriber, like one writing a game
+ *   record to disk, doesn't slow down the game.
+ * </p>
+ *
+ * <p>
+ *   Each subscriber has a buffer of batches that it hasn't asked for yet.
+ *   If one of them falls so far behind that its buffer fills up, the next
+ *   move waits until there's room again, rather than losing any changes.
+ * </p>
+ */
+class GameChangePublisher implements GameListener, Flow.Publisher<List<GameChange>>, AutoCloseable
+{
+  private final SubmissionPublisher<List<GameChange>> publisher;
+
+  /**
+   * Create a publisher that delivers batches on the common fork-join pool,
+   * with the default buffer size.
+   */
+  GameChangePublisher()
+  {
+    this(ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+  }
+
+  /**
+   * Create a publisher.
+   *
+   * @param executor Where subscribers get called.
+   * @param bufferSize How many batches each subscriber can fall behind
+   *   before moves have to wait for it.
+   */
+  GameChangePublisher(Executor executor, int bufferSize)
+  {
+    publisher = new SubmissionPublisher<>(executor, bufferSize);
+  }
+
+  @Override
+  public void gameChanged(List<GameChange> changes)
+  {
+    publisher.submit(changes);
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super List<GameChange>> subscriber)
+  {
+    publisher.subscribe(subscriber);
+  }
+
+  /**
+   * Stop publishing. Each subscriber gets the batches that are already in
+   * its buffer, and then {@code onComplete}.
+   */
+  @Override
+  public void close()
+  {
+    publisher.close();
+  }
+}
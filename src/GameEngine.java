@@ -0,0 +1,125 @@
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class runs a {@link SolitaireGame} on a thread of its own, so that
+ * a user interface never has to wait for it.
+ *
+ * <p>
+ *   Only the engine's thread ever touches the game. Other threads ask for
+ *   moves with {@link #submit(Move)}, which just puts the move in a queue
+ *   and returns straight away; the engine makes the moves in order. (If
+ *   every card is face up after a move, it finishes the game off too, with
+ *   {@link SolitaireGame#autoComplete()}.)
+ * </p>
+ *
+ * <p>
+ *   The engine listens to the game's {@link GameChange}s. After every
+ *   batch of them, it publishes a new {@link GameSnapshot}, which any
+ *   thread can read with {@link #snapshot()} without locking anything, and
+ *   then passes the batch on to whoever has subscribed to
+ *   {@link #changes()}.
+ * </p>
+ */
+class GameEngine
+{
+  private final SolitaireGame game;
+
+  /**
+   * The engine's thread, and its queue of moves.
+   */
+  private final ExecutorService thread = Executors.newSingleThreadExecutor(runnable ->
+  {
+    Thread engine = new Thread(runnable, "GameEngine");
+    engine.setDaemon(true);
+    return engine;
+  });
+
+  private final AtomicReference<GameSnapshot> snapshot;
+  private final GameChangePublisher changes = new GameChangePublisher();
+
+  /**
+   * Create an engine to run a game.
+   *
+   * @param game The game. From now on, nothing else should touch it (or
+   *   set its listener).
+   */
+  GameEngine(SolitaireGame game)
+  {
+    this.game = game;
+    this.snapshot = new AtomicReference<>(GameSnapshot.of(game));
+    game.setListener(this::gameChanged);
+  }
+
+  /**
+   * Returns the snapshot of the game after the last move that the engine
+   * has made.
+   */
+  GameSnapshot snapshot()
+  {
+    return snapshot.get();
+  }
+
+  /**
+   * Returns the changes the engine makes to the game, one batch at a time.
+   *
+   * <p>
+   *   By the time a subscriber gets a batch, {@link #snapshot()} already
+   *   includes it. (See {@link GameChangePublisher} for what happens when
+   *   a subscriber falls behind.)
+   * </p>
+   */
+  Flow.Publisher<List<GameChange>> changes()
+  {
+    return changes;
+  }
+
+  /**
+   * Ask the engine to make a move. This returns without waiting for it.
+   *
+   * <p>
+   *   If the move turns out to be illegal, the engine ignores it (and
+   *   doesn't publish anything).
+   * </p>
+   *
+   * @param move The move.
+   */
+  void submit(Move move)
+  {
+    thread.execute(() -> makeMove(move));
+  }
+
+  /**
+   * Stop the engine, once it's made the moves that are already in its
+   * queue. Then the subscribers to {@link #changes()} are told that there
+   * won't be any more. (This doesn't wait for any of that.)
+   */
+  void shutdown()
+  {
+    // The publisher is closed on the engine's thread, so that it can't
+    // be closed in the middle of a move.
+    thread.execute(changes::close);
+    thread.shutdown();
+  }
+
+  /**
+   * Make one move, on the engine's thread.
+   */
+  private void makeMove(Move move)
+  {
+    if (game.tryMove(move) == MoveStatus.LEGAL && game.canAutoComplete())
+      game.autoComplete();
+  }
+
+  /**
+   * Publish a batch of changes, on the engine's thread.
+   */
+  private void gameChanged(List<GameChange> batch)
+  {
+    snapshot.set(snapshot.get().after(game, batch));
+    changes.gameChanged(batch);
+  }
+}
@@ -1,5 +1,4 @@
-import java.util.*;
-import java.util.stream.Collectors;
+import java.nio.charset.StandardCharsets;
 
 /**
  * This class is in charge of stringifying out the state of the game.
@@ -7,181 +6,292 @@ import java.util.stream.Collectors;
  * <p>
  *   It isn't meant to be instantiated; it just provides some static methods.
  * </p>
+ *
+ * <p>
+ *   Every piece of the picture that can be worked out ahead of time (each
+ *   card, face up and face down, and every fixed line and border) is
+ *   built once, when the class is loaded, as a {@link Fragment}. Drawing a
+ *   game just walks the piles by index and hands those fragments to a
+ *   {@link FragmentSink}, which either appends their text to one
+ *   {@code StringBuilder} or (see {@link Utf8BoardWriter}) copies their
+ *   UTF-8 bytes into a buffer. So apart from the finished string, drawing
+ *   doesn't allocate anything.
+ * </p>
  */
 class GameFormatter
 {
   /**
-   * A mapping between the numbers of the foundation piles (0 through 3,
-   * inclusive) and the suit that corresponds to those piles.
-   */
-  private static final Map<Integer, Suit> suitsOfFoundations;
-
-  static {
-    suitsOfFoundations = new HashMap<>();
-    suitsOfFoundations.put(0, Suit.CLUBS);
-    suitsOfFoundations.put(1, Suit.DIAMONDS);
-    suitsOfFoundations.put(2, Suit.SPADES);
-    suitsOfFoundations.put(3, Suit.HEARTS);
-  }
-
-  /**
-   * Returns a string showing the entire solitaire game--all the cards
-   * in all the piles--as it will be displayed to the user.
-   *
-   * @param game The solitaire game to stringify
-   *
-   * @return a pretty, human-readable string showing the state of the game.
-   *   (This string will contain a trailing newline.)
+   * One piece of the picture, as text and as UTF-8.
    */
-  static String stringOfGame(SolitaireGame game)
+  static final class Fragment
   {
-    List<Stack<Card>> foundations = new ArrayList<>();
-    for (int i = 0; i < 4; i++)
-    {
-      foundations.add(game.getFoundation(i));
-    }
+    final String text;
+    final byte[] utf8;
 
-    List<Stack<Card>> tableaus = new ArrayList<>();
-    for (int i = 0; i < 7; i++)
+    private Fragment(String text)
     {
-      tableaus.add(game.getTableau(i));
+      this.text = text;
+      this.utf8 = text.getBytes(StandardCharsets.UTF_8);
     }
+  }
 
-    Queue<Card> stock = game.getStock();
+  /**
+   * Something that a game can be drawn onto, one fragment at a time.
+   */
+  interface FragmentSink
+  {
+    /**
+     * Add a fragment to the end of the picture.
+     *
+     * @param fragment The fragment.
+     */
+    void append(Fragment fragment);
+  }
 
-    Deque<Card> waste = game.getWaste();
+  /**
+   * The suit that goes with each of the foundation piles (0 through 3,
+   * inclusive).
+   */
+  private static final Suit[] SUITS_OF_FOUNDATIONS = {
+      Suit.CLUBS, Suit.DIAMONDS, Suit.SPADES, Suit.HEARTS};
 
+  /**
+   * How each card is drawn, indexed by whether it's face up (0 for face
+   * down, 1 for face up) and then by its ID. Every one is exactly five
+   * characters long.
+   */
+  private static final Fragment[][] CARD_GLYPHS = new Fragment[2][Card.NUMBER_OF_CARDS];
 
-    StringBuilder everything = new StringBuilder();
+  /**
+   * How each foundation is drawn when it's empty.
+   */
+  private static final Fragment[] EMPTY_FOUNDATION_GLYPHS = new Fragment[4];
 
-    // Print out the foundations in their own box on the top.
+  private static final Fragment EMPTY_PILE_GLYPH = new Fragment(" --- ");
 
-    String fourteenSpaces = "              ";
+  // Five spaces
+  private static final Fragment BLANK_GLYPH = new Fragment("     ");
 
-    String foundationsString =
-        "║" + fourteenSpaces + "  C     D     S     H  " + fourteenSpaces + "║\n"
-        + "║" + fourteenSpaces + stringOfFoundations(foundations) + fourteenSpaces + "║\n";
+  // Forty-one spaces
+  private static final Fragment BLANK_TABLEAU_LINE =
+      new Fragment("                                         ");
 
-    everything.append("╔═══════════════════════════════════════════════════╗\n");
+  private static final Fragment SPACE = new Fragment(" ");
 
-    everything.append(foundationsString);
+  // Fourteen spaces
+  private static final String FOUNDATION_MARGIN = "              ";
 
-    everything.append("╠═══════╦═══════════════════════════════════════════╣\n");
+  private static final Fragment TOP =
+      new Fragment(
+          "╔═══════════════════════════════════════════════════╗\n"
+          + "║" + FOUNDATION_MARGIN + "  C     D     S     H  " + FOUNDATION_MARGIN + "║\n"
+          + "║" + FOUNDATION_MARGIN);
 
-    // Put the stock and waste on the left, and the tableaus on the right.
+  private static final Fragment MIDDLE =
+      new Fragment(
+          FOUNDATION_MARGIN + "║\n"
+          + "╠═══════╦═══════════════════════════════════════════╣\n");
 
-    String stringOfStock =
-        stock.isEmpty() ?
-            " --- " :
-            String.format("[%3s]", stock.element());
+  private static final Fragment BOTTOM_BORDER =
+      new Fragment("╚═══════╩═══════════════════════════════════════════╝\n");
 
-    String stringOfWaste =
-        waste.isEmpty() ?
-            " --- " :
-            String.format("[%3s]", waste.getFirst());
+  private static final Fragment TABLEAU_HEADER =
+      new Fragment("  1     2     3     4     5     6     7  ");
 
-    String[] leftLines = {
-        "  8  ",
-        String.format("%5s", stringOfStock),
-        "  9  ",
-        String.format("%5s", stringOfWaste),
-    };
+  private static final Fragment LINE_START = new Fragment("║ ");
+  private static final Fragment DIVIDER = new Fragment(" ║ ");
+  private static final Fragment LINE_END = new Fragment(" ║\n");
 
-    String tableausString = stringOfTableaus(tableaus);
+  private static final Fragment STOCK_LABEL = new Fragment("  8  ");
+  private static final Fragment WASTE_LABEL = new Fragment("  9  ");
 
-    String[] rightLines =
-        ("  1     2     3     4     5     6     7  \n"
-         + tableausString).split("\\n");
+  /**
+   * How many lines there are on the left, next to the tableaus: the label
+   * and the top card of the stock, then the same for the waste.
+   */
+  private static final int LEFT_LINES = 4;
 
-    // Pad the lines on the left and the lines on the right, so that
-    // there are the same number of lines in each.
+  /**
+   * The builder that {@link #stringOfGame(SolitaireGame)} draws into, one
+   * for each thread.
+   */
+  private static final ThreadLocal<TextSink> SINKS =
+      ThreadLocal.withInitial(() -> new TextSink(new StringBuilder(4096)));
 
-    if (leftLines.length < rightLines.length)
-    {
-      String[] newLeftLines = Arrays.copyOf(leftLines, rightLines.length);
-      for (int i = leftLines.length; i < rightLines.length; i++)
-      {
-        // five spaces.
-        newLeftLines[i] = "     ";
-      }
-      leftLines = newLeftLines;
-    }
-    else
+  static
+  {
+    for (int id = 0; id < Card.NUMBER_OF_CARDS; id++)
     {
-      String[] newRightLines = Arrays.copyOf(rightLines, leftLines.length);
-      for (int i = rightLines.length; i < leftLines.length; i++)
-      {
-        // forty-one spaces.
-        newRightLines[i] = "                                         ";
-      }
-      rightLines = newRightLines;
+      Card card = Card.of(id);
+      CARD_GLYPHS[0][id] = new Fragment(String.format("[%3s]", card.toString(false)));
+      CARD_GLYPHS[1][id] = new Fragment(String.format("[%3s]", card.toString(true)));
     }
 
-    for (int i = 0; i < leftLines.length; i++)
+    for (int i = 0; i < EMPTY_FOUNDATION_GLYPHS.length; i++)
     {
-      everything
-          .append("║ ")
-          .append(leftLines[i])
-          .append(" ║ ")
-          .append(rightLines[i])
-          .append(" ║")
-          .append("\n");
+      EMPTY_FOUNDATION_GLYPHS[i] =
+          new Fragment(String.format(" -%1s- ", SUITS_OF_FOUNDATIONS[i]));
     }
+  }
 
-    everything.append("╚═══════╩═══════════════════════════════════════════╝\n");
-
-    return everything.toString();
+  /**
+   * Returns a string showing the entire solitaire game--all the cards
+   * in all the piles--as it will be displayed to the user.
+   *
+   * @param game The solitaire game to stringify
+   *
+   * @return a pretty, human-readable string showing the state of the game.
+   *   (This string will contain a trailing newline.)
+   */
+  static String stringOfGame(SolitaireGame game)
+  {
+    TextSink sink = SINKS.get();
+    sink.out.setLength(0);
+    drawGame(game, sink);
+    return sink.out.toString();
   }
 
   /**
-   * Returns a String showing all the foundation piles (as they will be
-   * displayed to the user).
+   * Draw the entire solitaire game onto the end of a {@code StringBuilder}.
    *
    * <p>
-   *   Only the top card of the foundation piles will be shown, so
-   *   the returned string will only have one line. This line should
-   *   have exactly 23 characters.
+   *   This appends exactly what {@link #stringOfGame(SolitaireGame)}
+   *   returns, for callers that draw lots of games and want to reuse their
+   *   own builder (or write out the characters without making a string).
    * </p>
    *
-   * @param foundations A {@code List} of the foundations (of which there
-   *   should be exactly 4.) This method will not mutate the foundations.
+   * @param game The solitaire game to draw. This method will not mutate it.
+   * @param out Where to append the picture.
+   */
+  static void appendGame(SolitaireGame game, StringBuilder out)
+  {
+    drawGame(game, new TextSink(out));
+  }
+
+  /**
+   * Draw the entire solitaire game, one fragment at a time.
+   *
+   * <p>
+   *   The fragments' text, put together, is exactly what
+   *   {@link #stringOfGame(SolitaireGame)} returns.
+   * </p>
    *
-   * @return A one-line, 23-character string, showing the foundation piles in
-   *   a user-readable format. Only the top card of each pile will be shown.
-   *   If the pile has no cards in it, the symbol for the pile's suit will be
-   *   shown.
+   * @param game The solitaire game to draw. This method will not mutate it.
+   * @param out Where to send the fragments.
    */
-  private static String stringOfFoundations(List<Stack<Card>> foundations)
+  static void drawGame(SolitaireGame game, FragmentSink out)
   {
-    List<String> cardStrings = new ArrayList<>();
-    for (int i = 0; i < foundations.size(); i++)
+    // Print out the foundations in their own box on the top.
+    out.append(TOP);
+    appendFoundations(game, out);
+    out.append(MIDDLE);
+
+    // Put the stock and waste on the left, and the tableaus on the right.
+    // There's a line on the right for the tableau numbers, and then one
+    // for every card in the biggest tableau.
+    int numberOfTableauLines = 0;
+    for (int i = 0; i < 7; i++)
+    {
+      numberOfTableauLines =
+          Math.max(numberOfTableauLines, game.getTableau(i).size());
+    }
+    int numberOfLines = Math.max(LEFT_LINES, numberOfTableauLines + 1);
+
+    for (int line = 0; line < numberOfLines; line++)
     {
-      Stack<Card> foundation = foundations.get(i);
-      if (foundation.empty())
-      {
-        cardStrings.add(String.format(" -%1s- ", suitsOfFoundations.get(i)));
-      }
+      out.append(LINE_START);
+      appendLeftLine(game, line, out);
+      out.append(DIVIDER);
+      if (line == 0)
+        out.append(TABLEAU_HEADER);
+      else if (line <= numberOfTableauLines)
+        appendTableauLine(game, line - 1, out);
       else
-      {
-        Card topCard = foundation.peek();
-        cardStrings.add(String.format("[%3s]", topCard));
-      }
+        out.append(BLANK_TABLEAU_LINE);
+      out.append(LINE_END);
+    }
+
+    out.append(BOTTOM_BORDER);
+  }
+
+  /**
+   * Append one of the lines on the left of the board: the labels for the
+   * stock and the waste, and the top card of each.
+   *
+   * @param game The game.
+   * @param line The number of the line, counting from 0. (Any line past the
+   *   fourth is blank.)
+   * @param out Where to append exactly five characters.
+   */
+  private static void appendLeftLine(SolitaireGame game, int line, FragmentSink out)
+  {
+    switch (line)
+    {
+      case 0:
+        out.append(STOCK_LABEL);
+        break;
+
+      case 1:
+        PileView stock = game.getStock();
+        out.append(
+            stock.isEmpty() ?
+                EMPTY_PILE_GLYPH :
+                CARD_GLYPHS[0][stock.peek().getId()]);
+        break;
+
+      case 2:
+        out.append(WASTE_LABEL);
+        break;
+
+      case 3:
+        PileView waste = game.getWaste();
+        out.append(
+            waste.isEmpty() ?
+                EMPTY_PILE_GLYPH :
+                CARD_GLYPHS[1][waste.peek().getId()]);
+        break;
+
+      default:
+        out.append(BLANK_GLYPH);
     }
-    return String.join(" ", cardStrings);
   }
 
   /**
-   * Returns a String showing all the tableau piles (as they will be
-   * displayed to the user).
+   * Append all the foundation piles (as they will be displayed to the
+   * user).
    *
    * <p>
-   *   The returned string should consist of several lines, each containing
-   *   exactly 41 characters.
+   *   Only the top card of the foundation piles will be shown, so this
+   *   appends exactly 23 characters on one line. If a pile has no cards in
+   *   it, the symbol for the pile's suit will be shown.
    * </p>
    *
+   * @param game The game whose foundations to draw.
+   * @param out Where to append them.
+   */
+  private static void appendFoundations(SolitaireGame game, FragmentSink out)
+  {
+    for (int i = 0; i < 4; i++)
+    {
+      if (i > 0)
+        out.append(SPACE);
+
+      PileView foundation = game.getFoundation(i);
+      if (foundation.isEmpty())
+        out.append(EMPTY_FOUNDATION_GLYPHS[i]);
+      else
+        out.append(CARD_GLYPHS[1][foundation.peek().getId()]);
+    }
+  }
+
+  /**
+   * Append one line of the tableau piles (as they will be displayed to the
+   * user).
+   *
    * <p>
-   *   The top of each tableau pile will be aligned, so that the cards
-   *   will look something like this:
+   *   The tableaus are drawn from the bottom card to the top card (so that
+   *   the top cards get displayed last), with the bottom of each tableau
+   *   aligned, so that the cards will look something like this:
    * </p>
    *
    * <pre>
@@ -191,54 +301,45 @@ class GameFormatter
    *    C
    * </pre>
    *
-   *
-   * @param tableaus A {@code List} of the tableaus (of which there
-   *   should be exactly 7.) This method will not mutate the tableaus.
-   *
-   * @return A several-line string, showing the tableau piles in
-   *   a user-readable format. All of the cards in the tableau piles will
-   *   be shown, not just the top card. (If a tableau pile is empty, a suitable
-   *   "empty pile" representation will be shown instead.)
+   * @param game The game whose tableaus to draw.
+   * @param index The index of the cards to draw in each tableau, counting
+   *   up from 0 at the bottom. (Tableaus that aren't that big get a blank.)
+   * @param out Where to append exactly 41 characters.
    */
-  private static String stringOfTableaus(List<Stack<Card>> tableaus)
+  private static void appendTableauLine(SolitaireGame game, int index, FragmentSink out)
   {
     // (IntelliJ would prefer that I write "tableaux", but French is hard so
     // I'm pluralizing it the anglophone way instead.)
+    for (int i = 0; i < 7; i++)
+    {
+      if (i > 0)
+        out.append(SPACE);
+
+      PileView tableau = game.getTableau(i);
+      if (index >= tableau.size())
+        out.append(BLANK_GLYPH);
+      else
+        out.append(
+            CARD_GLYPHS[tableau.isFaceUp(index) ? 1 : 0][tableau.get(index).getId()]);
+    }
+  }
+
+  /**
+   * Appends the text of each fragment to a {@code StringBuilder}.
+   */
+  private static final class TextSink implements FragmentSink
+  {
+    private final StringBuilder out;
+
+    private TextSink(StringBuilder out)
+    {
+      this.out = out;
+    }
 
-    // Clone all of the tableaus before reversing them
-    @SuppressWarnings("unchecked")
-    List<Stack<Card>> reversedTableaus =
-        tableaus.stream()
-            .map(Stack<Card>::clone)
-            // .clone() will only ever return Stack<Card>.
-            // This cast is only here to satisfy the compiler. (It doesn't need
-            // to be safe at runtime; it should never fail.)
-            .map(object -> (Stack<Card>)object)
-            .collect(Collectors.toList());
-
-    // We'll want to iterate through the tableaus from the back to the
-    // front. (So that the top items get displayed last.)
-    reversedTableaus.forEach(Collections::reverse);
-
-    List<String> linesOfOutput = new ArrayList<>();
-    while (!reversedTableaus.stream().allMatch(Stack::empty))
+    @Override
+    public void append(Fragment fragment)
     {
-      List<String> cardStrings = new ArrayList<>();
-      for (Stack<Card> tableau : reversedTableaus)
-      {
-        if (tableau.empty())
-        {
-          // Five spaces
-          cardStrings.add("     ");
-        }
-        else
-        {
-          Card topCard = tableau.pop();
-          cardStrings.add(String.format("[%3s]", topCard));
-        }
-      }
-      linesOfOutput.add(String.join(" ", cardStrings));
+      out.append(fragment.text);
     }
-    return String.join("\n", linesOfOutput);
   }
 }
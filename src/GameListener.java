@@ -0,0 +1,27 @@
+import java.util.List;
+
+/**
+ * Something that wants to hear about every change to a
+ * {@link SolitaireGame}'s piles. (See
+ * {@link SolitaireGame#setListener(GameListener)}.)
+ *
+ * <p>
+ *   Changes come in batches: one batch for each move (the cards it moved,
+ *   plus the card it revealed, if it revealed one), one for each move
+ *   that's undone, and one for everything
+ *   {@link SolitaireGame#autoComplete()} does. The listener is called on
+ *   whatever thread changed the game, once the whole batch has been made,
+ *   so the game is never halfway through a move when it's looked at.
+ * </p>
+ */
+interface GameListener
+{
+  /**
+   * Hear about a batch of changes.
+   *
+   * @param changes The changes, in the order they were made. The list
+   *   can't be changed, and it's safe to keep it or hand it to another
+   *   thread.
+   */
+  void gameChanged(List<GameChange> changes);
+}
@@ -0,0 +1,269 @@
+import java.util.EmptyStackException;
+import java.util.List;
+
+/**
+ * An unchangeable copy of a {@link SolitaireGame}'s piles at one moment.
+ *
+ * <p>
+ *   {@link GameEngine} makes one of these after every move and hands it
+ *   out to other threads, which can read it as much as they like, without
+ *   locking, while the game itself carries on.
+ * </p>
+ *
+ * <p>
+ *   A move only changes the piles it's between, so the snapshot after a
+ *   move copies just the piles that its {@link GameChange}s name, and
+ *   shares every other pile with the snapshot before it. That keeps
+ *   snapshots cheap to make, and it means that whoever is reading them
+ *   can tell which piles changed by checking whether
+ *   {@link #getTableau(int)} (and so on) returns the same object as it did
+ *   in the last snapshot.
+ * </p>
+ */
+final class GameSnapshot
+{
+  private final PileView[] tableaus;
+  private final PileView[] foundations;
+  private final PileView stock;
+  private final PileView waste;
+  private final boolean won;
+
+  private GameSnapshot(
+      PileView[] tableaus,
+      PileView[] foundations,
+      PileView stock,
+      PileView waste,
+      boolean won)
+  {
+    this.tableaus = tableaus;
+    this.foundations = foundations;
+    this.stock = stock;
+    this.waste = waste;
+    this.won = won;
+  }
+
+  /**
+   * Make a snapshot of every pile in a game.
+   *
+   * @param game The game. This method will not mutate it.
+   * @return The snapshot.
+   */
+  static GameSnapshot of(SolitaireGame game)
+  {
+    PileView[] tableaus = new PileView[7];
+    for (int i = 0; i < tableaus.length; i++)
+    {
+      tableaus[i] = new FrozenPile(game.getTableau(i));
+    }
+
+    PileView[] foundations = new PileView[4];
+    for (int i = 0; i < foundations.length; i++)
+    {
+      foundations[i] = new FrozenPile(game.getFoundation(i));
+    }
+
+    return new GameSnapshot(
+        tableaus,
+        foundations,
+        new FrozenPile(game.getStock()),
+        new FrozenPile(game.getWaste()),
+        game.hasWon());
+  }
+
+  /**
+   * Make a snapshot of a game just after some changes, copying only the
+   * piles that they changed.
+   *
+   * @param game The game, which must have been in this snapshot's
+   *   position before the changes were made. This method will not mutate
+   *   it.
+   * @param changes Every change that was made since this snapshot. (See
+   *   {@link GameListener}.)
+   * @return The new snapshot.
+   */
+  GameSnapshot after(SolitaireGame game, List<GameChange> changes)
+  {
+    PileView[] newTableaus = tableaus;
+    PileView[] newFoundations = foundations;
+    PileView newStock = stock;
+    PileView newWaste = waste;
+
+    for (GameChange change : changes)
+    {
+      for (int end = 0; end < 2; end++)
+      {
+        PileType type = end == 0 ? change.getStartType() : change.getDestinationType();
+        int id = end == 0 ? change.getStartID() : change.getDestinationID();
+        switch (type)
+        {
+          case TABLEAU:
+            if (newTableaus == tableaus)
+              newTableaus = tableaus.clone();
+            newTableaus[id] = null;
+            break;
+
+          case FOUNDATION:
+            if (newFoundations == foundations)
+              newFoundations = foundations.clone();
+            newFoundations[id] = null;
+            break;
+
+          case STOCK:
+            newStock = null;
+            break;
+
+          case WASTE:
+            newWaste = null;
+            break;
+        }
+      }
+    }
+
+    // Copy each changed pile once, however many changes it was in.
+    for (int i = 0; i < newTableaus.length; i++)
+    {
+      if (newTableaus[i] == null)
+        newTableaus[i] = new FrozenPile(game.getTableau(i));
+    }
+    for (int i = 0; i < newFoundations.length; i++)
+    {
+      if (newFoundations[i] == null)
+        newFoundations[i] = new FrozenPile(game.getFoundation(i));
+    }
+
+    return new GameSnapshot(
+        newTableaus,
+        newFoundations,
+        newStock == null ? new FrozenPile(game.getStock()) : newStock,
+        newWaste == null ? new FrozenPile(game.getWaste()) : newWaste,
+        game.hasWon());
+  }
+
+  /**
+   * Returns one of the tableaus, as it was when the snapshot was made.
+   *
+   * @param number The tableau's ID number (0 through 6).
+   */
+  PileView getTableau(int number)
+  {
+    return tableaus[number];
+  }
+
+  /**
+   * Returns one of the foundations, as it was when the snapshot was made.
+   *
+   * @param number The foundation's ID number (0 through 3).
+   */
+  PileView getFoundation(int number)
+  {
+    return foundations[number];
+  }
+
+  /**
+   * Returns the stock, as it was when the snapshot was made.
+   */
+  PileView getStock()
+  {
+    return stock;
+  }
+
+  /**
+   * Returns the waste, as it was when the snapshot was made.
+   */
+  PileView getWaste()
+  {
+    return waste;
+  }
+
+  /**
+   * Returns any one of the piles, as it was when the snapshot was made.
+   *
+   * @param pileType The type of the pile.
+   * @param pileId The pile's ID number. (See {@link Move}.)
+   */
+  PileView getPile(PileType pileType, int pileId)
+  {
+    switch (pileType)
+    {
+      case TABLEAU:
+        return tableaus[pileId];
+      case FOUNDATION:
+        return foundations[pileId];
+      case STOCK:
+        return stock;
+      default:
+        return waste;
+    }
+  }
+
+  /**
+   * Returns whether the game had been won when the snapshot was made.
+   * (See {@link SolitaireGame#hasWon()}.)
+   */
+  boolean hasWon()
+  {
+    return won;
+  }
+
+  /**
+   * A copy of a pile that can't be changed.
+   */
+  private static final class FrozenPile implements PileView
+  {
+    private final Card[] cards;
+    private final int faceDownCount;
+
+    private FrozenPile(PileView pile)
+    {
+      cards = new Card[pile.size()];
+      for (int i = 0; i < cards.length; i++)
+      {
+        cards[i] = pile.get(i);
+      }
+      faceDownCount = pile.getFaceDownCount();
+    }
+
+    @Override
+    public int size()
+    {
+      return cards.length;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+      return cards.length == 0;
+    }
+
+    @Override
+    public Card get(int index)
+    {
+      if (index < 0 || index >= cards.length)
+        throw new IndexOutOfBoundsException(
+            "Index " + index + " out of bounds for pile of size " + cards.length);
+
+      return cards[index];
+    }
+
+    @Override
+    public Card peek()
+    {
+      if (cards.length == 0)
+        throw new EmptyStackException();
+
+      return cards[cards.length - 1];
+    }
+
+    @Override
+    public int getFaceDownCount()
+    {
+      return faceDownCount;
+    }
+
+    @Override
+    public boolean isFaceUp(int index)
+    {
+      return index >= faceDownCount;
+    }
+  }
+}
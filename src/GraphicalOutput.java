@@ -3,14 +3,27 @@ import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.geom.RoundRectangle2D;
-import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
 
 public class GraphicalOutput extends JFrame{
 
-    private SolitaireGame s = new SolitaireGame();
-    private ArrayList<Shape> topCards = new ArrayList<>();
-    private int firstCard;
-    private boolean firstCardClicked = false;
+    //The game runs on its own thread, so nothing here ever waits for it
+    private final GameEngine engine = new GameEngine(new SolitaireGame());
+
+    //The game as it's painted: the engine's latest snapshot that the window has caught up with
+    private GameSnapshot s = engine.snapshot();
+
+    private JPanel gamePanel;
+
+    //The pile that was clicked on first, or null if nothing is selected
+    private BoardLayout.Hit selected;
+
+    //The part of the window that a click changed, or null if it didn't change anything
+    private Rectangle dirty;
+
+    //The cards are all painted from pictures drawn ahead of time
+    private final CardAtlas atlas = new CardAtlas();
 
     public GraphicalOutput(){
         Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
@@ -20,11 +33,12 @@ public class GraphicalOutput extends JFrame{
         setTitle("Solitaire");
         setLocationRelativeTo(null);
         setVisible(true);
-        JPanel gamePanel = new MainPanel();
+        gamePanel = new MainPanel();
         Color backgroundColor = new Color(0, 150, 0);
         gamePanel.setBackground(backgroundColor);
         gamePanel.setSize(screenWidth, screenWidth);
         getContentPane().add(gamePanel);
+        engine.changes().subscribe(new EngineSubscriber());
     }
 
     public static void main(String[] args){
@@ -37,105 +51,14 @@ public class GraphicalOutput extends JFrame{
             addMouseListener(new MouseAdapter() {
                 public void mouseClicked(MouseEvent e){
                     super.mouseClicked(e);
-                    //Checks if the shape clicked is one of the clickable shapes
-                    for(Shape t : topCards){
-                        //Checks if the card clicked is the first one and in a tableau or the stock
-                        if((t.contains(e.getPoint())) && (!firstCardClicked) && ((topCards.indexOf(t) < 7) || (topCards.indexOf(t) == 12))){
-                            firstCard = topCards.indexOf(t);
-                            firstCardClicked = true;
-                            topCards.clear();
-                            break;
-                        }
-                        //Checks if the card clicked is the first one and in a foundation
-                        else if((t.contains(e.getPoint())) && (!firstCardClicked) && (topCards.indexOf(t) > 6) && (topCards.indexOf(t) < 11)
-                                && (!s.getFoundation(topCards.indexOf(t) - 7).isEmpty())){
-                            firstCard = topCards.indexOf(t);
-                            firstCardClicked = true;
-                            topCards.clear();
-                            break;
-                        }
-                        //Makes moves for waste and tableaus
-                        else if((t.contains(e.getPoint())) && (firstCardClicked)){
-                            //Moving from top of tableau to tableau
-                            if((topCards.indexOf(t) != firstCard) && (firstCard < 7) && (topCards.indexOf(t) < 7)){
-                                try {
-                                    s.makeMove(new Move(PileType.TABLEAU, firstCard, PileType.TABLEAU, topCards.indexOf(t)));
-                                } catch (IllegalMoveException ex) {
-                                    ex.printStackTrace();
-                                }
-                                firstCardClicked = false;
-                                topCards.clear();
-                                break;
-                            }
-                            //Waste pile moves
-                            else if((topCards.indexOf(t) != firstCard) && (firstCard == 12)){
-                                //Moving from waste to tableau
-                                if(topCards.indexOf(t) < 7) {
-                                    try {
-                                        s.makeMove(new Move(PileType.WASTE, 0, PileType.TABLEAU, topCards.indexOf(t)));
-                                    } catch (IllegalMoveException ex) {
-                                        ex.printStackTrace();
-                                    }
-                                }
-                                //Moving from waste to foundation
-                                else if((topCards.indexOf(t) > 6) && (topCards.indexOf(t) < 11)){
-                                    try {
-                                        s.makeMove(new Move(PileType.WASTE, 0, PileType.FOUNDATION, topCards.indexOf(t) - 7));
-                                    } catch (IllegalMoveException ex) {
-                                        ex.printStackTrace();
-                                    }
-                                }
-                                firstCardClicked = false;
-                                topCards.clear();
-                                break;
-                            }
-                            //Moving from tableau to foundation
-                            else if((topCards.indexOf(t) > 6) && (topCards.indexOf(t) < 11) && (firstCard < 7)){
-                                try {
-                                    s.makeMove(new Move(PileType.TABLEAU, firstCard, PileType.FOUNDATION, topCards.indexOf(t) - 7));
-                                } catch (IllegalMoveException ex) {
-                                    ex.printStackTrace();
-                                }
-                                firstCardClicked = false;
-                                topCards.clear();
-                                break;
-                            }
-                            //Moving from foundation to tableau
-                            else if((topCards.indexOf(t) != firstCard) && (topCards.indexOf(t) < 7) && (6 < firstCard) && (firstCard < 11)){
-                                try {
-                                    s.makeMove(new Move(PileType.FOUNDATION, firstCard - 7, PileType.TABLEAU, topCards.indexOf(t)));
-                                } catch (IllegalMoveException ex) {
-                                    ex.printStackTrace();
-                                }
-                                firstCardClicked = false;
-                                topCards.clear();
-                                break;
-                            }
-                            //If you click on the same card, it deselects it
-                            else if(topCards.indexOf(t) == firstCard) {
-                                firstCardClicked = false;
-                                topCards.clear();
-                                break;
-                            }
-                        }
-                        //Checks if the card clicked is the stock card
-                        else if((t.contains(e.getPoint())) && (topCards.indexOf(t) == 11)){
-                            try {
-                                s.makeMove(new Move(PileType.STOCK, 0, PileType.WASTE, 0));
-                            } catch (IllegalMoveException ex) {
-                                ex.printStackTrace();
-                            }
-                            topCards.clear();
-                            break;
-                        }
-                        //If no card is clicked and a card is selected, deselects the card
-                        else if((!t.contains(e.getPoint())) && (firstCardClicked) && (topCards.indexOf(t) == topCards.size() - 1)){
-                            firstCardClicked = false;
-                            topCards.clear();
-                            break;
-                        }
+                    dirty = null;
+                    //Works out what was clicked on from where the piles go, not from what was painted
+                    clicked(BoardLayout.hitTest(s, e.getX(), e.getY()));
+                    //Only the piles that were highlighted or unhighlighted are painted again
+                    //(Moves are painted once the engine has made them; see showLatest)
+                    if(dirty != null){
+                        repaint(dirty);
                     }
-                    repaint();
                 }
             });
         }
@@ -144,7 +67,7 @@ public class GraphicalOutput extends JFrame{
         public void paintComponent(Graphics g){
             super.paintComponent(g);
             drawCards(g);
-            if(firstCardClicked) {
+            if(selected != null) {
                 cardClick(g);
             }
             if(s.hasWon()){
@@ -153,137 +76,177 @@ public class GraphicalOutput extends JFrame{
         }
     }
 
+    //Hears about each move the engine makes, and has the window catch up with it on the event thread
+    private class EngineSubscriber implements Flow.Subscriber<List<GameChange>>{
+        private Flow.Subscription subscription;
+
+        public void onSubscribe(Flow.Subscription subscription){
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        //The latest snapshot already has these changes in it, so there's no need to look at them
+        public void onNext(List<GameChange> changes){
+            SwingUtilities.invokeLater(GraphicalOutput.this::showLatest);
+            subscription.request(1);
+        }
+
+        public void onError(Throwable error){
+            error.printStackTrace();
+        }
+
+        public void onComplete(){
+        }
+    }
+
+    //Selects the pile that was clicked on, or makes a move if one was already selected
+    private void clicked(BoardLayout.Hit hit){
+        if(selected == null){
+            if(hit == null)
+                return;
+            switch(hit.getPileType()){
+                //Clicking the stock draws a card
+                case STOCK:
+                    makeMove(new Move(PileType.STOCK, 0, PileType.WASTE, 0));
+                    break;
+                //An empty foundation has nothing to move
+                case FOUNDATION:
+                    if(hit.getCardIndex() >= 0)
+                        select(hit);
+                    break;
+                default:
+                    select(hit);
+            }
+            return;
+        }
+
+        BoardLayout.Hit first = selected;
+        select(null);
+        //Clicking the table, the stock, or the same pile again just deselects it
+        if(hit == null || hit.isSamePile(first) || hit.getPileType() == PileType.STOCK)
+            return;
+        //Any card in a pile stands for the whole pile, so a click anywhere on a tableau moves to it
+        makeMove(new Move(first.getPileType(), first.getPileId(), hit.getPileType(), hit.getPileId()));
+    }
+
+    //Changes which pile is highlighted
+    private void select(BoardLayout.Hit hit){
+        if(selected != null)
+            markDirty(BoardLayout.pileBounds(s, selected.getPileType(), selected.getPileId()));
+        selected = hit;
+        if(selected != null)
+            markDirty(BoardLayout.pileBounds(s, selected.getPileType(), selected.getPileId()));
+    }
+
+    //Hands a move to the engine (which turns down anything that isn't a legal move)
+    private void makeMove(Move move){
+        engine.submit(move);
+    }
+
+    //Catches up with the engine's latest snapshot, painting again only the piles that changed
+    private void showLatest(){
+        GameSnapshot previous = s;
+        s = engine.snapshot();
+        if(s == previous)
+            return;
+        //Finishing the game moves cards everywhere (and says you won), so that paints it all
+        if(s.hasWon()){
+            gamePanel.repaint();
+            return;
+        }
+        dirty = null;
+        for(int x = 0; x < 7; x++)
+            pileChanged(previous, PileType.TABLEAU, x);
+        for(int x = 0; x < 4; x++)
+            pileChanged(previous, PileType.FOUNDATION, x);
+        pileChanged(previous, PileType.STOCK, 0);
+        pileChanged(previous, PileType.WASTE, 0);
+        if(dirty != null)
+            gamePanel.repaint(dirty);
+    }
+
+    //Snapshots share the piles that didn't change, so a pile that's a different object has changed
+    private void pileChanged(GameSnapshot previous, PileType pileType, int pileId){
+        if(previous.getPile(pileType, pileId) == s.getPile(pileType, pileId))
+            return;
+        //A pile that loses cards gets shorter, so where it was before has to be painted too
+        markDirty(BoardLayout.pileBounds(previous, pileType, pileId));
+        markDirty(BoardLayout.pileBounds(s, pileType, pileId));
+    }
+
+    private void markDirty(Rectangle area){
+        dirty = dirty == null ? area : dirty.union(area);
+    }
+
+    //Draws every card that's at least partly inside the part of the window being painted
     private void drawCards(Graphics g){
+        Rectangle clip = g.getClipBounds();
         //Draws the base cards
         for(int x = 0; x < 7; x++ ){
-            if(!s.getTableau(x).isEmpty())
+            if(!s.getTableau(x).isEmpty()) {
                 for(int y = 0; y < s.getTableau(x).size(); y++)
-                    tableauCard(x, y, g);
-            else
+                    if(showing(clip, BoardLayout.tableauX(x), BoardLayout.tableauY(y)))
+                        tableauCard(x, y, g);
+            }
+            else if(showing(clip, BoardLayout.tableauX(x), BoardLayout.tableauY(0)))
                 emptyTableauCard(x, g);
         }
         //Draws the foundation cards
         for(int x = 0; x < 4; x++)
-            foundCard(g, x);
+            if(showing(clip, BoardLayout.foundationX(x), BoardLayout.BOTTOM_ROW_Y))
+                foundCard(g, x);
         //Draws the stock card
-        stockCards(g);
+        stockCards(g, clip);
     }
 
-    //Draws the cards for the tableau and adds the top one to the clickable shape array list
-    private void tableauCard(int x, int y, Graphics g){
-        Graphics2D g2d = (Graphics2D) g;
-        Shape card = new RoundRectangle2D.Double((90 * x) + 140, (30 * y) + 30 , 60, 110, 10, 10);
-        g2d.setPaint(Color.WHITE);
-        g2d.fill(card);
-        g2d.setPaint(Color.BLACK);
-        g2d.setStroke(new BasicStroke(3));
-        g2d.draw(card);
-        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 20));
+    //Whether any of a card (or its outline) is inside the part of the window being painted
+    private static boolean showing(Rectangle clip, int x, int y){
+        return clip == null || clip.intersects(
+                x - BoardLayout.OUTLINE_MARGIN, y - BoardLayout.OUTLINE_MARGIN,
+                BoardLayout.CARD_WIDTH + 2 * BoardLayout.OUTLINE_MARGIN,
+                BoardLayout.CARD_HEIGHT + 2 * BoardLayout.OUTLINE_MARGIN);
+    }
 
-        if(!s.getTableau(x).get(y).isShowing())
-            g2d.setPaint(Color.GRAY);
-        else if(s.getTableau(x).get(y).getColor() == 1)
-            g2d.setPaint(Color.RED);
-        else if(s.getTableau(x).get(y).getColor() == 0)
-            g2d.setPaint(Color.BLACK);
-        g.drawString(s.getTableau(x).get(y).toString(), (90 * x) + 145, (30 * y) + 50);
-        if(y == s.getTableau(x).size() - 1) {
-            topCards.add(card);
-        }
+    //Draws the cards for the tableau
+    private void tableauCard(int x, int y, Graphics g){
+        PileView tableau = s.getTableau(x);
+        int sprite = tableau.isFaceUp(y) ? tableau.get(y).getId() : CardAtlas.FACE_DOWN;
+        if(y == tableau.size() - 1)
+            atlas.draw((Graphics2D) g, sprite, BoardLayout.tableauX(x), BoardLayout.tableauY(y));
+        //Only the top of a card shows under the next one (and a little more, around its corners)
+        else
+            atlas.drawTop((Graphics2D) g, sprite, BoardLayout.tableauX(x), BoardLayout.tableauY(y),
+                    BoardLayout.TABLEAU_SPACING + BoardLayout.CORNER_ARC);
     }
     //Draws the empty tableau cards where there are no cards in the stack
     private void emptyTableauCard(int x, Graphics g){
-        Graphics2D g2d = (Graphics2D) g;
-        Shape card = new RoundRectangle2D.Double(140 + (90 * x), 30 , 60, 110, 10, 10);
-        g2d.setPaint(Color.BLACK);
-        g2d.setStroke(new BasicStroke(3));
-        g2d.draw(card);
-        topCards.add(card);
+        atlas.draw((Graphics2D) g, CardAtlas.EMPTY_TABLEAU, BoardLayout.tableauX(x), BoardLayout.tableauY(0));
     }
     //Draws the foundation cards and the starting empty stacks
     private void foundCard(Graphics g, int x){
-        Graphics2D g2d = (Graphics2D) g;
-        Shape card = new RoundRectangle2D.Double(410 + (90 * x), 600 , 60, 110, 10, 10);
-        topCards.add(card);
-        g2d.setPaint(Color.WHITE);
-        g2d.fill(card);
-        g2d.setPaint(Color.BLACK);
-        g2d.setStroke(new BasicStroke(3));
-        g2d.draw(card);
-        if(s.getFoundation(x).isEmpty()) {
-            g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 50));
-            switch(x){
-                case 0:
-                    g2d.setPaint(Color.BLACK);
-                    g.drawString("♣", 423 + (90 * x), 671);
-                    break;
-                case 1:
-                    g2d.setPaint(Color.RED);
-                    g.drawString("♢", 423 + (90 * x), 671);
-                    break;
-                case 2:
-                    g2d.setPaint(Color.BLACK);
-                    g.drawString("♠", 423 + (90 * x), 671);
-                    break;
-                case 3:
-                    g2d.setPaint(Color.RED);
-                    g.drawString("♡", 423 + (90 * x), 671);
-                    break;
-            }
-        }
-        else{
-            g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 20));
-            if(s.getFoundation(x).peek().getColor() == 0)
-                g2d.setPaint(Color.BLACK);
-            else
-                g2d.setPaint(Color.RED);
-            g.drawString(s.getFoundation(x).peek().toString(), 415 + (90 * x), 620);
-        }
+        int sprite = s.getFoundation(x).isEmpty() ?
+                CardAtlas.EMPTY_FOUNDATION + x :
+                s.getFoundation(x).peek().getId();
+        atlas.draw((Graphics2D) g, sprite, BoardLayout.foundationX(x), BoardLayout.BOTTOM_ROW_Y);
     }
     //Draws the stock and waste card
-    private void stockCards(Graphics g){
+    private void stockCards(Graphics g, Rectangle clip){
         Graphics2D g2d = (Graphics2D) g;
-        GradientPaint gp1 = new GradientPaint(1, 1,
-                Color.red, 10, 10, Color.green, true);
-        Shape scard = new RoundRectangle2D.Double(130, 600, 60, 110, 10, 10);
-        Shape ccard = new RoundRectangle2D.Double(220, 600, 60, 110, 10, 10);
-        if(!s.getStock().isEmpty()) {
-            topCards.add(scard);
-            g2d.setPaint(gp1);
-            g2d.fill(scard);
-            g2d.setPaint(Color.BLACK);
-            g2d.setStroke(new BasicStroke(3));
-            g2d.draw(scard);
-        }
-        else if(s.getStock().isEmpty()){
-            topCards.add(scard);
-            g2d.setPaint(Color.WHITE);
-            g2d.fill(scard);
-            g2d.setPaint(Color.BLACK);
-            g2d.setStroke(new BasicStroke(3));
-            g2d.draw(scard);
-            g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 50));
-            g.drawString("⟳", 140, 650);
-        }
-        if(!s.getWaste().isEmpty()) {
-            topCards.add(ccard);
-            g2d.setPaint(Color.WHITE);
-            g2d.fill(ccard);
-            g2d.setPaint(Color.BLACK);
-            g2d.setStroke(new BasicStroke(3));
-            g2d.draw(ccard);
-            g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 20));
-            if(s.getWaste().peek().getColor() == 1)
-                g2d.setPaint(Color.RED);
-            g.drawString(s.getWaste().peek().toString(), 225, 620);
-        }
+        if(showing(clip, BoardLayout.STOCK_X, BoardLayout.BOTTOM_ROW_Y))
+            atlas.draw(g2d, s.getStock().isEmpty() ? CardAtlas.EMPTY_STOCK : CardAtlas.STOCK,
+                    BoardLayout.STOCK_X, BoardLayout.BOTTOM_ROW_Y);
+        if(!s.getWaste().isEmpty() && showing(clip, BoardLayout.WASTE_X, BoardLayout.BOTTOM_ROW_Y))
+            atlas.draw(g2d, s.getWaste().peek().getId(), BoardLayout.WASTE_X, BoardLayout.BOTTOM_ROW_Y);
     }
+
     //Draws an outline on a card when it is clicked
     private void cardClick(Graphics g){
         Graphics2D g2d = (Graphics2D) g;
         g2d.setPaint(Color.YELLOW);
         g2d.setStroke(new BasicStroke(5));
-        g2d.draw(topCards.get(firstCard));
+        Rectangle card = BoardLayout.topCardBounds(s, selected.getPileType(), selected.getPileId());
+        g2d.draw(new RoundRectangle2D.Double(card.x, card.y, card.width, card.height,
+                BoardLayout.CORNER_ARC, BoardLayout.CORNER_ARC));
     }
 
     private void congrats(Graphics g){
@@ -0,0 +1,39 @@
+/**
+ * A policy that always makes the move that looks best right now.
+ *
+ * <p>
+ *   It ranks the legal moves the same way {@link KlondikeSolver} does, and
+ *   makes the best one that leads to a position it hasn't been in yet this
+ *   game. (Without that rule it would happily draw through the stock
+ *   forever.) It gives up when every move leads somewhere it's already
+ *   been.
+ * </p>
+ */
+class GreedyPolicy implements MovePolicy
+{
+  private final int[] moves = new int[SolitaireGame.MAX_LEGAL_MOVES];
+  private final TranspositionTable visited = new TranspositionTable(1 << 10);
+
+  @Override
+  public void startGame(SolitaireGame game, long seed)
+  {
+    visited.clear();
+    visited.add(game.getPositionHash());
+  }
+
+  @Override
+  public int chooseMove(SolitaireGame game)
+  {
+    int count = KlondikeSolver.orderMoves(game, moves, game.legalMoves(moves));
+    for (int i = 0; i < count; i++)
+    {
+      game.tryMove(moves[i]);
+      boolean isNew = visited.add(game.getPositionHash());
+      game.unmakeMove();
+
+      if (isNew)
+        return moves[i];
+    }
+    return -1;
+  }
+}
@@ -4,8 +4,28 @@
  */
 class IllegalMoveException extends Exception
 {
-  IllegalMoveException(String message)
+  private final MoveStatus status;
+
+  /**
+   * Create an exception for a move that was rejected with the given
+   * status.
+   *
+   * @param status Why the move is against the rules. (Its message becomes
+   *   the exception's message.)
+   */
+  IllegalMoveException(MoveStatus status)
   {
-    super(message);
+    super(status.getMessage());
+    this.status = status;
+  }
+
+  /**
+   * Returns why the move is against the rules.
+   *
+   * @return The status the move was rejected with.
+   */
+  MoveStatus getStatus()
+  {
+    return status;
   }
 }
@@ -9,6 +9,25 @@ import java.util.*;
  */
 class InputGetter
 {
+  // Every pile there is, so that parsing one doesn't have to make a new
+  // object.
+  private static final PileTypeAndID[] TABLEAUS = new PileTypeAndID[7];
+  private static final PileTypeAndID[] FOUNDATIONS = new PileTypeAndID[4];
+  private static final PileTypeAndID STOCK = new PileTypeAndID(PileType.STOCK, 0);
+  private static final PileTypeAndID WASTE = new PileTypeAndID(PileType.WASTE, 0);
+
+  static
+  {
+    for (int i = 0; i < TABLEAUS.length; i++)
+    {
+      TABLEAUS[i] = new PileTypeAndID(PileType.TABLEAU, i);
+    }
+    for (int i = 0; i < FOUNDATIONS.length; i++)
+    {
+      FOUNDATIONS[i] = new PileTypeAndID(PileType.FOUNDATION, i);
+    }
+  }
+
   /**
    * Ask the user for a move over the standard input.
    *
@@ -63,8 +82,7 @@ class InputGetter
     Scanner sc = new Scanner(System.in);
 
     // Repeat until they give us a good input.
-    PileType pileType = null;
-    Integer pileID = null;
+    PileTypeAndID pile = null;
     do
     {
       // Prompt the user.
@@ -90,70 +108,90 @@ class InputGetter
         throw new QuitTheGameException();
       }
 
-      if (input.length() != 1)
+      pile = parsePile(input);
+      if (pile == null)
       {
-        System.out.println("\tPlease enter a single letter or number.");
-        continue;
-      }
-
-      if (input.matches("\\d"))
-      {
-        int intInput = Integer.parseInt(input);
-        if (1 <= intInput && intInput <= 7)
-        {
-          pileType = PileType.TABLEAU;
-          pileID = intInput - 1;
-        }
-        else if (intInput == 8)
-        {
-          pileType = PileType.STOCK;
-          pileID = 0;
-        }
-        else if (intInput == 9)
-        {
-          pileType = PileType.WASTE;
-          pileID = 0;
-        }
+        if (input.length() != 1)
+          System.out.println("\tPlease enter a single letter or number.");
         else
-        {
           System.out.printf(
-              "\t%d isn't a valid pile; please enter something else.\n",
-              intInput);
-        }
+              "\t%s isn't a valid pile; please enter something else.\n",
+              input);
       }
-      else
-      {
-        switch (input.toUpperCase())
-        {
-          case "C":
-            pileType = PileType.FOUNDATION;
-            pileID = 0;
-            break;
-
-          case "D":
-            pileType = PileType.FOUNDATION;
-            pileID = 1;
-            break;
-
-          case "S":
-            pileType = PileType.FOUNDATION;
-            pileID = 2;
-            break;
-
-          case "H":
-            pileType = PileType.FOUNDATION;
-            pileID = 3;
-            break;
-
-          default:
-            System.out.printf(
-                "\t%s isn't a valid pile; please enter something else.\n",
-                input);
-        }
-      }
-    } while (pileType == null || pileID == null);
+    } while (pile == null);
+
+    return pile;
+  }
+
+  /**
+   * Turn what the user typed for a move into a move, without asking for
+   * anything.
+   *
+   * @param start What the user typed for the starting pile.
+   * @param destination What the user typed for the destination pile.
+   *
+   * @return The move, or {@code null} if either of the piles isn't a real
+   *   pile.
+   */
+  static Move parseMove(String start, String destination)
+  {
+    PileTypeAndID startPile = parsePile(start.trim());
+    PileTypeAndID destinationPile = parsePile(destination.trim());
+    if (startPile == null || destinationPile == null)
+      return null;
 
-    return new PileTypeAndID(pileType, pileID);
+    return new Move(
+        startPile.getPileType(),
+        startPile.getPileID(),
+        destinationPile.getPileType(),
+        destinationPile.getPileID());
+  }
+
+  /**
+   * Work out which pile the user meant.
+   *
+   * <p>
+   *   The tableaus are {@code 1} through {@code 7}, the stock is {@code 8},
+   *   the waste is {@code 9}, and the foundations are the first letters of
+   *   their suits ({@code C}, {@code D}, {@code S} and {@code H}, in either
+   *   case).
+   * </p>
+   *
+   * @param input What the user typed, with any whitespace trimmed off.
+   *
+   * @return The pile, or {@code null} if the input isn't a pile.
+   */
+  private static PileTypeAndID parsePile(String input)
+  {
+    if (input.length() != 1)
+      return null;
+
+    switch (input.charAt(0))
+    {
+      case '1': case '2': case '3': case '4': case '5': case '6': case '7':
+        return TABLEAUS[input.charAt(0) - '1'];
+
+      case '8':
+        return STOCK;
+
+      case '9':
+        return WASTE;
+
+      case 'C': case 'c':
+        return FOUNDATIONS[0];
+
+      case 'D': case 'd':
+        return FOUNDATIONS[1];
+
+      case 'S': case 's':
+        return FOUNDATIONS[2];
+
+      case 'H': case 'h':
+        return FOUNDATIONS[3];
+
+      default:
+        return null;
+    }
   }
 
   /**
@@ -0,0 +1,446 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class searches for a way to win a game of solitaire.
+ *
+ * <p>
+ *   It plays by the rules {@link SolitaireGame} enforces, and it counts the
+ *   game as won as soon as {@link SolitaireGame#hasWon()} says so. Given a
+ *   game, {@link #solve(SolitaireGame)} either finds a list of moves that
+ *   wins it, proves that no list of moves does, or gives up when it runs out
+ *   of nodes or time.
+ * </p>
+ *
+ * <h2>How the search works</h2>
+ *
+ * <p>
+ *   It's a depth-first search that walks a single {@code SolitaireGame} up
+ *   and down the tree with {@link SolitaireGame#tryMove(int)} and
+ *   {@link SolitaireGame#unmakeMove()}, so it doesn't copy the game or
+ *   allocate anything per node. The search stack is kept in arrays rather
+ *   than on the Java call stack, since a search can go thousands of moves
+ *   deep.
+ * </p>
+ *
+ * <ul>
+ *   <li>
+ *     A {@link TranspositionTable} remembers the hash of every position the
+ *     search has reached, so a position that can be reached in several
+ *     ways (or by cycling through the stock) is only searched once.
+ *   </li>
+ *   <li>
+ *     After every move, cards that can't possibly be needed on the
+ *     tableaus any more go straight to the foundations. (A card is safe to
+ *     move up if it's an ace or a two, or if both foundations of the
+ *     other color are at most one rank behind it; then nothing could ever
+ *     be put on it.) These moves don't count as choices, so the search
+ *     never has to branch on them.
+ *   </li>
+ *   <li>
+ *     The rest of the moves are tried best first: moves that turn over a
+ *     face-down card, then moves to the foundations, moves that clear a
+ *     tableau, moves from the waste, drawing from the stock, and finally
+ *     moves that only shuffle cards between tableaus or take them back
+ *     off of the foundations. Moving a whole tableau that has no face-down
+ *     cards onto an empty tableau is never tried, since it gets nowhere.
+ *   </li>
+ * </ul>
+ *
+ * <p>
+ *   A solver can be reused for many games (one at a time), which saves
+ *   growing its tables again for each one.
+ * </p>
+ */
+class KlondikeSolver
+{
+  /**
+   * How many nodes go by between looks at the clock.
+   */
+  private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+  private final long nodeBudget;
+  private final long timeBudgetNanos;
+
+  private final TranspositionTable visited = new TranspositionTable(1 << 16);
+
+  /**
+   * The moves left to try at each depth of the search. Row {@code d} holds
+   * {@code moveCounts[d]} moves, and the next one to try is at
+   * {@code nextMoves[d]}.
+   */
+  private int[][] moves = new int[64][];
+  private int[] moveCounts = new int[64];
+  private int[] nextMoves = new int[64];
+
+  /**
+   * How many moves were made to get to each depth of the search: the move
+   * the search chose, plus any safe moves to the foundations after it.
+   */
+  private int[] movesMade = new int[64];
+
+  /**
+   * Every move made so far, in order, and how many there are.
+   */
+  private int[] path = new int[256];
+  private int pathSize = 0;
+
+  /**
+   * Create a solver.
+   *
+   * @param nodeBudget The most nodes to search before giving up.
+   * @param timeBudgetMillis The most time to search for before giving up,
+   *   in milliseconds.
+   */
+  KlondikeSolver(long nodeBudget, long timeBudgetMillis)
+  {
+    if (nodeBudget <= 0 || timeBudgetMillis <= 0)
+      throw new IllegalArgumentException("Budgets have to be positive");
+
+    this.nodeBudget = nodeBudget;
+    this.timeBudgetNanos = timeBudgetMillis * 1_000_000L;
+  }
+
+  /**
+   * Search for a way to win a game from its current position.
+   *
+   * <p>
+   *   The search makes moves on {@code game} itself, but it undoes all of
+   *   them before it returns, so the game ends up back where it started.
+   * </p>
+   *
+   * @param game The game to solve.
+   * @return The outcome of the search.
+   */
+  SolverResult solve(SolitaireGame game)
+  {
+    long start = System.nanoTime();
+    long deadline = start + timeBudgetNanos;
+    long nodes = 0;
+    SolverResult.Status status = SolverResult.Status.UNWINNABLE;
+
+    visited.clear();
+    pathSize = 0;
+    ensureDepth(0);
+
+    int depth = 0;
+    movesMade[0] = makeSafeFoundationMoves(game);
+    visited.add(game.getPositionHash());
+
+    if (game.hasWon())
+      status = SolverResult.Status.WON;
+    else
+      generateMoves(game, 0);
+
+    while (status == SolverResult.Status.UNWINNABLE)
+    {
+      if (nextMoves[depth] == moveCounts[depth])
+      {
+        //Every move from here has been tried, so back up a level
+        unmakeMoves(game, movesMade[depth]);
+        if (depth == 0)
+          break;
+        depth--;
+        continue;
+      }
+
+      if (nodes >= nodeBudget
+          || (nodes % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0))
+      {
+        status = SolverResult.Status.BUDGET_EXHAUSTED;
+        break;
+      }
+
+      int code = moves[depth][nextMoves[depth]++];
+      game.tryMove(code);
+      pushPath(code);
+      int made = 1 + makeSafeFoundationMoves(game);
+      nodes++;
+
+      if (game.hasWon())
+      {
+        status = SolverResult.Status.WON;
+        break;
+      }
+
+      if (!visited.add(game.getPositionHash()))
+      {
+        unmakeMoves(game, made);
+        continue;
+      }
+
+      depth++;
+      ensureDepth(depth);
+      movesMade[depth] = made;
+      generateMoves(game, depth);
+    }
+
+    //None of the tables ever shrink during a search, so they're at their peak now
+    long peakMemory = getMemoryBytes();
+
+    List<Move> winningMoves = new ArrayList<>();
+    if (status == SolverResult.Status.WON)
+    {
+      for (int i = 0; i < pathSize; i++)
+      {
+        winningMoves.add(Move.decode(path[i]));
+      }
+    }
+
+    //Put the game back the way we found it
+    unmakeMoves(game, pathSize);
+
+    return new SolverResult(
+        status, winningMoves, nodes, System.nanoTime() - start, peakMemory);
+  }
+
+  /**
+   * Make every safe move to the foundations there is, one after another,
+   * until there aren't any left.
+   *
+   * @param game The game to make the moves in.
+   * @return How many moves were made.
+   */
+  private int makeSafeFoundationMoves(SolitaireGame game)
+  {
+    int made = 0;
+    int code;
+    while ((code = nextSafeFoundationMove(game)) >= 0)
+    {
+      game.tryMove(code);
+      pushPath(code);
+      made++;
+    }
+    return made;
+  }
+
+  /**
+   * Find a move to the foundations that can't hurt, if there is one.
+   *
+   * <p>
+   *   A card can safely go to its foundation if it's an ace or a two, or if
+   *   both foundations of the other color have reached at least one rank
+   *   below it. (Then every card that could go on top of it on a tableau
+   *   is already on a foundation, so it will never be needed there.)
+   * </p>
+   *
+   * @param game The game to look in.
+   * @return The encoded move, or {@code -1} if there isn't one.
+   */
+  static int nextSafeFoundationMove(SolitaireGame game)
+  {
+    for (int t = 0; t < 7; t++)
+    {
+      PileView tableau = game.getTableau(t);
+      if (!tableau.isEmpty() && isSafeForFoundation(game, tableau.peek()))
+        return Move.encode(
+            PileType.TABLEAU, t,
+            PileType.FOUNDATION, tableau.peek().getSuit().ordinal());
+    }
+
+    PileView waste = game.getWaste();
+    if (!waste.isEmpty() && isSafeForFoundation(game, waste.peek()))
+      return Move.encode(
+          PileType.WASTE, 0,
+          PileType.FOUNDATION, waste.peek().getSuit().ordinal());
+
+    return -1;
+  }
+
+  /**
+   * Returns whether a card fits on its foundation, and is safe to put
+   * there.
+   *
+   * @param game The game the card is in.
+   * @param card The card to check.
+   */
+  private static boolean isSafeForFoundation(SolitaireGame game, Card card)
+  {
+    int suit = card.getSuit().ordinal();
+    int rank = card.getRank();
+    if (game.getFoundation(suit).size() != rank - 1)
+      return false;
+    if (rank <= 2)
+      return true;
+
+    //The suits alternate black, red, black, red, so the other color's
+    //foundations are the ones whose index differs in the lowest bit
+    return game.getFoundation(suit ^ 1).size() >= rank - 1
+        && game.getFoundation(suit ^ 3).size() >= rank - 1;
+  }
+
+  /**
+   * Put the legal moves of the game's position into row {@code depth} of
+   * {@link #moves}, best first.
+   *
+   * @param game The game to list the moves of.
+   * @param depth The row to put them in.
+   */
+  private void generateMoves(SolitaireGame game, int depth)
+  {
+    int[] row = moves[depth];
+    moveCounts[depth] = orderMoves(game, row, game.legalMoves(row));
+    nextMoves[depth] = 0;
+  }
+
+  /**
+   * Sort a list of legal moves best first, and drop the ones that are
+   * never worth trying.
+   *
+   * @param game The game that the moves are legal in.
+   * @param moves The encoded moves. They're sorted in place.
+   * @param count How many moves there are.
+   * @return How many moves are left.
+   */
+  static int orderMoves(SolitaireGame game, int[] moves, int count)
+  {
+    //Pack each move's score above its code, so sorting the ints sorts the moves
+    int kept = 0;
+    for (int i = 0; i < count; i++)
+    {
+      int score = scoreMove(game, moves[i]);
+      if (score >= 0)
+        moves[kept++] = score << 10 | moves[i];
+    }
+
+    //Insertion sort, highest score first; there are rarely more than a dozen moves
+    for (int i = 1; i < kept; i++)
+    {
+      int move = moves[i];
+      int j = i - 1;
+      while (j >= 0 && moves[j] < move)
+      {
+        moves[j + 1] = moves[j];
+        j--;
+      }
+      moves[j + 1] = move;
+    }
+
+    for (int i = 0; i < kept; i++)
+    {
+      moves[i] &= 0x3FF;
+    }
+    return kept;
+  }
+
+  /**
+   * Guess how good a legal move is.
+   *
+   * @param game The game that the move is legal in.
+   * @param code The encoded move.
+   * @return A score from {@code 0} to {@code 100}, higher meaning more
+   *   promising, or {@code -1} if the move is never worth trying.
+   */
+  static int scoreMove(SolitaireGame game, int code)
+  {
+    switch (Move.startTypeOf(code))
+    {
+      case TABLEAU:
+        if (Move.destinationTypeOf(code) == PileType.FOUNDATION)
+          return 80;
+        return scoreTableauMove(
+            game.getTableau(Move.startIDOf(code)),
+            game.getTableau(Move.destinationIDOf(code)),
+            game);
+      case WASTE:
+        return Move.destinationTypeOf(code) == PileType.FOUNDATION ? 70 : 50;
+      case STOCK:
+        return 20;
+      case FOUNDATION:
+      default:
+        return 5;
+    }
+  }
+
+  /**
+   * Guess how good a legal move from one tableau to another is.
+   *
+   * @param start The tableau the cards come from.
+   * @param end The tableau they go to.
+   * @param game The game the tableaus are in.
+   * @return A score, as described in {@link #scoreMove(SolitaireGame, int)}.
+   */
+  private static int scoreTableauMove(PileView start, PileView end, SolitaireGame game)
+  {
+    //The face-up cards are a run, so the card that moves to the bottom is
+    //however many ranks above the start of the run the end tableau needs
+    int runStart = start.getFaceDownCount();
+    int requiredRank = end.isEmpty() ? 13 : end.peek().getRank() - 1;
+    int movingIndex = runStart + start.get(runStart).getRank() - requiredRank;
+
+    if (movingIndex == runStart)
+    {
+      if (runStart > 0)
+        return 100; //Turns over a face-down card
+      return end.isEmpty() ? -1 : 60; //Empties the tableau
+    }
+
+    //Splitting a run is only useful if it frees up a card for a foundation
+    Card freed = start.get(movingIndex - 1);
+    if (game.getFoundation(freed.getSuit().ordinal()).size() == freed.getRank() - 1)
+      return 40;
+    return 10;
+  }
+
+  /**
+   * Undo the last few moves, both in the game and in {@link #path}.
+   *
+   * @param game The game to undo the moves in.
+   * @param count How many moves to undo.
+   */
+  private void unmakeMoves(SolitaireGame game, int count)
+  {
+    for (int i = 0; i < count; i++)
+    {
+      game.unmakeMove();
+    }
+    pathSize -= count;
+  }
+
+  /**
+   * Add a move to the end of {@link #path}.
+   *
+   * @param code The encoded move.
+   */
+  private void pushPath(int code)
+  {
+    if (pathSize == path.length)
+      path = Arrays.copyOf(path, pathSize * 2);
+    path[pathSize++] = code;
+  }
+
+  /**
+   * Make sure the search stack has room for the given depth.
+   *
+   * @param depth The depth the search is about to go to.
+   */
+  private void ensureDepth(int depth)
+  {
+    if (depth == moves.length)
+    {
+      moves = Arrays.copyOf(moves, depth * 2);
+      moveCounts = Arrays.copyOf(moveCounts, depth * 2);
+      nextMoves = Arrays.copyOf(nextMoves, depth * 2);
+      movesMade = Arrays.copyOf(movesMade, depth * 2);
+    }
+    if (moves[depth] == null)
+      moves[depth] = new int[SolitaireGame.MAX_LEGAL_MOVES];
+  }
+
+  /**
+   * Returns how many bytes the search's tables take up right now.
+   */
+  private long getMemoryBytes()
+  {
+    long stack = (long) moves.length * (Integer.BYTES * 3 + 8)
+        + (long) path.length * Integer.BYTES;
+    for (int[] row : moves)
+    {
+      if (row == null)
+        break;
+      stack += (long) row.length * Integer.BYTES;
+    }
+    return visited.getMemoryBytes() + stack;
+  }
+}
@@ -38,9 +38,23 @@
  *     The waste's pile ID is {@code 0}.
  *   </li>
  * </ul>
+ *
+ * <p>
+ *   A move can also be packed into a single {@code int}, using
+ *   {@link #encode(PileType, int, PileType, int)}. This is handy for code
+ *   that deals with lots of moves at once (like
+ *   {@link SolitaireGame#legalMoves(int[])}), since it doesn't need to
+ *   allocate a {@code Move} object for each one.
+ * </p>
  */
 class Move
 {
+  /**
+   * All of the pile types, indexed by their ordinals. ({@code values()}
+   * makes a new array every time it's called.)
+   */
+  private static final PileType[] PILE_TYPES = PileType.values();
+
   private final PileType startType;
   private final int startID;
   private final PileType destinationType;
@@ -128,4 +142,116 @@ class Move
   {
     return destinationID;
   }
+
+  /**
+   * Returns this move packed into a single {@code int}.
+   *
+   * @return The encoded move, as described in
+   *   {@link #encode(PileType, int, PileType, int)}.
+   */
+  int encode()
+  {
+    return encode(startType, startID, destinationType, destinationID);
+  }
+
+  /**
+   * Pack a move into a single {@code int}.
+   *
+   * <p>
+   *   The lowest three bits hold the destination ID, the next two bits hold
+   *   the destination type's ordinal, and then the start ID and start type
+   *   follow in the same way. So every encoded move is between {@code 0}
+   *   and {@code 1023}, and two moves are the same if and only if their
+   *   encodings are equal.
+   * </p>
+   *
+   * @param startType The type of pile that we're moving cards from.
+   *
+   * @param startID The ID number of the pile that we're moving cards from.
+   *
+   * @param destinationType The type of pile that we're moving cards to.
+   *
+   * @param destinationID The number of the pile that we're moving cards to.
+   *
+   * @return The encoded move.
+   */
+  static int encode(
+      PileType startType,
+      int startID,
+      PileType destinationType,
+      int destinationID)
+  {
+    return startType.ordinal() << 8
+        | startID << 5
+        | destinationType.ordinal() << 3
+        | destinationID;
+  }
+
+  /**
+   * Unpack an encoded move into a {@code Move} object.
+   *
+   * @param code A move, as returned by
+   *   {@link #encode(PileType, int, PileType, int)}.
+   *
+   * @return The same move, as an object.
+   */
+  static Move decode(int code)
+  {
+    return new Move(
+        startTypeOf(code),
+        startIDOf(code),
+        destinationTypeOf(code),
+        destinationIDOf(code));
+  }
+
+  /**
+   * Returns the type of pile that an encoded move takes cards from.
+   *
+   * @param code An encoded move.
+   * @return The start pile's type.
+   */
+  static PileType startTypeOf(int code)
+  {
+    return PILE_TYPES[code >>> 8 & 0b11];
+  }
+
+  /**
+   * Returns the ID of the pile that an encoded move takes cards from.
+   *
+   * @param code An encoded move.
+   * @return The start pile's ID number.
+   */
+  static int startIDOf(int code)
+  {
+    return code >>> 5 & 0b111;
+  }
+
+  /**
+   * Returns the type of pile that an encoded move puts cards on.
+   *
+   * @param code An encoded move.
+   * @return The destination pile's type.
+   */
+  static PileType destinationTypeOf(int code)
+  {
+    return PILE_TYPES[code >>> 3 & 0b11];
+  }
+
+  /**
+   * Returns the ID of the pile that an encoded move puts cards on.
+   *
+   * @param code An encoded move.
+   * @return The destination pile's ID number.
+   */
+  static int destinationIDOf(int code)
+  {
+    return code & 0b111;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format(
+        "%s %d -> %s %d", startType, startID, destinationType, destinationID);
+  }
 }
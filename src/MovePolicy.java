@@ -0,0 +1,37 @@
+/**
+ * A way of choosing moves automatically, for playing games without a user.
+ *
+ * <p>
+ *   A policy is told about each new game with {@link #startGame}, and then
+ *   asked for one move at a time with {@link #chooseMove} until the game is
+ *   won or the policy gives up. It may keep state between calls (such as a
+ *   random number generator, or a list of moves it worked out in advance),
+ *   so each thread should have a policy of its own.
+ * </p>
+ */
+interface MovePolicy
+{
+  /**
+   * Get ready to play a new game.
+   *
+   * @param game The game, in its starting position.
+   * @param seed The seed the game was dealt from. (A policy that makes
+   *   random choices can use this to make them the same way every time the
+   *   deal is played.)
+   */
+  default void startGame(SolitaireGame game, long seed)
+  {
+  }
+
+  /**
+   * Choose the next move to make.
+   *
+   * @param game The game, in its current position. The policy may make and
+   *   unmake moves to look ahead, but it has to leave the game in the same
+   *   position.
+   * @return A legal move, encoded by
+   *   {@link Move#encode(PileType, int, PileType, int)}, or {@code -1} to
+   *   give up on the game.
+   */
+  int chooseMove(SolitaireGame game);
+}
@@ -0,0 +1,68 @@
+/**
+ * These enum values represent the result of trying to make a move.
+ *
+ * <p>
+ *   {@link SolitaireGame#tryMove(Move)} returns one of these instead of
+ *   throwing an {@link IllegalMoveException}. Either the move was
+ *   {@link #LEGAL} (and it has been made), or one of the other values says
+ *   why the move is against the rules.
+ * </p>
+ */
+enum MoveStatus
+{
+  /**
+   * The move was legal, and the game state was changed accordingly.
+   */
+  LEGAL(null),
+
+  TABLEAU_TO_STOCK("Can't move from a tableau to the stock"),
+  TABLEAU_TO_WASTE("Can't move from a tableau to the waste"),
+  STOCK_TO_TABLEAU("Can't move from the stock to a tableau"),
+  STOCK_TO_FOUNDATION("Can't move from the stock to a foundation"),
+  FOUNDATION_TO_FOUNDATION("Can't move from one foundation to another."),
+  FOUNDATION_TO_STOCK("Can't move from a foundation to the stock."),
+  FOUNDATION_TO_WASTE("Can't move from a foundation to the waste."),
+
+  ACE_ON_TABLEAU("Can't move to tableau with Ace on top"),
+  EMPTY_TABLEAU("Can't move cards from an empty tableau"),
+  NO_VIABLE_CARDS("No viable cards found in the starting tableau"),
+  NOTHING_TO_DRAW("There are no cards left to draw from the waste or stock"),
+  EMPTY_WASTE("Can't move cards from an empty waste"),
+  WASTE_CARD_DOES_NOT_FIT("The waste card cannot be added to the tableau"),
+  EMPTY_TABLEAU_TO_FOUNDATION("Can't move anything from an empty tableau"),
+  CARD_DOES_NOT_FIT_FOUNDATION("That card can't be added to this foundation"),
+  EMPTY_FOUNDATION("Can't move from an empty foundation"),
+  FOUNDATION_CARD_DOES_NOT_FIT(
+      "Can't move card from that foundation to that tableau");
+
+  /**
+   * A message explaining why the move is illegal.
+   */
+  private final String message;
+
+  MoveStatus(String message)
+  {
+    this.message = message;
+  }
+
+  /**
+   * Returns whether this status means the move was made.
+   *
+   * @return {@code true} for {@link #LEGAL}, and {@code false} otherwise.
+   */
+  boolean isLegal()
+  {
+    return this == LEGAL;
+  }
+
+  /**
+   * Returns a message explaining why the move is illegal.
+   *
+   * @return A message that's suitable to display to the user, or
+   *   {@code null} if the move was legal.
+   */
+  String getMessage()
+  {
+    return message;
+  }
+}
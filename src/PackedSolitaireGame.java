@@ -0,0 +1,633 @@
+/**
+ * A compact alternative to {@link SolitaireGame}, which keeps the whole
+ * deal in a handful of primitive arrays.
+ *
+ * <p>
+ *   It plays by exactly the same rules as {@code SolitaireGame}: the
+ *   {@link #makeMove(Move)} and {@link #hasWon()} methods accept the same
+ *   moves, reject the same moves (with the same messages), and report a win
+ *   at the same time. It just stores its state differently.
+ * </p>
+ *
+ * <h2>How the cards are stored</h2>
+ *
+ * <p>
+ *   Every card is a single {@code byte}: its ID, as described in
+ *   {@link Card}. (So the clubs are 0 through 12, the diamonds are 13
+ *   through 25, and so on.) Conveniently, that's also the order of the
+ *   foundations, so card {@code c} always belongs on foundation
+ *   {@code c / 13}.
+ * </p>
+ *
+ * <ul>
+ *   <li>
+ *     {@code tableauCards} holds seven fixed-size slices of
+ *     {@value #TABLEAU_CAPACITY} slots each, bottom card first. The
+ *     {@code tableauSizes} and {@code faceDownCounts} arrays say how many
+ *     slots of each slice are in use and how many of those (counting from
+ *     the bottom) are face-down.
+ *   </li>
+ *   <li>
+ *     The foundations only ever hold one suit, in order, so we just store
+ *     the rank on top of each one in {@code foundationRanks}. (Zero means
+ *     the foundation is empty.)
+ *   </li>
+ *   <li>
+ *     The stock and the waste share the {@code talon} array. The first
+ *     {@code wasteSize} slots are the waste (bottom to top), and the rest
+ *     of the first {@code talonSize} slots are the stock (top to bottom).
+ *     Drawing a card just moves the {@code wasteSize} cursor forward, and
+ *     recycling the waste back into the stock just resets it to zero.
+ *   </li>
+ * </ul>
+ *
+ * <h2>Memory usage</h2>
+ *
+ * <p>
+ *   On a 64-bit JVM with compressed pointers, one
+ *   {@code PackedSolitaireGame} takes 304 bytes: a 40-byte object, plus
+ *   152 + 24 + 24 + 24 + 40 bytes for its five arrays. When this class was
+ *   written, a freshly dealt {@code SolitaireGame} (which kept its piles in
+ *   {@code Stack}s and concurrent queues) took about 3,070 bytes, measured
+ *   over 100,000 games, so a packed game was a little over ten times
+ *   smaller. Most of that difference is the 52 {@code Card} objects and
+ *   the per-pile objects, which a packed game doesn't need.
+ * </p>
+ */
+class PackedSolitaireGame
+{
+  /**
+   * The most cards a tableau can ever hold: six face-down cards, plus a
+   * whole run from a king down to an ace.
+   */
+  static final int TABLEAU_CAPACITY = SolitaireGame.TABLEAU_CAPACITY;
+
+  /**
+   * The number of cards that are left over for the stock after the
+   * tableaus have been dealt.
+   */
+  static final int TALON_CAPACITY = SolitaireGame.TALON_CAPACITY;
+
+  private final byte[] tableauCards = new byte[7 * TABLEAU_CAPACITY];
+  private final byte[] tableauSizes = new byte[7];
+  private final byte[] faceDownCounts = new byte[7];
+  private final byte[] foundationRanks = new byte[4];
+  private final byte[] talon = new byte[TALON_CAPACITY];
+  private int talonSize;
+  private int wasteSize;
+
+  /**
+   * Create a new, randomly shuffled solitaire game.
+   *
+   * <p>
+   *   The cards are dealt the same way that {@link SolitaireGame} deals
+   *   them, so the game should be ready to start immediately.
+   * </p>
+   */
+  PackedSolitaireGame()
+  {
+    this(Deal.randomSeed());
+  }
+
+  /**
+   * Create a new solitaire game, shuffled by the given seed.
+   *
+   * <p>
+   *   This deals exactly the same game as {@link SolitaireGame#SolitaireGame(long)}
+   *   does with the same seed.
+   * </p>
+   *
+   * @param seed The seed to shuffle the cards with.
+   */
+  PackedSolitaireGame(long seed)
+  {
+    byte[] deck = Deal.shuffle(seed);
+
+    // Deal from the back of the deck onto the tableaus, just like
+    // SolitaireGame does. The top card of each tableau is face-up.
+    int next = deck.length - 1;
+    for (int i = 0; i < 7; i++)
+    {
+      for (int j = 0; j <= i; j++)
+      {
+        tableauCards[i * TABLEAU_CAPACITY + j] = deck[next--];
+      }
+      tableauSizes[i] = (byte) (i + 1);
+      faceDownCounts[i] = (byte) i;
+    }
+
+    // Whatever is left over goes into the stock, front of the deck first.
+    talonSize = next + 1;
+    System.arraycopy(deck, 0, talon, 0, talonSize);
+  }
+
+  /**
+   * Create a packed copy of an existing solitaire game.
+   *
+   * <p>
+   *   The new game starts out in exactly the same position as
+   *   {@code game}, but the two games are independent afterwards.
+   * </p>
+   *
+   * @param game The game to copy. This constructor will not mutate it.
+   */
+  PackedSolitaireGame(SolitaireGame game)
+  {
+    for (int i = 0; i < 7; i++)
+    {
+      PileView tableau = game.getTableau(i);
+      for (int j = 0; j < tableau.size(); j++)
+      {
+        tableauCards[i * TABLEAU_CAPACITY + j] = (byte) tableau.get(j).getId();
+      }
+      tableauSizes[i] = (byte) tableau.size();
+      faceDownCounts[i] = (byte) tableau.getFaceDownCount();
+    }
+
+    for (int i = 0; i < 4; i++)
+    {
+      foundationRanks[i] = (byte) game.getFoundation(i).size();
+    }
+
+    // The waste goes in bottom card first, but the stock goes in top card
+    // first.
+    PileView waste = game.getWaste();
+    for (int i = 0; i < waste.size(); i++)
+    {
+      talon[wasteSize++] = (byte) waste.get(i).getId();
+    }
+    talonSize = wasteSize;
+    PileView stock = game.getStock();
+    for (int i = stock.size() - 1; i >= 0; i--)
+    {
+      talon[talonSize++] = (byte) stock.get(i).getId();
+    }
+  }
+
+  /**
+   * Create a copy of another packed game.
+   *
+   * @param other The game to copy. This constructor will not mutate it.
+   */
+  PackedSolitaireGame(PackedSolitaireGame other)
+  {
+    System.arraycopy(other.tableauCards, 0, tableauCards, 0, tableauCards.length);
+    System.arraycopy(other.tableauSizes, 0, tableauSizes, 0, tableauSizes.length);
+    System.arraycopy(other.faceDownCounts, 0, faceDownCounts, 0, faceDownCounts.length);
+    System.arraycopy(other.foundationRanks, 0, foundationRanks, 0, foundationRanks.length);
+    System.arraycopy(other.talon, 0, talon, 0, talon.length);
+    talonSize = other.talonSize;
+    wasteSize = other.wasteSize;
+  }
+
+  /**
+   * Returns the number of cards in the given tableau.
+   *
+   * @param tableau The tableau's ID number (0 through 6).
+   * @return The number of cards in the tableau, face-up or face-down.
+   */
+  int getTableauSize(int tableau)
+  {
+    return tableauSizes[tableau];
+  }
+
+  /**
+   * Returns the number of face-down cards at the bottom of the given
+   * tableau.
+   *
+   * @param tableau The tableau's ID number (0 through 6).
+   * @return The number of face-down cards in the tableau.
+   */
+  int getFaceDownCount(int tableau)
+  {
+    return faceDownCounts[tableau];
+  }
+
+  /**
+   * Returns one card from a tableau.
+   *
+   * @param tableau The tableau's ID number (0 through 6).
+   * @param index The position of the card in the tableau, counting up
+   *   from 0 at the bottom.
+   * @return The packed card, as described in the class documentation.
+   */
+  byte getTableauCard(int tableau, int index)
+  {
+    return tableauCards[tableau * TABLEAU_CAPACITY + index];
+  }
+
+  /**
+   * Returns the rank of the card on top of the given foundation.
+   *
+   * @param foundation The foundation's ID number (0 through 3).
+   * @return The rank of the top card, or 0 if the foundation is empty.
+   */
+  int getFoundationRank(int foundation)
+  {
+    return foundationRanks[foundation];
+  }
+
+  /**
+   * Returns the number of cards in the stock.
+   *
+   * @return The number of cards in the stock.
+   */
+  int getStockSize()
+  {
+    return talonSize - wasteSize;
+  }
+
+  /**
+   * Returns one card from the stock.
+   *
+   * @param index The position of the card in the stock, counting down
+   *   from 0 at the top. (So the card at index 0 is the next one drawn.)
+   * @return The packed card, as described in the class documentation.
+   */
+  byte getStockCard(int index)
+  {
+    return talon[wasteSize + index];
+  }
+
+  /**
+   * Returns the number of cards in the waste.
+   *
+   * @return The number of cards in the waste.
+   */
+  int getWasteSize()
+  {
+    return wasteSize;
+  }
+
+  /**
+   * Returns one card from the waste.
+   *
+   * @param index The position of the card in the waste, counting down
+   *   from 0 at the top.
+   * @return The packed card, as described in the class documentation.
+   */
+  byte getWasteCard(int index)
+  {
+    return talon[wasteSize - 1 - index];
+  }
+
+  /**
+   * Return whether the user has won the game yet.
+   *
+   * <p>
+   *   Just like in {@link SolitaireGame#hasWon()}, the user has won if and
+   *   only if all of the cards on the tableaus are turned face-up.
+   * </p>
+   *
+   * @return {@code true} if the user has won the game, and {@code false} if
+   *   not.
+   */
+  boolean hasWon()
+  {
+    for (byte faceDown : faceDownCounts)
+    {
+      if (faceDown != 0)
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Given a move that the user wants to make, execute that move.
+   *
+   * <p>
+   *   This method behaves exactly like {@link SolitaireGame#makeMove(Move)}.
+   * </p>
+   *
+   * @param move The move the user wants to make.
+   *
+   * @throws IllegalMoveException If the move in question is against the
+   *   rules. (The message is the same one {@code SolitaireGame} would
+   *   use.)
+   */
+  void makeMove(Move move) throws IllegalMoveException
+  {
+    MoveStatus status = tryMove(move);
+
+    if (!status.isLegal())
+      throw new IllegalMoveException(status);
+  }
+
+  /**
+   * Given a move that the user wants to make, execute that move if it's
+   * legal.
+   *
+   * <p>
+   *   This method behaves exactly like {@link SolitaireGame#tryMove(Move)}.
+   * </p>
+   *
+   * @param move The move the user wants to make.
+   *
+   * @return {@link MoveStatus#LEGAL} if the move was made, or the reason
+   *   it's against the rules. (The same one {@code SolitaireGame} would
+   *   give.)
+   */
+  MoveStatus tryMove(Move move)
+  {
+    int startID = move.getStartID();
+    int endID = move.getDestinationID();
+    PileType endType = move.getDestinationType();
+
+    switch (move.getStartType())
+    {
+      case TABLEAU:
+        switch (endType)
+        {
+          case FOUNDATION:
+            return tableauToFoundation(startID, endID);
+          case TABLEAU:
+            return tableauToTableau(startID, endID);
+          case STOCK:
+            return MoveStatus.TABLEAU_TO_STOCK;
+          case WASTE:
+          default:
+            return MoveStatus.TABLEAU_TO_WASTE;
+        }
+      case STOCK:
+        switch (endType)
+        {
+          case STOCK:
+          case WASTE:
+            return wastePileDraw();
+          case TABLEAU:
+            return MoveStatus.STOCK_TO_TABLEAU;
+          case FOUNDATION:
+          default:
+            return MoveStatus.STOCK_TO_FOUNDATION;
+        }
+      case WASTE:
+        switch (endType)
+        {
+          case STOCK:
+          case WASTE:
+            return wastePileDraw();
+          case TABLEAU:
+            return wasteToTableau(endID);
+          case FOUNDATION:
+          default:
+            return wasteToFoundation(endID);
+        }
+      case FOUNDATION:
+      default:
+        switch (endType)
+        {
+          case TABLEAU:
+            return foundationToTableau(startID, endID);
+          case FOUNDATION:
+            return MoveStatus.FOUNDATION_TO_FOUNDATION;
+          case STOCK:
+            return MoveStatus.FOUNDATION_TO_STOCK;
+          case WASTE:
+          default:
+            return MoveStatus.FOUNDATION_TO_WASTE;
+        }
+    }
+  }
+
+  /**
+   * Move a run of face-up cards from one tableau to another.
+   *
+   * @param startTableau The tableau the cards come from.
+   * @param endTableau The tableau the cards end up on.
+   */
+  private MoveStatus tableauToTableau(int startTableau, int endTableau)
+  {
+    int endSize = tableauSizes[endTableau];
+    int requiredRank = requiredTableauRank(endTableau);
+    if (requiredRank == 0)
+      return MoveStatus.ACE_ON_TABLEAU;
+
+    int startSize = tableauSizes[startTableau];
+    if (startSize == 0)
+      return MoveStatus.EMPTY_TABLEAU;
+
+    // Find the first face-up card, from the bottom, that fits on the
+    // destination. (Just like SolitaireGame.getEndOfStack.)
+    int startBase = startTableau * TABLEAU_CAPACITY;
+    int stoppingIndex = -1;
+    for (int i = faceDownCounts[startTableau]; i < startSize; i++)
+    {
+      if (fitsOnTableau(tableauCards[startBase + i], endTableau, requiredRank))
+      {
+        stoppingIndex = i;
+        break;
+      }
+    }
+
+    if (stoppingIndex == -1)
+      return MoveStatus.NO_VIABLE_CARDS;
+
+    int count = startSize - stoppingIndex;
+    System.arraycopy(
+        tableauCards, startBase + stoppingIndex,
+        tableauCards, endTableau * TABLEAU_CAPACITY + endSize,
+        count);
+    tableauSizes[endTableau] = (byte) (endSize + count);
+    tableauSizes[startTableau] = (byte) stoppingIndex;
+
+    revealTopOfTableau(startTableau);
+    return MoveStatus.LEGAL;
+  }
+
+  /**
+   * Move the top card of the stock onto the waste, or recycle the waste
+   * back into the stock if the stock is empty.
+   */
+  private MoveStatus wastePileDraw()
+  {
+    if (talonSize == 0)
+      return MoveStatus.NOTHING_TO_DRAW;
+
+    if (wasteSize == talonSize)
+      wasteSize = 0;
+    else
+      wasteSize++;
+
+    return MoveStatus.LEGAL;
+  }
+
+  /**
+   * Move the top card of the waste onto a tableau.
+   *
+   * @param endTableau The tableau that we're moving the card to.
+   */
+  private MoveStatus wasteToTableau(int endTableau)
+  {
+    int requiredRank = requiredTableauRank(endTableau);
+    if (requiredRank == 0)
+      return MoveStatus.ACE_ON_TABLEAU;
+
+    if (wasteSize == 0)
+      return MoveStatus.EMPTY_WASTE;
+
+    byte card = talon[wasteSize - 1];
+    if (!fitsOnTableau(card, endTableau, requiredRank))
+      return MoveStatus.WASTE_CARD_DOES_NOT_FIT;
+
+    removeTopOfWaste();
+    pushOntoTableau(endTableau, card);
+    return MoveStatus.LEGAL;
+  }
+
+  /**
+   * Move the top card of the waste onto a foundation.
+   *
+   * @param foundation The foundation that we're moving the card to.
+   */
+  private MoveStatus wasteToFoundation(int foundation)
+  {
+    if (wasteSize == 0)
+      return MoveStatus.EMPTY_WASTE;
+
+    if (!fitsOnFoundation(talon[wasteSize - 1], foundation))
+      return MoveStatus.CARD_DOES_NOT_FIT_FOUNDATION;
+
+    removeTopOfWaste();
+    foundationRanks[foundation]++;
+    return MoveStatus.LEGAL;
+  }
+
+  /**
+   * Move the top card of a tableau onto a foundation.
+   *
+   * @param tableau The number of the start tableau.
+   * @param foundation The number of the destination foundation.
+   */
+  private MoveStatus tableauToFoundation(int tableau, int foundation)
+  {
+    int size = tableauSizes[tableau];
+    if (size == 0)
+      return MoveStatus.EMPTY_TABLEAU_TO_FOUNDATION;
+
+    byte card = tableauCards[tableau * TABLEAU_CAPACITY + size - 1];
+    if (!fitsOnFoundation(card, foundation))
+      return MoveStatus.CARD_DOES_NOT_FIT_FOUNDATION;
+
+    tableauSizes[tableau] = (byte) (size - 1);
+    foundationRanks[foundation]++;
+
+    revealTopOfTableau(tableau);
+    return MoveStatus.LEGAL;
+  }
+
+  /**
+   * Move the top card of a foundation back onto a tableau.
+   *
+   * @param foundation The number of the start foundation.
+   * @param tableau The number of the destination tableau.
+   */
+  private MoveStatus foundationToTableau(int foundation, int tableau)
+  {
+    int rank = foundationRanks[foundation];
+    if (rank == 0)
+      return MoveStatus.EMPTY_FOUNDATION;
+
+    int requiredRank = requiredTableauRank(tableau);
+    if (requiredRank == 0)
+      return MoveStatus.ACE_ON_TABLEAU;
+
+    byte card = (byte) (foundation * 13 + rank - 1);
+    if (!fitsOnTableau(card, tableau, requiredRank))
+      return MoveStatus.FOUNDATION_CARD_DOES_NOT_FIT;
+
+    foundationRanks[foundation]--;
+    pushOntoTableau(tableau, card);
+    return MoveStatus.LEGAL;
+  }
+
+  /**
+   * Returns the rank that the next card on a tableau should be.
+   *
+   * @param tableau The number of the tableau.
+   * @return 13 if the tableau is empty, or one less than the rank of its top
+   *   card. (So if there's an ace on top, this is 0, and nothing fits.)
+   */
+  private int requiredTableauRank(int tableau)
+  {
+    int size = tableauSizes[tableau];
+    if (size == 0)
+      return 13;
+
+    return Card.rankOf(tableauCards[tableau * TABLEAU_CAPACITY + size - 1]) - 1;
+  }
+
+  /**
+   * Returns whether a card may be placed on top of a tableau.
+   *
+   * @param card The packed card to place.
+   * @param tableau The number of the tableau.
+   * @param requiredRank The result of {@link #requiredTableauRank(int)} for
+   *   that tableau.
+   * @return {@code true} if the card's rank and color are right.
+   */
+  private boolean fitsOnTableau(byte card, int tableau, int requiredRank)
+  {
+    if (Card.rankOf(card) != requiredRank)
+      return false;
+
+    int size = tableauSizes[tableau];
+    if (size == 0)
+      return true;
+
+    byte topCard = tableauCards[tableau * TABLEAU_CAPACITY + size - 1];
+    return Card.colorOf(card) != Card.colorOf(topCard);
+  }
+
+  /**
+   * Returns whether a card may be placed on top of a foundation.
+   *
+   * @param card The packed card to place.
+   * @param foundation The number of the foundation.
+   * @return {@code true} if the card has the foundation's suit and the next
+   *   rank up.
+   */
+  private boolean fitsOnFoundation(byte card, int foundation)
+  {
+    // A full foundation's "next card" would be the next suit's ace.
+    int rank = foundationRanks[foundation];
+    return rank < 13 && card == foundation * 13 + rank;
+  }
+
+  /**
+   * Put a face-up card on top of a tableau.
+   */
+  private void pushOntoTableau(int tableau, byte card)
+  {
+    int size = tableauSizes[tableau];
+    tableauCards[tableau * TABLEAU_CAPACITY + size] = card;
+    tableauSizes[tableau] = (byte) (size + 1);
+  }
+
+  /**
+   * Take the top card off of the waste, closing the gap it leaves in the
+   * talon.
+   */
+  private void removeTopOfWaste()
+  {
+    System.arraycopy(
+        talon, wasteSize,
+        talon, wasteSize - 1,
+        talonSize - wasteSize);
+    wasteSize--;
+    talonSize--;
+  }
+
+  /**
+   * Flip the top card of a tableau face-up, if it isn't already.
+   *
+   * @param tableau The number of the tableau.
+   */
+  private void revealTopOfTableau(int tableau)
+  {
+    if (faceDownCounts[tableau] == tableauSizes[tableau]
+        && faceDownCounts[tableau] > 0)
+    {
+      faceDownCounts[tableau]--;
+    }
+  }
+}
@@ -0,0 +1,470 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class searches for a way to win a game of solitaire using every core
+ * of the machine.
+ *
+ * <p>
+ *   It finds the same kind of answer as {@link KlondikeSolver}, using the
+ *   same safe moves to the foundations and the same move ordering, but it
+ *   splits the search tree up between the threads of a
+ *   {@link ForkJoinPool}.
+ * </p>
+ *
+ * <h2>How the work is split up</h2>
+ *
+ * <p>
+ *   Each task searches its part of the tree depth-first on its own copy of
+ *   the game, just like {@code KlondikeSolver} does. Every so often it
+ *   checks whether its own queue has run dry (which means the other
+ *   workers are likely to be out of work too, since they steal from it). If
+ *   so, it hands off the untried moves at the shallowest level of its
+ *   search as a new task. Moves near the root have the biggest subtrees
+ *   under them, so one hand-off keeps another worker busy for a long time;
+ *   and since tasks are only split when somebody needs work, the number of
+ *   tasks (and game copies) stays small.
+ * </p>
+ *
+ * <p>
+ *   All the tasks share one {@link ConcurrentTranspositionTable}, so once
+ *   any worker has searched a position, no other worker will search it
+ *   again. As soon as one worker finds a win, every other worker stops at
+ *   its next node.
+ * </p>
+ *
+ * <p>
+ *   Because the workers race each other, the winning moves found can be
+ *   different from run to run (and from what {@code KlondikeSolver} finds),
+ *   although they're always a real win.
+ * </p>
+ */
+class ParallelKlondikeSolver
+{
+  /**
+   * How many steps a task takes through its search between checks for
+   * idle workers.
+   */
+  private static final int SPLIT_CHECK_INTERVAL = 64;
+
+  /**
+   * How many nodes a task searches between reporting its node count (and
+   * checking the budgets).
+   */
+  private static final int BUDGET_CHECK_INTERVAL = 1024;
+
+  /**
+   * How many entries a transposition table starts with. (That's 32 KiB;
+   * it grows from there as the search needs it.)
+   */
+  private static final int INITIAL_TABLE_CAPACITY = 1 << 12;
+
+  /**
+   * The most entries a transposition table can grow to, whatever the node
+   * budget. (That's 128 MiB, unless the heap is too small for it; see
+   * {@link #maxTableCapacity(long)}.)
+   */
+  private static final int MAX_TABLE_CAPACITY = 1 << 24;
+
+  private final ForkJoinPool pool;
+  private final long nodeBudget;
+  private final long timeBudgetNanos;
+
+  /**
+   * Create a solver that runs in the common pool.
+   *
+   * @param nodeBudget The most nodes to search (between all the workers)
+   *   before giving up.
+   * @param timeBudgetMillis The most time to search for before giving up,
+   *   in milliseconds.
+   */
+  ParallelKlondikeSolver(long nodeBudget, long timeBudgetMillis)
+  {
+    this(ForkJoinPool.commonPool(), nodeBudget, timeBudgetMillis);
+  }
+
+  /**
+   * Create a solver that runs in the given pool.
+   *
+   * @param pool The pool to run the search in.
+   * @param nodeBudget The most nodes to search (between all the workers)
+   *   before giving up.
+   * @param timeBudgetMillis The most time to search for before giving up,
+   *   in milliseconds.
+   */
+  ParallelKlondikeSolver(ForkJoinPool pool, long nodeBudget, long timeBudgetMillis)
+  {
+    if (nodeBudget <= 0 || timeBudgetMillis <= 0)
+      throw new IllegalArgumentException("Budgets have to be positive");
+
+    this.pool = pool;
+    this.nodeBudget = nodeBudget;
+    this.timeBudgetNanos = timeBudgetMillis * 1_000_000L;
+  }
+
+  /**
+   * Search for a way to win a game from its current position.
+   *
+   * <p>
+   *   The search works on copies of {@code game}, so the game itself isn't
+   *   changed.
+   * </p>
+   *
+   * @param game The game to solve.
+   * @return The outcome of the search.
+   */
+  SolverResult solve(SolitaireGame game)
+  {
+    long start = System.nanoTime();
+    Search search = new Search(
+        new ConcurrentTranspositionTable(INITIAL_TABLE_CAPACITY, maxTableCapacity(nodeBudget)),
+        start + timeBudgetNanos);
+
+    //Make the root's safe moves once, before any work is split up
+    SolitaireGame root = new SolitaireGame(game);
+    int[] prefix = new int[0];
+    int code;
+    while ((code = KlondikeSolver.nextSafeFoundationMove(root)) >= 0)
+    {
+      root.tryMove(code);
+      prefix = Arrays.copyOf(prefix, prefix.length + 1);
+      prefix[prefix.length - 1] = code;
+    }
+    search.table.add(root.getPositionHash());
+
+    if (root.hasWon())
+    {
+      search.winningPath.set(prefix);
+    }
+    else
+    {
+      int[] rootMoves = new int[SolitaireGame.MAX_LEGAL_MOVES];
+      int count = KlondikeSolver.orderMoves(root, rootMoves, root.legalMoves(rootMoves));
+      pool.invoke(new SearchTask(search, root, prefix, rootMoves, count));
+    }
+
+    SolverResult.Status status;
+    List<Move> winningMoves = new ArrayList<>();
+    int[] path = search.winningPath.get();
+    if (path != null)
+    {
+      status = SolverResult.Status.WON;
+      for (int move : path)
+      {
+        winningMoves.add(Move.decode(move));
+      }
+    }
+    else if (search.budgetExhausted)
+      status = SolverResult.Status.BUDGET_EXHAUSTED;
+    else
+      status = SolverResult.Status.UNWINNABLE;
+
+    return new SolverResult(
+        status,
+        winningMoves,
+        search.nodes.get(),
+        System.nanoTime() - start,
+        search.table.getMemoryBytes() + search.peakStackBytes.get());
+  }
+
+  /**
+   * Work out the most entries a search's transposition table can grow to.
+   *
+   * <p>
+   *   There's no point in more than two entries per node in the budget, and
+   *   the table never takes more than an eighth of the heap. (While it's
+   *   doubling, the old array and the new one are both there, so for a
+   *   moment it takes three sixteenths.)
+   * </p>
+   *
+   * @param nodeBudget The search's node budget.
+   */
+  private static int maxTableCapacity(long nodeBudget)
+  {
+    long heapCapacity = Runtime.getRuntime().maxMemory() / 8 / Long.BYTES;
+    return (int) Math.min(MAX_TABLE_CAPACITY, Math.min(heapCapacity, nodeBudget * 2));
+  }
+
+  /**
+   * The state that all the tasks of one search share.
+   */
+  private static class Search
+  {
+    final ConcurrentTranspositionTable table;
+    final long deadline;
+
+    final AtomicLong nodes = new AtomicLong();
+    final AtomicBoolean stopped = new AtomicBoolean();
+    final AtomicReference<int[]> winningPath = new AtomicReference<>();
+
+    /**
+     * Set (before {@link #stopped}) if the search ran out of nodes or time.
+     */
+    volatile boolean budgetExhausted = false;
+
+    /**
+     * How many bytes the live tasks' search stacks take up between them,
+     * and the most they ever took up at once.
+     */
+    final AtomicLong stackBytes = new AtomicLong();
+    final AtomicLong peakStackBytes = new AtomicLong();
+
+    Search(ConcurrentTranspositionTable table, long deadline)
+    {
+      this.table = table;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Record that a task's stack grew or shrank.
+     *
+     * @param delta The change in size, in bytes.
+     */
+    void addStackBytes(long delta)
+    {
+      long live = stackBytes.addAndGet(delta);
+      peakStackBytes.accumulateAndGet(live, Math::max);
+    }
+  }
+
+  /**
+   * One piece of the search: every line of play that starts from one
+   * position with one of a given list of moves.
+   */
+  private class SearchTask extends RecursiveAction
+  {
+    private final Search search;
+    private final SolitaireGame game;
+    private final List<SearchTask> handedOff = new ArrayList<>();
+
+    //The search stack; see KlondikeSolver for what each array holds
+    private int[][] moves = new int[64][];
+    private int[] moveCounts = new int[64];
+    private int[] nextMoves = new int[64];
+    private int[] movesMade = new int[64];
+
+    /**
+     * How long {@link #path} was when the search reached each depth. (That's
+     * where to cut it to hand off the rest of that depth's moves.)
+     */
+    private int[] pathSizes = new int[64];
+
+    private int[] path;
+    private int pathSize;
+
+    private long stackBytes = 0;
+
+    /**
+     * Create a task.
+     *
+     * @param search The search this task is part of.
+     * @param game The game to search, in the position to start from. The task
+     *   takes ownership of it.
+     * @param prefix The moves from the original position to this one.
+     * @param rootMoves The moves to try from this position, best first.
+     * @param count How many moves there are.
+     */
+    SearchTask(Search search, SolitaireGame game, int[] prefix, int[] rootMoves, int count)
+    {
+      this.search = search;
+      this.game = game;
+
+      path = Arrays.copyOf(prefix, Math.max(256, prefix.length * 2));
+      pathSize = prefix.length;
+
+      moves[0] = rootMoves;
+      moveCounts[0] = count;
+      pathSizes[0] = pathSize;
+    }
+
+    @Override
+    protected void compute()
+    {
+      addStackBytes(
+          (long) moves.length * (Integer.BYTES * 5 + 8)
+          + (long) (path.length + moves[0].length) * Integer.BYTES);
+
+      int depth = 0;
+      long unreportedNodes = 0;
+      long steps = 0;
+      while (!search.stopped.get())
+      {
+        //This can give away the rest of the current level, so it has to come first
+        if (++steps % SPLIT_CHECK_INTERVAL == 0 && getSurplusQueuedTaskCount() <= 0)
+          handOffWork(depth);
+
+        if (nextMoves[depth] == moveCounts[depth])
+        {
+          //Every move from here has been tried, so back up a level
+          if (depth == 0)
+            break;
+          unmakeMoves(movesMade[depth]);
+          depth--;
+          continue;
+        }
+
+        if (++unreportedNodes == BUDGET_CHECK_INTERVAL)
+        {
+          reportNodes(unreportedNodes);
+          unreportedNodes = 0;
+        }
+
+        int code = moves[depth][nextMoves[depth]++];
+        game.tryMove(code);
+        pushPath(code);
+        int made = 1;
+        int safe;
+        while ((safe = KlondikeSolver.nextSafeFoundationMove(game)) >= 0)
+        {
+          game.tryMove(safe);
+          pushPath(safe);
+          made++;
+        }
+
+        if (game.hasWon())
+        {
+          if (search.winningPath.compareAndSet(null, Arrays.copyOf(path, pathSize)))
+            search.stopped.set(true);
+          break;
+        }
+
+        if (!search.table.add(game.getPositionHash()))
+        {
+          unmakeMoves(made);
+          continue;
+        }
+
+        depth++;
+        ensureDepth(depth);
+        movesMade[depth] = made;
+        pathSizes[depth] = pathSize;
+        int[] row = moves[depth];
+        moveCounts[depth] = KlondikeSolver.orderMoves(game, row, game.legalMoves(row));
+        nextMoves[depth] = 0;
+      }
+      search.nodes.addAndGet(unreportedNodes);
+      search.addStackBytes(-stackBytes);
+
+      for (SearchTask task : handedOff)
+      {
+        task.join();
+      }
+    }
+
+    /**
+     * Add some nodes to the search's total, and stop the search if it's
+     * over budget.
+     *
+     * @param count How many nodes to add.
+     */
+    private void reportNodes(long count)
+    {
+      long total = search.nodes.addAndGet(count);
+      if (total >= nodeBudget || System.nanoTime() - search.deadline > 0)
+      {
+        search.budgetExhausted = true;
+        search.stopped.set(true);
+      }
+    }
+
+    /**
+     * Give the untried moves at the shallowest level that has any to a new
+     * task, for some other worker to steal.
+     *
+     * @param depth The current depth of the search.
+     */
+    private void handOffWork(int depth)
+    {
+      for (int level = 0; level <= depth; level++)
+      {
+        if (nextMoves[level] == moveCounts[level])
+          continue;
+
+        //Take a copy of the game back to the position at that level
+        SolitaireGame copy = new SolitaireGame(game);
+        for (int i = pathSize; i > pathSizes[level]; i--)
+        {
+          copy.unmakeMove();
+        }
+
+        int[] rest = Arrays.copyOfRange(moves[level], nextMoves[level], moveCounts[level]);
+        moveCounts[level] = nextMoves[level];
+
+        SearchTask task = new SearchTask(
+            search, copy, Arrays.copyOf(path, pathSizes[level]), rest, rest.length);
+        task.fork();
+        handedOff.add(task);
+        return;
+      }
+    }
+
+    /**
+     * Undo the last few moves, both in the game and in {@link #path}.
+     *
+     * @param count How many moves to undo.
+     */
+    private void unmakeMoves(int count)
+    {
+      for (int i = 0; i < count; i++)
+      {
+        game.unmakeMove();
+      }
+      pathSize -= count;
+    }
+
+    /**
+     * Add a move to the end of {@link #path}.
+     *
+     * @param code The encoded move.
+     */
+    private void pushPath(int code)
+    {
+      if (pathSize == path.length)
+      {
+        path = Arrays.copyOf(path, pathSize * 2);
+        addStackBytes((long) pathSize * Integer.BYTES);
+      }
+      path[pathSize++] = code;
+    }
+
+    /**
+     * Make sure the search stack has room for the given depth.
+     *
+     * @param depth The depth the search is about to go to.
+     */
+    private void ensureDepth(int depth)
+    {
+      if (depth == moves.length)
+      {
+        moves = Arrays.copyOf(moves, depth * 2);
+        moveCounts = Arrays.copyOf(moveCounts, depth * 2);
+        nextMoves = Arrays.copyOf(nextMoves, depth * 2);
+        movesMade = Arrays.copyOf(movesMade, depth * 2);
+        pathSizes = Arrays.copyOf(pathSizes, depth * 2);
+        addStackBytes((long) depth * (Integer.BYTES * 5 + 8));
+      }
+      if (moves[depth] == null)
+      {
+        moves[depth] = new int[SolitaireGame.MAX_LEGAL_MOVES];
+        addStackBytes(SolitaireGame.MAX_LEGAL_MOVES * Integer.BYTES);
+      }
+    }
+
+    /**
+     * Record that this task's stack grew, and tell the search about it.
+     *
+     * @param bytes How much it grew by, in bytes.
+     */
+    private void addStackBytes(long bytes)
+    {
+      stackBytes += bytes;
+      search.addStackBytes(bytes);
+    }
+  }
+}
@@ -0,0 +1,293 @@
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * This class represents one pile of cards in a solitaire game.
+ *
+ * <p>
+ *   It's a stack with a fixed capacity. Cards are kept in an array, bottom
+ *   card first, along with the number of cards in use. Unlike
+ *   {@link java.util.Stack}, none of its methods are synchronized; a pile
+ *   only ever belongs to one {@link SolitaireGame}.
+ * </p>
+ *
+ * <p>
+ *   A pile also knows which of its cards are face-down. The face-down cards
+ *   are always the ones at the bottom of the pile, so all we need to store
+ *   is how many of them there are. (On a tableau, that number is also the
+ *   index where the run of face-up cards starts.)
+ * </p>
+ *
+ * <p>
+ *   Finally, a pile keeps a bitmask of the face-up cards in it, with bit
+ *   {@code n} set if the card with ID {@code n} is face-up in this pile.
+ *   That lets {@link SolitaireGame#legalMoves(int[])} check whether a
+ *   tableau has a card some other pile needs with a single {@code &}.
+ * </p>
+ *
+ * <p>
+ *   It also keeps a hash of its contents, built from the keys in
+ *   {@link Zobrist}. Every method that changes the pile updates the hash
+ *   with an {@code XOR} or two per card it touches.
+ * </p>
+ */
+class Pile implements PileView
+{
+  private final Card[] cards;
+  private int size = 0;
+  private int faceDownCount = 0;
+  private long faceUpMask = 0;
+  private final int firstSlot;
+  private long hash = 0;
+
+  /**
+   * Create a new, empty pile.
+   *
+   * @param capacity The most cards this pile will ever need to hold.
+   * @param zobristPile Which pile of the game this is, for hashing. (See
+   *   {@link Zobrist}; for example, {@link Zobrist#STOCK_PILE}.)
+   */
+  Pile(int capacity, int zobristPile)
+  {
+    if (capacity > Zobrist.SLOTS_PER_PILE)
+      throw new IllegalArgumentException(
+          "A pile can't hold more than " + Zobrist.SLOTS_PER_PILE + " cards");
+
+    cards = new Card[capacity];
+    firstSlot = Zobrist.firstSlotOf(zobristPile);
+  }
+
+  /**
+   * Create a copy of another pile, with the same cards in the same order.
+   *
+   * @param other The pile to copy.
+   */
+  Pile(Pile other)
+  {
+    cards = other.cards.clone();
+    size = other.size;
+    faceDownCount = other.faceDownCount;
+    faceUpMask = other.faceUpMask;
+    firstSlot = other.firstSlot;
+    hash = other.hash;
+  }
+
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  @Override
+  public Card get(int index)
+  {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException(
+          "Index " + index + " out of bounds for pile of size " + size);
+
+    return cards[index];
+  }
+
+  @Override
+  public Card peek()
+  {
+    if (size == 0)
+      throw new EmptyStackException();
+
+    return cards[size - 1];
+  }
+
+  @Override
+  public int getFaceDownCount()
+  {
+    return faceDownCount;
+  }
+
+  @Override
+  public boolean isFaceUp(int index)
+  {
+    return index >= faceDownCount;
+  }
+
+  /**
+   * Returns a bitmask of the face-up cards in this pile.
+   *
+   * @return A {@code long} with bit {@code n} set if the card with ID
+   *   {@code n} is in this pile and face-up.
+   */
+  long getFaceUpMask()
+  {
+    return faceUpMask;
+  }
+
+  /**
+   * Returns the hash of this pile's contents.
+   *
+   * @return The {@code XOR} of the {@link Zobrist} keys for each card in
+   *   this pile, and for each slot with a face-up card.
+   */
+  long getHash()
+  {
+    return hash;
+  }
+
+  /**
+   * Returns whether this pile holds the same cards as another one, in the
+   * same order, with the same ones face-up.
+   *
+   * @param other The pile to compare with.
+   */
+  boolean hasSameCards(Pile other)
+  {
+    return size == other.size
+        && faceDownCount == other.faceDownCount
+        && Arrays.equals(cards, 0, size, other.cards, 0, size);
+  }
+
+  /**
+   * Put a card on top of the pile, face-up.
+   *
+   * @param card The card to add.
+   */
+  void push(Card card)
+  {
+    int slot = firstSlot + size;
+    hash ^= Zobrist.cardKey(slot, card.getId()) ^ Zobrist.faceUpKey(slot);
+    cards[size++] = card;
+    faceUpMask |= 1L << card.getId();
+  }
+
+  /**
+   * Put a card on top of the pile, face-down.
+   *
+   * <p>
+   *   Since face-down cards have to stay at the bottom of the pile, this is
+   *   only allowed if every card already in the pile is face-down too.
+   * </p>
+   *
+   * @param card The card to add.
+   *
+   * @throws IllegalStateException If there are face-up cards in the pile.
+   */
+  void pushFaceDown(Card card)
+  {
+    if (faceDownCount != size)
+      throw new IllegalStateException(
+          "Can't put a face-down card on top of a face-up card");
+
+    hash ^= Zobrist.cardKey(firstSlot + size, card.getId());
+    cards[size++] = card;
+    faceDownCount++;
+  }
+
+  /**
+   * Take the top card off of the pile.
+   *
+   * @return The card that used to be on top.
+   *
+   * @throws EmptyStackException If the pile is empty.
+   */
+  Card pop()
+  {
+    if (size == 0)
+      throw new EmptyStackException();
+
+    Card card = cards[--size];
+    cards[size] = null;
+    int slot = firstSlot + size;
+    hash ^= Zobrist.cardKey(slot, card.getId());
+    if (faceDownCount > size)
+      faceDownCount = size;
+    else
+    {
+      faceUpMask &= ~(1L << card.getId());
+      hash ^= Zobrist.faceUpKey(slot);
+    }
+
+    return card;
+  }
+
+  /**
+   * Flip the top card of the pile face-up, if it's face-down.
+   *
+   * @return {@code true} if a card was flipped, and {@code false} if the
+   *   pile was empty or its top card was already face-up.
+   */
+  boolean revealTop()
+  {
+    if (size == 0 || faceDownCount < size)
+      return false;
+
+    faceDownCount--;
+    faceUpMask |= 1L << cards[size - 1].getId();
+    hash ^= Zobrist.faceUpKey(firstSlot + size - 1);
+    return true;
+  }
+
+  /**
+   * Flip the top card of the pile face-down. This undoes
+   * {@link #revealTop()}.
+   *
+   * @throws IllegalStateException If the top card isn't the only face-up
+   *   card in the pile.
+   */
+  void hideTop()
+  {
+    if (faceDownCount != size - 1)
+      throw new IllegalStateException(
+          "Only the bottom face-up card can be flipped face-down");
+
+    faceDownCount++;
+    faceUpMask &= ~(1L << cards[size - 1].getId());
+    hash ^= Zobrist.faceUpKey(firstSlot + size - 1);
+  }
+
+  /**
+   * Move the top {@code count} cards of this pile onto another pile, all
+   * at once.
+   *
+   * <p>
+   *   The cards keep their order; the card that was on top of this pile
+   *   ends up on top of {@code destination}. They're copied over in one
+   *   block, rather than being popped and pushed one at a time.
+   * </p>
+   *
+   * @param destination The pile to move the cards onto.
+   * @param count How many cards to move.
+   *
+   * @throws IllegalStateException If any of the cards to move are
+   *   face-down. (Only face-up runs can be moved.)
+   */
+  void moveTopCardsTo(Pile destination, int count)
+  {
+    if (count > size - faceDownCount)
+      throw new IllegalStateException("Can't move face-down cards as a run");
+
+    int from = size - count;
+    int to = destination.firstSlot + destination.size;
+    long movedMask = 0;
+    for (int i = from; i < size; i++)
+    {
+      int id = cards[i].getId();
+      movedMask |= 1L << id;
+
+      int fromSlot = firstSlot + i;
+      int toSlot = to + i - from;
+      hash ^= Zobrist.cardKey(fromSlot, id) ^ Zobrist.faceUpKey(fromSlot);
+      destination.hash ^= Zobrist.cardKey(toSlot, id) ^ Zobrist.faceUpKey(toSlot);
+    }
+    faceUpMask &= ~movedMask;
+    destination.faceUpMask |= movedMask;
+
+    System.arraycopy(cards, from, destination.cards, destination.size, count);
+    Arrays.fill(cards, from, size, null);
+    size = from;
+    destination.size += count;
+  }
+}
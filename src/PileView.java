@@ -0,0 +1,75 @@
+/**
+ * A read-only view of one pile of cards.
+ *
+ * <p>
+ *   {@link SolitaireGame} hands these out so that other classes (like the
+ *   {@link GameFormatter}) can look at its piles without being able to
+ *   change them.
+ * </p>
+ *
+ * <p>
+ *   Cards are numbered from the bottom of the pile, starting at {@code 0}.
+ *   So, the top card of a non-empty pile is always at index
+ *   {@code size() - 1}.
+ * </p>
+ */
+interface PileView
+{
+  /**
+   * Returns how many cards are in the pile.
+   *
+   * @return The number of cards in the pile.
+   */
+  int size();
+
+  /**
+   * Returns whether the pile has no cards in it.
+   *
+   * @return {@code true} if the pile is empty, and {@code false} if not.
+   */
+  boolean isEmpty();
+
+  /**
+   * Returns one card from the pile.
+   *
+   * @param index The position of the card, counting up from {@code 0} at
+   *   the bottom of the pile.
+   *
+   * @return The card at that position.
+   *
+   * @throws IndexOutOfBoundsException If there's no card at that position.
+   */
+  Card get(int index);
+
+  /**
+   * Returns the card on top of the pile.
+   *
+   * @return The top card.
+   *
+   * @throws java.util.EmptyStackException If the pile is empty.
+   */
+  Card peek();
+
+  /**
+   * Returns how many cards at the bottom of the pile are face-down.
+   *
+   * <p>
+   *   The face-down cards are always at the bottom of a pile; every card at
+   *   an index greater than or equal to this number is face-up.
+   * </p>
+   *
+   * @return The number of face-down cards in the pile.
+   */
+  int getFaceDownCount();
+
+  /**
+   * Returns whether one card in the pile is face-up.
+   *
+   * @param index The position of the card, counting up from {@code 0} at
+   *   the bottom of the pile.
+   *
+   * @return {@code true} if the card is face-up, and {@code false} if it's
+   *   face-down.
+   */
+  boolean isFaceUp(int index);
+}
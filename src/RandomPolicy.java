@@ -0,0 +1,29 @@
+import java.util.SplittableRandom;
+
+/**
+ * A policy that picks any legal move at all, at random.
+ *
+ * <p>
+ *   This is the baseline to compare the other policies to. Its choices come
+ *   from the deal's seed, so playing the same deal twice gives the same
+ *   game.
+ * </p>
+ */
+class RandomPolicy implements MovePolicy
+{
+  private final int[] moves = new int[SolitaireGame.MAX_LEGAL_MOVES];
+  private SplittableRandom random = new SplittableRandom();
+
+  @Override
+  public void startGame(SolitaireGame game, long seed)
+  {
+    random = new SplittableRandom(seed);
+  }
+
+  @Override
+  public int chooseMove(SolitaireGame game)
+  {
+    int count = game.legalMoves(moves);
+    return count == 0 ? -1 : moves[random.nextInt(count)];
+  }
+}
@@ -1,5 +1,4 @@
 import java.util.*;
-import java.util.concurrent.*;
 
 /**
  * This class is in charge of running the game of solitaire.
@@ -11,11 +10,136 @@ import java.util.concurrent.*;
  */
 class SolitaireGame
 {
-  private final ArrayList<Stack<Card>> tableaus;
-  private final ArrayList<Stack<Card>> foundations;
-  private final Queue<Card> stock;
-  private final Deque<Card> waste;
-  
+  /**
+   * The most cards a tableau can ever hold: six face-down cards, plus a
+   * whole run from a king down to an ace.
+   */
+  static final int TABLEAU_CAPACITY = 19;
+
+  /**
+   * The number of cards that are left over for the stock after the
+   * tableaus have been dealt. (The stock and the waste can never hold
+   * more than this between them.)
+   */
+  static final int TALON_CAPACITY = 24;
+
+  /**
+   * The most legal moves there can ever be in one position. (That's 42
+   * moves between tableaus, 28 from the foundations to the tableaus, 7 from
+   * the waste to the tableaus, 7 from the tableaus to the foundations, one
+   * from the waste to a foundation, and drawing from the stock.)
+   */
+  static final int MAX_LEGAL_MOVES = 86;
+
+  /**
+   * For each card ID, a bitmask of the cards that may be placed on top of
+   * that card on a tableau. (The bit for card ID {@code n} is
+   * {@code 1L << n}.)
+   */
+  private static final long[] TABLEAU_SUCCESSORS = new long[Card.NUMBER_OF_CARDS];
+
+  /**
+   * A bitmask of the four kings, which are the only cards that may be
+   * placed on an empty tableau.
+   */
+  static final long KINGS;
+
+  static {
+    long kings = 0;
+    for(int id = 0; id < Card.NUMBER_OF_CARDS; id++)
+    {
+      if(Card.rankOf(id) == 13)
+        kings |= 1L << id;
+
+      for(int next = 0; next < Card.NUMBER_OF_CARDS; next++)
+      {
+        if(Card.rankOf(next) == Card.rankOf(id) - 1
+           && Card.colorOf(next) != Card.colorOf(id))
+          TABLEAU_SUCCESSORS[id] |= 1L << next;
+      }
+    }
+    KINGS = kings;
+  }
+
+  /**
+   * Returns a bitmask of the cards that may be placed on top of a card on a
+   * tableau.
+   *
+   * @param cardId The ID of the card on top of the tableau.
+   * @return A {@code long} with the bit for card ID {@code n}
+   *   ({@code 1L << n}) set if that card fits.
+   */
+  static long tableauSuccessorsOf(int cardId)
+  {
+    return TABLEAU_SUCCESSORS[cardId];
+  }
+
+  private final Pile[] tableaus;
+  private final Pile[] foundations;
+  private final Pile stock;
+  private final Pile waste;
+
+  /**
+   * How many cards are face-down on the tableaus, and how many are on the
+   * foundations. Every move keeps these up to date, so {@link #hasWon()},
+   * {@link #isFullyRevealed()} and {@link #isComplete()} don't have to look
+   * at the piles.
+   */
+  private int faceDownCards;
+  private int foundationCards = 0;
+
+  /**
+   * A record of every move that's been made, so that they can be undone.
+   *
+   * <p>
+   *   Each move is one {@code int}: the move itself (encoded by
+   *   {@link Move#encode(PileType, int, PileType, int)}) in the low bits,
+   *   plus how many cards it moved and whether it flipped a tableau card
+   *   or turned the waste over. (See the {@code UNDO_} constants.) The
+   *   array grows as needed; {@code undoLogSize} says how much of it is in
+   *   use.
+   * </p>
+   */
+  private int[] undoLog = new int[64];
+  private int undoLogSize = 0;
+
+  /**
+   * The bits of an undo record that hold the encoded move.
+   */
+  private static final int UNDO_MOVE_MASK = 0x3FF;
+
+  /**
+   * How far to shift an undo record to get the number of cards the move
+   * moved. (There are five bits for it.)
+   */
+  private static final int UNDO_COUNT_SHIFT = 10;
+
+  /**
+   * This bit of an undo record is set if the move flipped over the top
+   * card of its start tableau.
+   */
+  private static final int UNDO_REVEALED = 1 << 15;
+
+  /**
+   * This bit of an undo record is set if the move turned the waste back
+   * over into the stock.
+   */
+  private static final int UNDO_RECYCLED = 1 << 16;
+
+  /**
+   * Who to tell about changes to the piles, or {@code null} if nobody's
+   * listening. (A copy of the game doesn't get its original's listener.)
+   */
+  private GameListener listener;
+
+  /**
+   * The changes that the listener hasn't been told about yet. They're
+   * held back while {@code openBatches} is more than zero, so that
+   * {@link #autoComplete()} can report everything it does at once.
+   */
+  private final List<GameChange> pendingChanges = new ArrayList<>();
+  private int openBatches = 0;
+
   /**
    * Create a new solitaire game.
    *
@@ -26,65 +150,119 @@ class SolitaireGame
    */
   SolitaireGame()
   {
-    //ArrayList to hold all our cards and shuffle them
-    ArrayList<Card> allCards = new ArrayList<>();
+    this(Deal.randomSeed());
+  }
 
-    //Create the cards and fill the array list
-    for(Suit currentSuit : Suit.values())
+  /**
+   * Create a new solitaire game, shuffled by the given seed.
+   *
+   * <p>
+   *   The same seed always deals the same game. (See {@link Deal}.)
+   * </p>
+   *
+   * @param seed The seed to shuffle the cards with.
+   */
+  SolitaireGame(long seed)
+  {
+    this(Deal.shuffle(seed));
+  }
+
+  /**
+   * Create a new solitaire game from a deck that's already been shuffled.
+   *
+   * @param deck The IDs of all 52 cards, in the order described by
+   *   {@link Deal}. This constructor will not mutate it.
+   *
+   * @throws IllegalArgumentException If {@code deck} isn't exactly one of
+   *   each card.
+   */
+  SolitaireGame(byte[] deck)
+  {
+    //Every card should show up exactly once
+    long seen = 0;
+    for(byte id : deck)
     {
-      for(int j = 0; j < 13; j++)
-      {
-        int currentRank = j + 1;
-        Card currentCard = new Card(currentRank, currentSuit);
-        allCards.add(currentCard);
-      }
+      //(A shift only uses the low six bits, so anything out of range has to be caught first)
+      if(id < 0 || id >= Card.NUMBER_OF_CARDS)
+        throw new IllegalArgumentException("There's no card with ID " + id);
+      seen |= 1L << id;
     }
+    if(deck.length != Card.NUMBER_OF_CARDS || seen != (1L << Card.NUMBER_OF_CARDS) - 1)
+      throw new IllegalArgumentException("A deck has to have each card exactly once");
 
-    //Shuffle all the cards
-    Collections.shuffle(allCards);
-
-    //Initialize the list of tableaus
-    tableaus = new ArrayList<>();
+    //Initialize the array of tableaus
+    tableaus = new Pile[7];
 
+    //Deal the tableaus from the back of the deck
+    int next = deck.length - 1;
     for(int i = 0; i < 7; i++)
     {
-      //Create the tableau
-      Stack<Card> currentTableau = new Stack<>();
-
-      //Fill the tableau with cards from the shuffled ArrayList
+      Pile currentTableau = new Pile(TABLEAU_CAPACITY, Zobrist.TABLEAU_PILES + i);
       for(int j = 0; j <= i; j++)
       {
-        int lastIndex = allCards.size() - 1;
-        Card currentCard = allCards.remove(lastIndex);
-        currentTableau.add(currentCard);
+        currentTableau.pushFaceDown(Card.of(deck[next--]));
       }
 
       //Show the top card
-      currentTableau.peek().setShowing(true);
-
-      //Add to the list of tableaus
-      tableaus.add(currentTableau);
+      currentTableau.revealTop();
+      tableaus[i] = currentTableau;
     }
+    faceDownCards = Deal.TABLEAU_CARDS - 7;
 
-    stock = new ConcurrentLinkedQueue<>();
+    stock = new Pile(TALON_CAPACITY, Zobrist.STOCK_PILE);
 
-    while(!allCards.isEmpty())
+    //The top of the stock is the end of the pile, so the front of the deck
+    //has to go in last
+    for(; next >= 0; next--)
     {
-      Card currentCard = allCards.remove(0);
-      stock.add(currentCard);
+      stock.pushFaceDown(Card.of(deck[next]));
     }
 
-    waste = new ConcurrentLinkedDeque<>();
+    waste = new Pile(TALON_CAPACITY, Zobrist.WASTE_PILE);
     //Create the foundations
-    foundations = new ArrayList<>();
+    foundations = new Pile[4];
     for(int i = 0; i < 4; i++)
     {
       //The foundations start out empty
-      Stack<Card> currentFoundation = new Stack<>();
-      foundations.add(currentFoundation);
+      foundations[i] = new Pile(13, Zobrist.FOUNDATION_PILES + i);
     }
   }
 
+  /**
+   * Create a copy of another game, in the same position.
+   *
+   * <p>
+   *   The copy has its own piles, so moves made in one game don't affect
+   *   the other. It gets a copy of the undo log too, so
+   *   {@link #unmakeMove()} can take the copy back through the moves that
+   *   were made in the original.
+   * </p>
+   *
+   * @param other The game to copy.
+   */
+  SolitaireGame(SolitaireGame other)
+  {
+    tableaus = new Pile[7];
+    for(int i = 0; i < 7; i++)
+    {
+      tableaus[i] = new Pile(other.tableaus[i]);
+    }
+
+    foundations = new Pile[4];
+    for(int i = 0; i < 4; i++)
+    {
+      foundations[i] = new Pile(other.foundations[i]);
+    }
+
+    stock = new Pile(other.stock);
+    waste = new Pile(other.waste);
+
+    faceDownCards = other.faceDownCards;
+    foundationCards = other.foundationCards;
+
+    undoLog = other.undoLog.clone();
+    undoLogSize = other.undoLogSize;
+  }
 
   /**
    * Get the tableau of the corresponding number.
@@ -96,18 +274,19 @@ class SolitaireGame
    *
    * @param number the number corresponding to the tableau you want to return.
    *  Note: goes from 0 to 6 not 1 to 7
-   * @return the tableau as a stack of cards
+   * @return a read-only view of the tableau
    */
-  Stack<Card> getTableau(int number)
+  PileView getTableau(int number)
   {
-    return tableaus.get(number);
+    return tableaus[number];
   }
 
   /**
    * Returns the stock (ie, the pile you draw from).
    *
    * <p>
-   *   The front of the queue is the top of the stock.
+   *   The last card in the pile is the top of the stock. (Every card in the
+   *   stock is face-down.)
    * </p>
    *
    * <p>
@@ -115,9 +294,9 @@ class SolitaireGame
    *   <a href="https://cardgames.io/solitaire/#rules">here</a>.
    * </p>
    *
-   * @return The stock.
+   * @return A read-only view of the stock.
    */
-  Queue<Card> getStock()
+  PileView getStock()
   {
     return stock;
   }
@@ -126,7 +305,8 @@ class SolitaireGame
    * Returns the waste.
    *
    * <p>
-   *   The front of the deque is the top of the waste.
+   *   The last card in the pile is the top of the waste. (Every card in the
+   *   waste is face-up.)
    * </p>
    *
    * <p>
@@ -134,9 +314,9 @@ class SolitaireGame
    *   <a href="https://cardgames.io/solitaire/#rules">here</a>.
    * </p>
    *
-   * @return the waste.
+   * @return a read-only view of the waste.
    */
-  Deque<Card> getWaste()
+  PileView getWaste()
   {
     return waste;
   }
@@ -152,11 +332,11 @@ class SolitaireGame
    * @param number the number corresponding to the tableau you want to return.
    *  Note: goes from 0 to 3, not 1 to 4.
    *
-   * @return The foundation, as a stack of cards.
+   * @return A read-only view of the foundation.
    */
-  Stack<Card> getFoundation(int number)
+  PileView getFoundation(int number)
   {
-    return foundations.get(number);
+    return foundations[number];
   }
 
   /**
@@ -172,8 +352,99 @@ class SolitaireGame
    */
   boolean hasWon()
   {
-    return tableaus.stream().allMatch(
-        tableau -> tableau.stream().allMatch(Card::isShowing));
+    return isFullyRevealed();
+  }
+
+  /**
+   * Returns whether every card on the tableaus is face-up.
+   *
+   * <p>
+   *   (From there, the game can always be finished without any more
+   *   choices; see {@link #isComplete()}.)
+   * </p>
+   *
+   * @return {@code true} if there are no face-down cards left on the
+   *   tableaus.
+   */
+  boolean isFullyRevealed()
+  {
+    return faceDownCards == 0;
+  }
+
+  /**
+   * Returns whether every card has been moved to the foundations.
+   *
+   * @return {@code true} if all four foundations are full.
+   */
+  boolean isComplete()
+  {
+    return foundationCards == Card.NUMBER_OF_CARDS;
+  }
+
+  /**
+   * Returns a 64-bit hash of the current position.
+   *
+   * <p>
+   *   The hash covers where every card is, which cards are face up, and
+   *   the order of the stock and the waste. Two games in the same position
+   *   always have the same hash, even if they got there by different moves
+   *   (or one of them undid some moves), and even in different runs of the
+   *   program. Different positions almost never share a hash, but they can,
+   *   so use {@link #hasSamePosition(SolitaireGame)} if it matters.
+   * </p>
+   *
+   * <p>
+   *   Each pile keeps its part of the hash up to date as cards move (see
+   *   {@link Zobrist}), so this doesn't have to look at any cards.
+   * </p>
+   *
+   * @return The hash of the position.
+   */
+  long getPositionHash()
+  {
+    long hash = stock.getHash() ^ waste.getHash();
+    for(Pile tableau : tableaus)
+    {
+      hash ^= tableau.getHash();
+    }
+    for(Pile foundation : foundations)
+    {
+      hash ^= foundation.getHash();
+    }
+    return hash;
+  }
+
+  /**
+   * Returns whether another game is in exactly the same position as this
+   * one.
+   *
+   * <p>
+   *   (This only looks at the cards, not at how either game got there.)
+   * </p>
+   *
+   * @param other The game to compare with.
+   * @return {@code true} if every pile of {@code other} has the same cards
+   *   as this game's, in the same order, with the same ones face up.
+   */
+  boolean hasSamePosition(SolitaireGame other)
+  {
+    if(getPositionHash() != other.getPositionHash())
+      return false;
+
+    if(!stock.hasSameCards(other.stock) || !waste.hasSameCards(other.waste))
+      return false;
+
+    for(int i = 0; i < 7; i++)
+    {
+      if(!tableaus[i].hasSameCards(other.tableaus[i]))
+        return false;
+    }
+    for(int i = 0; i < 4; i++)
+    {
+      if(!foundations[i].hasSameCards(other.foundations[i]))
+        return false;
+    }
+    return true;
   }
 
   /**
@@ -195,27 +466,303 @@ class SolitaireGame
    */
   void makeMove(Move move) throws IllegalMoveException
   {
+    MoveStatus status = tryMove(move);
+
+    if(!status.isLegal())
+      throw new IllegalMoveException(status);
+  }
+
+  /**
+   * Given a move that the user wants to make, execute that move if it's
+   * legal.
+   *
+   * <p>
+   *   This is just like {@link #makeMove(Move)}, except that it returns a
+   *   status instead of throwing an exception when the move is against the
+   *   rules. (Building an exception is slow, so this is the method to use
+   *   when lots of moves might be illegal.)
+   * </p>
+   *
+   * @param move The move the user wants to make.
+   *
+   * @return {@link MoveStatus#LEGAL} if the move was made, or the reason
+   *   it's against the rules.
+   */
+  MoveStatus tryMove(Move move)
+  {
+    return tryMove(
+        move.getStartType(),
+        move.getStartID(),
+        move.getDestinationType(),
+        move.getDestinationID());
+  }
+
+  /**
+   * Execute an encoded move if it's legal.
+   *
+   * <p>
+   *   This is just like {@link #tryMove(Move)}, but it takes a move that's
+   *   been packed into an {@code int} by
+   *   {@link Move#encode(PileType, int, PileType, int)}, like the ones
+   *   {@link #legalMoves(int[])} returns.
+   * </p>
+   *
+   * @param code The encoded move.
+   *
+   * @return {@link MoveStatus#LEGAL} if the move was made, or the reason
+   *   it's against the rules.
+   */
+  MoveStatus tryMove(int code)
+  {
+    return tryMove(
+        Move.startTypeOf(code),
+        Move.startIDOf(code),
+        Move.destinationTypeOf(code),
+        Move.destinationIDOf(code));
+  }
+
+  /**
+   * Returns whether {@link #autoComplete()} can finish the game from here.
+   *
+   * @return {@code true} if every card is face up, but they're not all on
+   *   the foundations yet.
+   */
+  boolean canAutoComplete()
+  {
+    return isFullyRevealed() && !isComplete();
+  }
+
+  /**
+   * Move every card that's left onto the foundations.
+   *
+   * <p>
+   *   Once every card on the tableaus is face up, there's nothing left to
+   *   decide: the lowest card that isn't on a foundation yet is always
+   *   either on top of its tableau (the cards above it in a run are all
+   *   lower) or somewhere in the stock or the waste. So this method goes
+   *   through the cards once, from the aces up to the kings, and moves
+   *   each one to its foundation, drawing from the stock until it turns up
+   *   if it's not on a tableau.
+   * </p>
+   *
+   * <p>
+   *   That's one pass over the cards, but not one pass over the talon:
+   *   finding a card there can take a trip right round it (turning the
+   *   waste over once on the way), so a talon of {@code t} cards can take
+   *   up to {@code t * (t + 1)} draws in all, on top of one move per card.
+   *   With the biggest possible talon that's 600 draws, though in practice
+   *   it's far fewer (about 36 moves in all, on average, and at most 221,
+   *   over 100,000 games finished by {@link GreedyPolicy}). Each draw is
+   *   just a push and a pop.
+   * </p>
+   *
+   * <p>
+   *   Every move goes through the same code as {@link #tryMove(Move)}, so
+   *   each one is recorded and can be undone with {@link #unmakeMove()}.
+   *   (But a listener hears about all of them in one batch.)
+   * </p>
+   *
+   * @return How many moves were made, counting the draws.
+   *
+   * @throws IllegalStateException If there are still face-down cards on the
+   *   tableaus.
+   */
+  int autoComplete()
+  {
+    if(!isFullyRevealed())
+      throw new IllegalStateException("There are still face-down cards");
+
+    openBatches++;
+    try
+    {
+      return finishGame();
+    }
+    finally
+    {
+      openBatches--;
+      reportChanges();
+    }
+  }
 
-    PileType startType = move.getStartType();
-    PileType endType = move.getDestinationType();
-    int startID = move.getStartID();
-    int endID = move.getDestinationID();
+  /**
+   * Do the work of {@link #autoComplete()}.
+   *
+   * @return How many moves were made, counting the draws.
+   */
+  private int finishGame()
+  {
+    int moves = 0;
+    for(int rank = 1; rank <= 13; rank++)
+    {
+      for(int suit = 0; suit < foundations.length; suit++)
+      {
+        if(foundations[suit].size() >= rank)
+          continue;
+
+        Card card = Card.of(suit * 13 + rank - 1);
+        int tableau = 0;
+        while(tableau < tableaus.length
+              && (tableaus[tableau].isEmpty() || tableaus[tableau].peek() != card))
+          tableau++;
+
+        if(tableau < tableaus.length)
+        {
+          tableauToFoundation(tableau, suit);
+        }
+        else
+        {
+          //It's in the talon, so draw until it's on top of the waste
+          while(waste.isEmpty() || waste.peek() != card)
+          {
+            wastePileDraw();
+            moves++;
+          }
+          wasteToFoundation(suit);
+        }
+        moves++;
+      }
+    }
+    return moves;
+  }
+
+  /**
+   * Start telling a listener about every change to the piles.
+   *
+   * <p>
+   *   After every move (and every undo) the listener gets the changes it
+   *   made, as described in {@link GameListener}. When nobody's listening,
+   *   a move costs just one extra check, so searches that make millions of
+   *   moves don't pay for this.
+   * </p>
+   *
+   * <p>
+   *   A game has at most one listener. To tell lots of things about the
+   *   same changes, use a {@link GameChangePublisher}.
+   * </p>
+   *
+   * @param listener The listener, or {@code null} to stop telling anyone.
+   */
+  void setListener(GameListener listener)
+  {
+    this.listener = listener;
+    pendingChanges.clear();
+  }
 
+  /**
+   * Execute a move if it's legal.
+   *
+   * @param startType The type of pile that we're moving cards from.
+   * @param startID The ID number of the pile that we're moving cards from.
+   * @param endType The type of pile that we're moving cards to.
+   * @param endID The ID number of the pile that we're moving cards to.
+   * @return {@link MoveStatus#LEGAL} if the move was made, or the reason
+   *   it's against the rules.
+   */
+  private MoveStatus tryMove(
+      PileType startType, int startID, PileType endType, int endID)
+  {
     switch(startType)
     {
       case TABLEAU:
-        moveFromTableau(startID, endID, endType);
-        break;
+        return moveFromTableau(startID, endID, endType);
       case STOCK:
-        moveFromStock(endType);
-        break;
+        return moveFromStock(endType);
       case WASTE:
-        moveFromWaste(endID, endType);
-        break;
+        return moveFromWaste(endID, endType);
       case FOUNDATION:
-        moveFromFoundation(startID, endID, endType);
-        break;
+      default:
+        return moveFromFoundation(startID, endID, endType);
+    }
+  }
+
+  /**
+   * Find every move that's legal right now.
+   *
+   * <p>
+   *   Each legal move is written into {@code moves}, packed into an
+   *   {@code int} by {@link Move#encode(PileType, int, PileType, int)}.
+   *   This method doesn't allocate anything or throw any exceptions, so
+   *   it's cheap enough to call before every single move.
+   * </p>
+   *
+   * <p>
+   *   Every legal move is listed exactly once. Drawing from the stock is
+   *   always listed as a move from the stock to the waste, even though
+   *   {@link #makeMove(Move)} also accepts it spelled a few other ways.
+   *   Moves to the foundations are listed first, since those are usually
+   *   the best ones to make.
+   * </p>
+   *
+   * @param moves The array to write the moves into. It should have room
+   *   for at least {@link #MAX_LEGAL_MOVES} moves.
+   *
+   * @return How many moves were written into {@code moves}. (They're
+   *   always at the start of the array.)
+   */
+  int legalMoves(int[] moves)
+  {
+    int count = 0;
+
+    //Moves from a tableau or the waste to the foundation of the same suit
+    for(int i = 0; i < 7; i++)
+    {
+      Pile tableau = tableaus[i];
+      if(!tableau.isEmpty() && fitsOnFoundation(tableau.peek()))
+      {
+        int foundationIndex = foundationIndexOf(tableau.peek());
+        moves[count++] = Move.encode(
+            PileType.TABLEAU, i, PileType.FOUNDATION, foundationIndex);
+      }
+    }
+    if(!waste.isEmpty() && fitsOnFoundation(waste.peek()))
+    {
+      int foundationIndex = foundationIndexOf(waste.peek());
+      moves[count++] = Move.encode(
+          PileType.WASTE, 0, PileType.FOUNDATION, foundationIndex);
+    }
+
+    //Moves onto a tableau. A move from another tableau is legal if there's a
+    //face-up card over there that fits, and since face-up cards are always
+    //in a run, that card is the one that'll move.
+    long wasteMask = waste.isEmpty() ? 0 : 1L << waste.peek().getId();
+    long foundationMask = 0;
+    for(Pile foundation : foundations)
+    {
+      if(!foundation.isEmpty())
+        foundationMask |= 1L << foundation.peek().getId();
+    }
+    for(int j = 0; j < 7; j++)
+    {
+      Pile end = tableaus[j];
+      long fits = end.isEmpty() ? KINGS : TABLEAU_SUCCESSORS[end.peek().getId()];
+      if(fits == 0)
+        continue;
+
+      for(int i = 0; i < 7; i++)
+      {
+        if(i != j && (tableaus[i].getFaceUpMask() & fits) != 0)
+          moves[count++] = Move.encode(PileType.TABLEAU, i, PileType.TABLEAU, j);
+      }
+
+      if((wasteMask & fits) != 0)
+        moves[count++] = Move.encode(PileType.WASTE, 0, PileType.TABLEAU, j);
+
+      //There can be two of these (one for each suit of the right color)
+      long fromFoundations = foundationMask & fits;
+      while(fromFoundations != 0)
+      {
+        int foundationIndex = Long.numberOfTrailingZeros(fromFoundations) / 13;
+        moves[count++] = Move.encode(
+            PileType.FOUNDATION, foundationIndex, PileType.TABLEAU, j);
+        fromFoundations &= fromFoundations - 1;
+      }
     }
+
+    //Drawing from the stock (or turning the waste back over)
+    if(!stock.isEmpty() || !waste.isEmpty())
+      moves[count++] = Move.encode(PileType.STOCK, 0, PileType.WASTE, 0);
+
+    return count;
   }
 
   /**
@@ -228,27 +775,22 @@ class SolitaireGame
    *
    * @param endType The type of the pile to move cards to.
    *
-   * @throws IllegalMoveException If the move in question is against the
-   *   rules. (The message carried by this exception should be suitable
-   *   to display to the user.)
+   * @return {@link MoveStatus#LEGAL} if the move was made, or the reason
+   *   it's against the rules.
    */
-  private void moveFromTableau(int startID, int endID, PileType endType)
-      throws IllegalMoveException
+  private MoveStatus moveFromTableau(int startID, int endID, PileType endType)
   {
     switch (endType)
     {
       case FOUNDATION:
-        tableauToFoundation(startID, endID);
-        break;
+        return tableauToFoundation(startID, endID);
       case TABLEAU:
-        tableauToTableau(startID, endID);
-        break;
+        return tableauToTableau(startID, endID);
       case STOCK:
-        throw new IllegalMoveException(
-            "Can't move from a tableau to the stock");
+        return MoveStatus.TABLEAU_TO_STOCK;
       case WASTE:
-        throw new IllegalMoveException(
-            "Can't move from a tableau to the waste");
+      default:
+        return MoveStatus.TABLEAU_TO_WASTE;
     }
   }
 
@@ -257,25 +799,21 @@ class SolitaireGame
    *
    * @param endType The type of the pile to move cards to.
    *
-   * @throws IllegalMoveException If the move in question is against the
-   *   rules. (The message carried by this exception should be suitable
-   *   to display to the user.)
+   * @return {@link MoveStatus#LEGAL} if the move was made, or the reason
+   *   it's against the rules.
    */
-  private void moveFromStock(PileType endType)
-      throws IllegalMoveException
+  private MoveStatus moveFromStock(PileType endType)
   {
     switch (endType)
     {
       case STOCK:
       case WASTE:
-        wastePileDraw();
-        break;
+        return wastePileDraw();
       case TABLEAU:
-        throw new IllegalMoveException(
-            "Can't move from the stock to a tableau");
+        return MoveStatus.STOCK_TO_TABLEAU;
       case FOUNDATION:
-        throw new IllegalMoveException(
-            "Can't move from the stock to a foundation");
+      default:
+        return MoveStatus.STOCK_TO_FOUNDATION;
     }
   }
 
@@ -287,25 +825,21 @@ class SolitaireGame
    *
    * @param endType The type of the pile to move cards to.
    *
-   * @throws IllegalMoveException If the move in question is against the
-   *   rules. (The message carried by this exception should be suitable
-   *   to display to the user.)
+   * @return {@link MoveStatus#LEGAL} if the move was made, or the reason
+   *   it's against the rules.
    */
-  private void moveFromWaste(int endID, PileType endType)
-      throws IllegalMoveException
+  private MoveStatus moveFromWaste(int endID, PileType endType)
   {
     switch (endType)
     {
       case STOCK:
       case WASTE:
-        wastePileDraw();
-        break;
+        return wastePileDraw();
       case TABLEAU:
-        wasteToTableau(endID);
-        break;
+        return wasteToTableau(endID);
       case FOUNDATION:
-        wasteToFoundation(endID);
-        break;
+      default:
+        return wasteToFoundation(endID);
     }
   }
 
@@ -319,27 +853,22 @@ class SolitaireGame
    *
    * @param endType The type of the pile to move cards to.
    *
-   * @throws IllegalMoveException If the move in question is against the
-   *   rules. (The message carried by this exception should be suitable
-   *   to display to the user.)
+   * @return {@link MoveStatus#LEGAL} if the move was made, or the reason
+   *   it's against the rules.
    */
-  private void moveFromFoundation(int startID, int endID, PileType endType)
-      throws IllegalMoveException
+  private MoveStatus moveFromFoundation(int startID, int endID, PileType endType)
   {
     switch (endType)
     {
       case TABLEAU:
-        foundationToTableau(startID, endID);
-        break;
+        return foundationToTableau(startID, endID);
       case FOUNDATION:
-        throw new IllegalMoveException(
-            "Can't move from one foundation to another.");
+        return MoveStatus.FOUNDATION_TO_FOUNDATION;
       case STOCK:
-        throw new IllegalMoveException(
-            "Can't move from a foundation to the stock.");
+        return MoveStatus.FOUNDATION_TO_STOCK;
       case WASTE:
-        throw new IllegalMoveException(
-            "Can't move from a foundation to the waste.");
+      default:
+        return MoveStatus.FOUNDATION_TO_WASTE;
     }
   }
 
@@ -348,12 +877,13 @@ class SolitaireGame
    * Method for moving cards from one tableau to the next
    * @param startTableau the tableau the stack of cards come from
    * @param endTableau the tableau the stack of cards ends up on
+   * @return whether the move was legal, and if not, why not
    */
-  private void tableauToTableau(int startTableau, int endTableau) throws IllegalMoveException
+  private MoveStatus tableauToTableau(int startTableau, int endTableau)
   {
     //Get the tableaus
-    Stack<Card> start = getTableau(startTableau);
-    Stack<Card> end = getTableau(endTableau);
+    Pile start = tableaus[startTableau];
+    Pile end = tableaus[endTableau];
 
     //Set to null in case the destination is empty
     Card endTopCard = null;
@@ -364,34 +894,31 @@ class SolitaireGame
     //Find the color and rank that the next card should be
     int requiredColor = getTableauNextColor(endTopCard);
     int requiredRank = getTableauNextRank(endTopCard);
+    if(requiredRank == 0)
+      return MoveStatus.ACE_ON_TABLEAU;
 
     //If the starting stack is empty, move is illegal
     if(start.isEmpty())
-      throw new IllegalMoveException("Can't move cards from an empty tableau");
+      return MoveStatus.EMPTY_TABLEAU;
 
-    //Get the first card that meets both requirements in the starting tableau
-    Card stoppingCard = getEndOfStack(start, requiredColor, requiredRank);
-    Stack<Card> tempStack = new Stack<>();
+    //Get the index of the first card that meets both requirements in the starting tableau
+    int stoppingIndex = getEndOfStack(start, requiredColor, requiredRank);
 
-    //Move the cards before it into a temporary stack for storage(and to preserve their order)
-    while(!start.peek().equals(stoppingCard))
-    {
-      Card currentCard = start.pop();
-      tempStack.add(currentCard);
-    }
-
-    //Add the card that meets the requirements(didn't happen in the loop above)
-    end.add(start.pop());
+    //If we didn't find a satisfactory card in the first tableau, move is illegal
+    if(stoppingIndex == -1)
+      return MoveStatus.NO_VIABLE_CARDS;
 
-    //Move the other cards into the ending tableau
-    while(!tempStack.isEmpty())
-    {
-      Card currentCard = tempStack.pop();
-      end.add(currentCard);
-    }
+    //Move that card, and every card above it, over in one go (this keeps their order)
+    int count = start.size() - stoppingIndex;
+    start.moveTopCardsTo(end, count);
 
     //If the top card isn't showing, show it
-    revealTopOfTableau(startTableau);
+    boolean revealed = revealTopOfTableau(startTableau);
+
+    recordMove(
+        Move.encode(PileType.TABLEAU, startTableau, PileType.TABLEAU, endTableau),
+        count, revealed, false);
+    return MoveStatus.LEGAL;
   }
 
   /**
@@ -421,30 +948,22 @@ class SolitaireGame
    * card.
    * @param topCard the current top card of the tableau, null means tableau is
    *   empty.
-   * @return the rank.
-   * @throws IllegalMoveException If no card could possibly be placed on this
-   *   tableau.
+   * @return the rank, or 0 if no card could possibly be placed on this
+   *   tableau (because there's an ace on top).
    */
-  private int getTableauNextRank(Card topCard) throws IllegalMoveException
+  private int getTableauNextRank(Card topCard)
   {
     //If tableau is empty, we want a king
     if(topCard == null)
       return 13;
 
-    int rank = topCard.getRank();
-    int nextRank;
-
-    if(rank == 1)
-      throw new IllegalMoveException("Can't move to tableau with Ace on top");
-    else
-      nextRank = rank - 1;
-
-    return nextRank;
+    //(If there's an ace on top, this is 0, which isn't a real rank)
+    return topCard.getRank() - 1;
   }
 
   /**
-   * When moving multiple cards from one tableau to another, return which
-   * card is the first card to move (ie, the bottom card to move).
+   * When moving multiple cards from one tableau to another, return the
+   * index of the first card to move (ie, the bottom card to move).
    *
    * <p>
    *   This card, and every card above it, will be transferred to the new
@@ -476,15 +995,16 @@ class SolitaireGame
    * <p>
    *   Now, suppose we want to move cards from tableau one to tableau
    *   zero. Tableau zero needs a red seven next, so we would call
-   *   {@code getEndOfStack(tableaus.get(1), 1, 7)}. (If tableau zero
+   *   {@code getEndOfStack(tableaus[1], 1, 7)}. (If tableau zero
    *   needed a <em>black</em> seven, we would call
-   *   {@code getEndOfStack(tableaus.get(1), 0, 7)} instead.)
+   *   {@code getEndOfStack(tableaus[1], 0, 7)} instead.)
    * </p>
    *
    * <p>
-   *   Now, this call will return the first (most bottom) card in tableau one
-   *   that may be placed on tableau zero. In this case, that card is the
-   *   seven of hearts, {@code 7♡}.
+   *   Now, this call will return the index of the first (most bottom) card
+   *   in tableau one that may be placed on tableau zero. In this case, that
+   *   card is the seven of hearts, {@code 7♡}, so the call returns
+   *   {@code 4}.
    * </p>
    *
    * <p>
@@ -494,6 +1014,15 @@ class SolitaireGame
    * </p>
    *
    * <p>
+   *   This doesn't take a search. The face-up cards on a tableau always
+   *   form one run, going down in rank by one from the bottom face-up card
+   *   to the top card. (Every card that's ever placed on a tableau has to
+   *   continue the run, and a card only gets flipped face-up once it's on
+   *   top.) So, since the {@code 9♡} is the bottom of the run in tableau
+   *   one, the seven has to be two cards above it.
+   * </p>
+   *
+   * <p>
    *   After the seven of hearts is returned, the caller knows to move
    *   the seven of hearts, and all cards above it, onto tableau zero.
    *   (So, the caller would want to do this:)
@@ -517,67 +1046,93 @@ class SolitaireGame
    * @param requiredColor The destination tableau needs this color next.
    *   (0 means black; 1 means red; 2 means either.)
    * @param requiredRank The destination tableau needs this rank next.
-   * @return The first (ie, the most bottom) card in {@code tableau} that may
-   *   legally be placed on the destination tableau.
-   * @throws IllegalMoveException If no card in {@code tableau} may be legally
-   *   be placed on the destination tableau.
+   * @return The index of the first (ie, the most bottom) card in
+   *   {@code tableau} that may legally be placed on the destination tableau,
+   *   or {@code -1} if no card in {@code tableau} may legally be placed
+   *   there.
    */
-  private Card getEndOfStack(Stack<Card> tableau, int requiredColor, int requiredRank) throws IllegalMoveException
+  private int getEndOfStack(PileView tableau, int requiredColor, int requiredRank)
   {
-    //Iterate through every card, stopping at the first one that satisfies our required rank and color
-    Card stoppingCard = null;
-    for (Card currentCard : tableau)
-    {
-      boolean satisfiesColor = requiredColor == currentCard.getColor();
-      boolean satisfiesRank = requiredRank == currentCard.getRank();
-      boolean faceUp = currentCard.isShowing();
+    //The run starts at the first face-up card, and the ranks go down by one from there
+    int runStart = tableau.getFaceDownCount();
+    if(runStart >= tableau.size())
+      return -1;
 
-      if (satisfiesColor && satisfiesRank && faceUp)
-      {
-        stoppingCard = currentCard;
-        break;
-      }
-      else if (satisfiesRank && faceUp && requiredColor == 2)
-      {
-        stoppingCard = currentCard;
-        break;
-      }
-    }
+    int runStartRank = tableau.get(runStart).getRank();
+    int stoppingIndex = runStart + (runStartRank - requiredRank);
 
-    //If we didn't find a satisfactory card in the first tableau, move is illegal
-    if(stoppingCard == null)
-      throw new IllegalMoveException("No viable cards found in the starting tableau");
+    //The required rank might not be in the run at all
+    if(stoppingIndex < runStart || stoppingIndex >= tableau.size())
+      return -1;
 
-    return stoppingCard;
+    //Only one card in the run has the right rank, so its color had better be right
+    Card stoppingCard = tableau.get(stoppingIndex);
+    if(requiredColor != 2 && requiredColor != stoppingCard.getColor())
+      return -1;
+
+    return stoppingIndex;
   }
 
+  /**
+   * Returns whether a card may be placed on top of the foundation for its
+   * suit.
+   *
+   * @param card The card to place.
+   * @return {@code true} if the card is the next one its foundation needs.
+   */
+  private boolean fitsOnFoundation(Card card)
+  {
+    return card.getRank() == foundations[foundationIndexOf(card)].size() + 1;
+  }
 
   /**
-   * Move one card from the front stock to the front of the waste.
+   * Returns the index of the foundation that a card belongs on.
    *
    * <p>
-   *   If the waste is empty, this method puts all of the cards from the
-   *   back of the waste into the back of the stock.
+   *   (The foundations are in the same order as the suits in
+   *   {@link Suit}, so this is just the ordinal of the card's suit. See
+   *   {@link #findFoundationSuit(int)}.)
    * </p>
    *
-   * @throws IllegalMoveException If both the stock and the waste are empty.
+   * @param card The card.
+   * @return The index of the foundation for its suit.
    */
-  private void wastePileDraw() throws IllegalMoveException{
+  private static int foundationIndexOf(Card card)
+  {
+    return card.getSuit().ordinal();
+  }
+
+
+  /**
+   * Move one card from the top of the stock to the top of the waste.
+   *
+   * <p>
+   *   If the stock is empty, this method turns the waste over and puts it
+   *   back as the stock. (So the card at the bottom of the waste ends up on
+   *   top of the stock.)
+   * </p>
+   *
+   * @return {@link MoveStatus#NOTHING_TO_DRAW} if both the stock and the
+   *   waste are empty, and {@link MoveStatus#LEGAL} otherwise.
+   */
+  private MoveStatus wastePileDraw() {
     if (stock.isEmpty() && waste.isEmpty()) {
-      throw new IllegalMoveException(
-          "There are no cards left to draw from the waste or stock");
+      return MoveStatus.NOTHING_TO_DRAW;
     }
 
-    if (stock.isEmpty()) {
+    boolean recycled = stock.isEmpty();
+    if (recycled) {
       while(!waste.isEmpty()) {
-        waste.getLast().setShowing(false);
-        stock.add(waste.removeLast());
+        stock.pushFaceDown(waste.pop());
       }
     }
     else {
-      waste.addFirst(stock.poll());
-      waste.getFirst().setShowing(true);
+      waste.push(stock.pop());
     }
+
+    recordMove(
+        Move.encode(PileType.STOCK, 0, PileType.WASTE, 0), 1, false, recycled);
+    return MoveStatus.LEGAL;
   }
 
   /**
@@ -585,15 +1140,15 @@ class SolitaireGame
    *
    * @param endTableau The tableau that we're moving the card to.
    *
-   * @throws IllegalMoveException If the card on top of the waste doesn't
-   *   match the bottom of the tableau. (Ie, its rank or its color isn't
-   *   right.)
+   * @return {@link MoveStatus#LEGAL}, or an illegal status if the card on
+   *   top of the waste doesn't match the bottom of the tableau. (Ie, its
+   *   rank or its color isn't right.)
    */
-  private void wasteToTableau(int endTableau) throws IllegalMoveException
+  private MoveStatus wasteToTableau(int endTableau)
   {
 
     //Get the tableau
-    Stack<Card> end = getTableau(endTableau);
+    Pile end = tableaus[endTableau];
 
     //Set to null in case the destination is empty
     Card endTopCard = null;
@@ -605,35 +1160,42 @@ class SolitaireGame
     //Find the color and rank that the next card should be
     int requiredColor = getTableauNextColor(endTopCard);
     int requiredRank = getTableauNextRank(endTopCard);
+    if (requiredRank == 0) {
+      return MoveStatus.ACE_ON_TABLEAU;
+    }
 
     //If waste is empty, move is illegal
     if (waste.isEmpty()) {
-      throw new IllegalMoveException("Can't move cards from an empty waste");
+      return MoveStatus.EMPTY_WASTE;
     }
 
     //If the card is the correct one adds it to the tableau
     else if (
-         waste.getFirst().getRank() == requiredRank
-         && (waste.getFirst().getColor() == requiredColor || requiredColor == 2)) {
-      end.add(waste.pop());
+         waste.peek().getRank() == requiredRank
+         && (waste.peek().getColor() == requiredColor || requiredColor == 2)) {
+      end.push(waste.pop());
+      recordMove(
+          Move.encode(PileType.WASTE, 0, PileType.TABLEAU, endTableau),
+          1, false, false);
+      return MoveStatus.LEGAL;
     }
     else {
-      throw new IllegalMoveException("The waste card cannot be added to the tableau");
+      return MoveStatus.WASTE_CARD_DOES_NOT_FIT;
     }
   }
 
   /**
    * Moves a card from the waste to the foundation with the given index
    * @param foundationIndex the index of the foundation the card's being moved to
-   * @throws IllegalMoveException if the waste is empty or if the wrong foundation is given
+   * @return an illegal status if the waste is empty or if the wrong foundation is given
    */
-  private void wasteToFoundation(int foundationIndex) throws IllegalMoveException
+  private MoveStatus wasteToFoundation(int foundationIndex)
   {
     Suit foundationSuit = findFoundationSuit(foundationIndex);
-    Stack<Card> foundation = getFoundation(foundationIndex);
+    Pile foundation = foundations[foundationIndex];
 
     if(waste.isEmpty())
-      throw new IllegalMoveException("Can't move cards from an empty waste");
+      return MoveStatus.EMPTY_WASTE;
 
     //Get the rank that the next card on the foundation should be
     int requiredRank;
@@ -652,11 +1214,16 @@ class SolitaireGame
     if(satisfiesRank && satisfiesSuit)
     {
       topCard = waste.pop();
-      foundation.add(topCard);
+      foundation.push(topCard);
+      foundationCards++;
+      recordMove(
+          Move.encode(PileType.WASTE, 0, PileType.FOUNDATION, foundationIndex),
+          1, false, false);
+      return MoveStatus.LEGAL;
     }
     else
     {
-      throw new IllegalMoveException("That card can't be added to this foundation");
+      return MoveStatus.CARD_DOES_NOT_FIT_FOUNDATION;
     }
   }
 
@@ -667,18 +1234,18 @@ class SolitaireGame
    *
    * @param tableauIndex The number of the start tableau.
    * @param foundationIndex The number of the destination foundation.
-   * @throws IllegalMoveException If the card on top of the start tableau
-   *   doesn't fit on top of the destination foundation. (Ie, its rank or
-   *   its color isn't right.)
+   * @return {@link MoveStatus#LEGAL}, or an illegal status if the card on
+   *   top of the start tableau doesn't fit on top of the destination
+   *   foundation. (Ie, its rank or its color isn't right.)
    */
-  private void tableauToFoundation(int tableauIndex, int foundationIndex) throws IllegalMoveException
+  private MoveStatus tableauToFoundation(int tableauIndex, int foundationIndex)
   {
     Suit foundationSuit = findFoundationSuit(foundationIndex);
-    Stack<Card> foundation = getFoundation(foundationIndex);
-    Stack<Card> tableau = getTableau(tableauIndex);
+    Pile foundation = foundations[foundationIndex];
+    Pile tableau = tableaus[tableauIndex];
 
     if(tableau.isEmpty())
-      throw new IllegalMoveException("Can't move anything from an empty tableau");
+      return MoveStatus.EMPTY_TABLEAU_TO_FOUNDATION;
 
     //Get the rank that the next card on the foundation should be
     int requiredRank;
@@ -697,15 +1264,21 @@ class SolitaireGame
     if(satisfiesRank && satisfiesSuit)
     {
       topCard = tableau.pop();
-      foundation.add(topCard);
+      foundation.push(topCard);
+      foundationCards++;
     }
     else
     {
-      throw new IllegalMoveException("That card can't be added to this foundation");
+      return MoveStatus.CARD_DOES_NOT_FIT_FOUNDATION;
     }
 
     //If the top card isn't showing, show it
-    revealTopOfTableau(tableauIndex);
+    boolean revealed = revealTopOfTableau(tableauIndex);
+
+    recordMove(
+        Move.encode(PileType.TABLEAU, tableauIndex, PileType.FOUNDATION, foundationIndex),
+        1, revealed, false);
+    return MoveStatus.LEGAL;
   }
 
   /**
@@ -714,19 +1287,19 @@ class SolitaireGame
    *
    * @param foundationIndex The number of the start foundation.
    * @param tableauIndex The number of the destination tableau.
-   * @throws IllegalMoveException If the card on top of the start foundation
-   *   doesn't fit on top of the destination tableau. (Ie, its rank or
-   *   its color isn't right.)
+   * @return {@link MoveStatus#LEGAL}, or an illegal status if the card on
+   *   top of the start foundation doesn't fit on top of the destination
+   *   tableau. (Ie, its rank or its color isn't right.)
    */
-  private void foundationToTableau(int foundationIndex, int tableauIndex) throws IllegalMoveException
+  private MoveStatus foundationToTableau(int foundationIndex, int tableauIndex)
   {
     //Get the appropriate foundation and tableau
-    Stack<Card> foundation = getFoundation(foundationIndex);
-    Stack<Card> tableau = getTableau(tableauIndex);
+    Pile foundation = foundations[foundationIndex];
+    Pile tableau = tableaus[tableauIndex];
 
     //Make sure the foundation is empty
     if(foundation.isEmpty())
-      throw new IllegalMoveException("Can't move from an empty foundation");
+      return MoveStatus.EMPTY_FOUNDATION;
 
     //Get the top cards of both the foundation and the waste
     Card tableauTop;
@@ -738,19 +1311,27 @@ class SolitaireGame
       tableauTop = null;
 
     int requiredColor = getTableauNextColor(tableauTop);
+    int requiredRank = getTableauNextRank(tableauTop);
+    if(requiredRank == 0)
+      return MoveStatus.ACE_ON_TABLEAU;
 
     //Check whether the color and rank of the top card are what we're looking for on the tableau
-    boolean satisfiesRank = getTableauNextRank(tableauTop) == foundationTop.getRank();
+    boolean satisfiesRank = requiredRank == foundationTop.getRank();
     boolean satisfiesColor = requiredColor == foundationTop.getColor() || requiredColor == 2;
 
-    //If the card is correct move it, if not throw an exception
+    //If the card is correct move it, if not the move is illegal
     if(satisfiesRank && satisfiesColor)
     {
       Card movingCard = foundation.pop();
-      tableau.add(movingCard);
+      foundationCards--;
+      tableau.push(movingCard);
+      recordMove(
+          Move.encode(PileType.FOUNDATION, foundationIndex, PileType.TABLEAU, tableauIndex),
+          1, false, false);
+      return MoveStatus.LEGAL;
     }
     else
-      throw new IllegalMoveException("Can't move card from that foundation to that tableau");
+      return MoveStatus.FOUNDATION_CARD_DOES_NOT_FIT;
   }
 
   /**
@@ -788,19 +1369,159 @@ class SolitaireGame
    * face-up.)
    *
    * @param tableauIndex The number of the tableau to show the top card of.
+   * @return {@code true} if a card was flipped, and {@code false} if the
+   *   tableau was empty or its top card was already showing.
    */
-  private void revealTopOfTableau(int tableauIndex)
+  private boolean revealTopOfTableau(int tableauIndex)
   {
-    Stack<Card> tableau = getTableau(tableauIndex);
+    if(!tableaus[tableauIndex].revealTop())
+      return false;
 
-    if(!tableau.isEmpty())
+    faceDownCards--;
+    return true;
+  }
+
+  /**
+   * Add a move to the end of the undo log.
+   *
+   * @param code The move, encoded by
+   *   {@link Move#encode(PileType, int, PileType, int)}.
+   * @param count How many cards the move moved.
+   * @param revealed Whether the move flipped over the top card of its
+   *   start tableau.
+   * @param recycled Whether the move turned the waste back over into the
+   *   stock.
+   */
+  private void recordMove(int code, int count, boolean revealed, boolean recycled)
+  {
+    if(undoLogSize == undoLog.length)
+      undoLog = Arrays.copyOf(undoLog, undoLogSize * 2);
+
+    int record = code | count << UNDO_COUNT_SHIFT;
+    if(revealed)
+      record |= UNDO_REVEALED;
+    if(recycled)
+      record |= UNDO_RECYCLED;
+
+    undoLog[undoLogSize++] = record;
+
+    if(listener != null)
     {
-      Card topCard = tableau.peek();
+      if(recycled)
+        pendingChanges.add(GameChange.recycled(stock.size(), false));
+      else
+        pendingChanges.add(GameChange.moved(code, count));
 
-      if(!topCard.isShowing())
+      if(revealed)
       {
-        topCard.setShowing(true);
+        int startID = Move.startIDOf(code);
+        pendingChanges.add(GameChange.flipped(startID, tableaus[startID].peek(), true));
       }
+      reportChanges();
+    }
+  }
+
+  /**
+   * Tell the listener about the changes it hasn't heard about yet, unless
+   * they're being held back for a bigger batch.
+   */
+  private void reportChanges()
+  {
+    if(listener == null || openBatches > 0 || pendingChanges.isEmpty())
+      return;
+
+    List<GameChange> batch = List.copyOf(pendingChanges);
+    pendingChanges.clear();
+    listener.gameChanged(batch);
+  }
+
+  /**
+   * Returns whether there are any moves to undo.
+   *
+   * @return {@code true} if at least one move has been made (and not undone
+   *   yet).
+   */
+  boolean canUnmakeMove()
+  {
+    return undoLogSize > 0;
+  }
+
+  /**
+   * Undo the last move that was made, putting the game back exactly the
+   * way it was before.
+   *
+   * <p>
+   *   This doesn't allocate anything, and (apart from turning the stock back
+   *   into the waste) it takes constant time, so a search can walk down a
+   *   tree of moves and back up again using just one {@code SolitaireGame}.
+   * </p>
+   *
+   * @throws IllegalStateException If there are no moves to undo.
+   */
+  void unmakeMove()
+  {
+    if(undoLogSize == 0)
+      throw new IllegalStateException("There are no moves to undo");
+
+    int record = undoLog[--undoLogSize];
+    int code = record & UNDO_MOVE_MASK;
+    int count = record >>> UNDO_COUNT_SHIFT & 0b11111;
+    int startID = Move.startIDOf(code);
+    int endID = Move.destinationIDOf(code);
+
+    //Flip the start tableau's top card back over before anything goes on top of it
+    if((record & UNDO_REVEALED) != 0)
+    {
+      if(listener != null)
+        pendingChanges.add(GameChange.flipped(startID, tableaus[startID].peek(), false));
+      tableaus[startID].hideTop();
+      faceDownCards++;
+    }
+
+    switch(Move.startTypeOf(code))
+    {
+      case TABLEAU:
+        if(Move.destinationTypeOf(code) == PileType.TABLEAU)
+          tableaus[endID].moveTopCardsTo(tableaus[startID], count);
+        else
+        {
+          tableaus[startID].push(foundations[endID].pop());
+          foundationCards--;
+        }
+        break;
+      case STOCK:
+        if((record & UNDO_RECYCLED) != 0)
+        {
+          while(!stock.isEmpty())
+            waste.push(stock.pop());
+        }
+        else
+          stock.pushFaceDown(waste.pop());
+        break;
+      case WASTE:
+        if(Move.destinationTypeOf(code) == PileType.TABLEAU)
+          waste.push(tableaus[endID].pop());
+        else
+        {
+          waste.push(foundations[endID].pop());
+          foundationCards--;
+        }
+        break;
+      case FOUNDATION:
+        foundations[startID].push(tableaus[endID].pop());
+        foundationCards++;
+        break;
+    }
+
+    if(listener != null)
+    {
+      if((record & UNDO_RECYCLED) != 0)
+        pendingChanges.add(GameChange.recycled(waste.size(), true));
+      else
+        pendingChanges.add(GameChange.moved(
+            Move.encode(Move.destinationTypeOf(code), endID, Move.startTypeOf(code), startID),
+            count));
+      reportChanges();
     }
   }
 }
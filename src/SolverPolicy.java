@@ -0,0 +1,42 @@
+import java.util.List;
+
+/**
+ * A policy that solves each game before it starts, and then plays the
+ * winning moves.
+ *
+ * <p>
+ *   If {@link KlondikeSolver} can't find a win within its budgets, this
+ *   policy gives up straight away.
+ * </p>
+ */
+class SolverPolicy implements MovePolicy
+{
+  private final KlondikeSolver solver;
+  private List<Move> plan = List.of();
+  private int next = 0;
+
+  /**
+   * Create a policy.
+   *
+   * @param nodeBudget The most nodes to search in each game.
+   * @param timeBudgetMillis The most time to search each game for, in
+   *   milliseconds.
+   */
+  SolverPolicy(long nodeBudget, long timeBudgetMillis)
+  {
+    solver = new KlondikeSolver(nodeBudget, timeBudgetMillis);
+  }
+
+  @Override
+  public void startGame(SolitaireGame game, long seed)
+  {
+    plan = solver.solve(game).getMoves();
+    next = 0;
+  }
+
+  @Override
+  public int chooseMove(SolitaireGame game)
+  {
+    return next < plan.size() ? plan.get(next++).encode() : -1;
+  }
+}
@@ -0,0 +1,129 @@
+import java.util.List;
+
+/**
+ * The outcome of trying to solve a deal, along with some numbers about how
+ * much work it took.
+ */
+class SolverResult
+{
+  /**
+   * These enum values say how a search ended.
+   */
+  enum Status
+  {
+    /**
+     * The search found a way to win. (See {@link #getMoves()}.)
+     */
+    WON,
+
+    /**
+     * The search tried everything, and there's no way to win.
+     */
+    UNWINNABLE,
+
+    /**
+     * The search ran out of nodes or time before it could decide either
+     * way.
+     */
+    BUDGET_EXHAUSTED
+  }
+
+  private final Status status;
+  private final List<Move> moves;
+  private final long nodes;
+  private final long elapsedNanos;
+  private final long peakMemoryBytes;
+
+  /**
+   * Construct a new {@code SolverResult}.
+   *
+   * @param status How the search ended.
+   * @param moves The winning moves, or an empty list if the search didn't
+   *   win.
+   * @param nodes How many positions the search made a move into.
+   * @param elapsedNanos How long the search took, in nanoseconds.
+   * @param peakMemoryBytes The most memory the search's own tables took up
+   *   at once, in bytes.
+   */
+  SolverResult(
+      Status status,
+      List<Move> moves,
+      long nodes,
+      long elapsedNanos,
+      long peakMemoryBytes)
+  {
+    this.status = status;
+    this.moves = List.copyOf(moves);
+    this.nodes = nodes;
+    this.elapsedNanos = elapsedNanos;
+    this.peakMemoryBytes = peakMemoryBytes;
+  }
+
+  /**
+   * Returns how the search ended.
+   */
+  Status getStatus()
+  {
+    return status;
+  }
+
+  /**
+   * Returns the moves that win the game, in order, starting from the
+   * position the search was given.
+   *
+   * <p>
+   *   Draws from the stock are spelled as moves from the stock to the
+   *   waste. The list is empty unless the status is {@link Status#WON}.
+   * </p>
+   */
+  List<Move> getMoves()
+  {
+    return moves;
+  }
+
+  /**
+   * Returns how many positions the search made a move into.
+   */
+  long getNodes()
+  {
+    return nodes;
+  }
+
+  /**
+   * Returns how long the search took, in nanoseconds.
+   */
+  long getElapsedNanos()
+  {
+    return elapsedNanos;
+  }
+
+  /**
+   * Returns how many nodes the search got through per second.
+   */
+  double getNodesPerSecond()
+  {
+    return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+  }
+
+  /**
+   * Returns the most memory the search's own tables (the transposition
+   * table and the search stack) took up at once, in bytes.
+   */
+  long getPeakMemoryBytes()
+  {
+    return peakMemoryBytes;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format(
+        "%s in %d moves: %d nodes in %.1f ms (%.0f nodes/s), %d KiB peak",
+        status,
+        moves.size(),
+        nodes,
+        elapsedNanos / 1e6,
+        getNodesPerSecond(),
+        peakMemoryBytes / 1024);
+  }
+}
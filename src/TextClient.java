@@ -1,3 +1,8 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
@@ -7,13 +12,53 @@ import java.util.*;
  *   It's in charge of talking to the user, but it shouldn't handle gameplay
  *   logic--that's {@code SolitaireGame}'s job.
  * </p>
+ *
+ * <p>
+ *   Run it with {@code --ansi} on a terminal that understands ANSI escape
+ *   sequences to have the board drawn in place, with only the parts that
+ *   change redrawn after each move (see {@link AnsiRenderer}), instead of
+ *   printing the whole board every time.
+ * </p>
  */
 public class TextClient
 {
   private static SolitaireGame game;
 
+  /**
+   * Draws the board in place, or {@code null} to print the whole board
+   * every time.
+   */
+  private static AnsiRenderer renderer;
+
+  /**
+   * Prints the whole board as UTF-8 bytes, without encoding it again each
+   * time, or {@code null} if the console isn't UTF-8 (or there's a
+   * renderer).
+   */
+  private static Utf8BoardWriter boardWriter;
+
   public static void main(String[] args)
   {
+    for (String arg : args)
+    {
+      if (arg.equals("--ansi"))
+      {
+        renderer = new AnsiRenderer(System.out);
+      }
+      else
+      {
+        System.err.println("Usage: java TextClient [--ansi]");
+        System.exit(2);
+      }
+    }
+
+    if (renderer == null && stdoutCharset().equals(StandardCharsets.UTF_8))
+    {
+      // The writer goes through System.out, so what it writes stays in
+      // order with everything else that's printed.
+      boardWriter = new Utf8BoardWriter(Channels.newChannel(System.out));
+    }
+
     System.out.println("Welcome to Solitaire!");
     game = new SolitaireGame();
 
@@ -26,11 +71,16 @@ public class TextClient
 
     if (game.hasWon())
     {
-      System.out.println(GameFormatter.stringOfGame(game));
-      System.out.println();
+      // Every card is face up, so there's nothing left to decide; finish
+      // the game off rather than making the user move every card by hand.
+      int moves = game.autoComplete();
+      printBoard();
+      System.out.printf("Moved the last cards to the foundations (%d moves).\n", moves);
       System.out.println("You win!");
     }
 
+    if (renderer != null)
+      renderer.close();
     System.out.println("Thanks for playing!");
   }
 
@@ -67,8 +117,7 @@ public class TextClient
   {
     if (previousMoveResult == MoveResult.LEGAL)
     {
-      System.out.println(GameFormatter.stringOfGame(game));
-      System.out.println();
+      printBoard();
       System.out.println("Please enter a move.");
     }
     else
@@ -91,16 +140,79 @@ public class TextClient
 
     // SolitaireGame will tell us whether that move is legal or not.
     // (and if possible, it'll execute the move.)
-    try
+    MoveStatus status = game.tryMove(move);
+    if (status.isLegal())
     {
-      game.makeMove(move);
-
       return MoveResult.LEGAL;
     }
-    catch (IllegalMoveException e)
+    else
     {
-      System.out.printf("\tThat move isn't legal: %s\n", e.getMessage());
+      // Tidy up what the user typed, so that the prompts don't pile up
+      // underneath the board.
+      if (renderer != null)
+        renderer.render(game);
+
+      System.out.printf("\tThat move isn't legal: %s\n", status.getMessage());
       return MoveResult.ILLEGAL;
     }
   }
+
+  /**
+   * Show the board, followed by a blank line.
+   */
+  private static void printBoard()
+  {
+    if (renderer != null)
+    {
+      renderer.render(game);
+    }
+    else if (boardWriter != null)
+    {
+      try
+      {
+        boardWriter.write(game);
+      }
+      catch (IOException e)
+      {
+        throw new UncheckedIOException(e);
+      }
+      System.out.println();
+      System.out.println();
+    }
+    else
+    {
+      System.out.println(GameFormatter.stringOfGame(game));
+      System.out.println();
+    }
+  }
+
+  /**
+   * Returns the charset that {@code System.out} encodes text in.
+   *
+   * <p>
+   *   That's {@code stdout.encoding} on Java 19 and later, and
+   *   {@code sun.stdout.encoding} (which is only set for a console) on
+   *   older ones. If neither is set, or names a charset this JVM doesn't
+   *   have, it's the default.
+   * </p>
+   */
+  private static Charset stdoutCharset()
+  {
+    for (String property : new String[] {"stdout.encoding", "sun.stdout.encoding"})
+    {
+      String name = System.getProperty(property);
+      if (name == null)
+        continue;
+
+      try
+      {
+        return Charset.forName(name);
+      }
+      catch (IllegalArgumentException e)
+      {
+        // Try the next one
+      }
+    }
+    return Charset.defaultCharset();
+  }
 }
@@ -0,0 +1,122 @@
+import java.util.Arrays;
+
+/**
+ * A set of position hashes, for remembering which positions a search has
+ * already looked at.
+ *
+ * <p>
+ *   The hashes are kept in one {@code long[]} using open addressing with
+ *   linear probing, so adding a position never allocates anything (except
+ *   when the table grows). Since the hashes from
+ *   {@link SolitaireGame#getPositionHash()} are already random, the low bits
+ *   of a hash are used as its index directly.
+ * </p>
+ *
+ * <p>
+ *   Only the hashes are stored, not the positions, so two positions that
+ *   happen to share a hash look like the same position. With 64-bit hashes,
+ *   that's vanishingly unlikely for the sizes of search we do.
+ * </p>
+ */
+class TranspositionTable
+{
+  /**
+   * The value that marks an empty entry.
+   */
+  private static final long EMPTY = 0;
+
+  /**
+   * What to store instead, if a position's hash happens to be
+   * {@link #EMPTY}.
+   */
+  private static final long ZERO_HASH = 0x9E37_79B9_7F4A_7C15L;
+
+  private long[] entries;
+  private int size = 0;
+
+  /**
+   * Create a new, empty table.
+   *
+   * @param initialCapacity How many entries to make room for at first. (It's
+   *   rounded up to a power of two; the table grows when it's three
+   *   quarters full.)
+   */
+  TranspositionTable(int initialCapacity)
+  {
+    entries = new long[Math.max(16, Integer.highestOneBit(initialCapacity - 1) << 1)];
+  }
+
+  /**
+   * Add a position to the table.
+   *
+   * @param hash The position's hash.
+   * @return {@code true} if the position was added, or {@code false} if it
+   *   was already there.
+   */
+  boolean add(long hash)
+  {
+    if (hash == EMPTY)
+      hash = ZERO_HASH;
+
+    int mask = entries.length - 1;
+    int index = (int) hash & mask;
+    while (entries[index] != EMPTY)
+    {
+      if (entries[index] == hash)
+        return false;
+      index = (index + 1) & mask;
+    }
+
+    entries[index] = hash;
+    if (++size > entries.length - (entries.length >>> 2))
+      grow();
+    return true;
+  }
+
+  /**
+   * Returns how many positions are in the table.
+   */
+  int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns how many bytes the table's array takes up.
+   */
+  long getMemoryBytes()
+  {
+    return (long) entries.length * Long.BYTES;
+  }
+
+  /**
+   * Empty the table, keeping its array for reuse.
+   */
+  void clear()
+  {
+    Arrays.fill(entries, EMPTY);
+    size = 0;
+  }
+
+  /**
+   * Double the size of the array, moving every entry to its new place.
+   */
+  private void grow()
+  {
+    long[] old = entries;
+    entries = new long[old.length * 2];
+    int mask = entries.length - 1;
+    for (long hash : old)
+    {
+      if (hash == EMPTY)
+        continue;
+
+      int index = (int) hash & mask;
+      while (entries[index] != EMPTY)
+      {
+        index = (index + 1) & mask;
+      }
+      entries[index] = hash;
+    }
+  }
+}
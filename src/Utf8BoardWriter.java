@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * This class writes the board straight out as UTF-8 bytes, for streaming
+ * games to files and sockets. ({@link TextClient} uses it to print the
+ * board, too, when the console is UTF-8.)
+ *
+ * <p>
+ *   The board is full of box-drawing characters and suit symbols, so
+ *   printing {@link GameFormatter#stringOfGame(SolitaireGame)} means
+ *   encoding the whole string all over again every time. This class skips
+ *   that: every piece of the board is encoded once, when
+ *   {@code GameFormatter} is loaded, and drawing a game just copies those
+ *   bytes into one buffer that's used again for every board. The bytes are
+ *   exactly the UTF-8 encoding of {@code stringOfGame}.
+ * </p>
+ *
+ * <p>
+ *   Once the buffer is big enough for the biggest board it has seen (it
+ *   starts big enough for most), writing a board doesn't allocate anything.
+ * </p>
+ */
+class Utf8BoardWriter implements GameFormatter.FragmentSink
+{
+  private final WritableByteChannel channel;
+
+  private ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+
+  /**
+   * Create a writer that writes boards to the given channel.
+   *
+   * @param channel Where to write. It has to be in blocking mode. (This
+   *   class never closes it.)
+   *
+   * @throws IllegalArgumentException If the channel is in non-blocking
+   *   mode.
+   */
+  Utf8BoardWriter(WritableByteChannel channel)
+  {
+    if (channel instanceof SelectableChannel
+        && !((SelectableChannel) channel).isBlocking())
+      throw new IllegalArgumentException("The channel has to be in blocking mode");
+
+    this.channel = channel;
+  }
+
+  /**
+   * Write the board for a game to the channel.
+   *
+   * @param game The game to draw. This method will not mutate it.
+   *
+   * @throws IOException If the channel can't be written to, or it stops
+   *   taking any bytes.
+   */
+  void write(SolitaireGame game) throws IOException
+  {
+    ByteBuffer board = render(game);
+    while (board.hasRemaining())
+    {
+      //A blocking channel always writes something, so this would just spin
+      if (channel.write(board) == 0)
+        throw new IOException(
+            "The channel stopped taking bytes with " + board.remaining() + " left to write");
+    }
+  }
+
+  /**
+   * Draw the board for a game into this writer's buffer, without writing
+   * it anywhere.
+   *
+   * @param game The game to draw. This method will not mutate it.
+   * @return The buffer, ready to be read from. It's only good until the
+   *   next board is drawn.
+   */
+  ByteBuffer render(SolitaireGame game)
+  {
+    buffer.clear();
+    GameFormatter.drawGame(game, this);
+    return buffer.flip();
+  }
+
+  @Override
+  public void append(GameFormatter.Fragment fragment)
+  {
+    byte[] bytes = fragment.utf8;
+    if (buffer.remaining() < bytes.length)
+    {
+      ByteBuffer bigger = ByteBuffer.allocateDirect(
+          Math.max(buffer.capacity() * 2, buffer.position() + bytes.length));
+      bigger.put(buffer.flip());
+      buffer = bigger;
+    }
+    buffer.put(bytes);
+  }
+}
@@ -0,0 +1,127 @@
+import java.util.SplittableRandom;
+
+/**
+ * The random keys behind the 64-bit position hash of a
+ * {@link SolitaireGame}.
+ *
+ * <p>
+ *   Every place a card can sit in a game gets a number, called its slot:
+ *   the seven tableaus, the four foundations, the stock and the waste each
+ *   get {@value #SLOTS_PER_PILE} slots, counting up from the bottom of the
+ *   pile. There's a random key for every card in every slot, and another
+ *   random key for every slot that has a face-up card in it. The hash of a
+ *   position is all the keys that apply to it {@code XOR}ed together.
+ * </p>
+ *
+ * <p>
+ *   Since {@code XOR} undoes itself, a {@link Pile} can keep its hash up to
+ *   date as cards come and go: putting a card in a slot and taking it out
+ *   again are both just an {@code XOR} with the same key. Nothing ever has
+ *   to look at the whole pile again.
+ * </p>
+ *
+ * <p>
+ *   The keys come from a fixed seed, so the same position has the same hash
+ *   in every run of the program. That way hashes can be saved to a file
+ *   and compared later.
+ * </p>
+ */
+final class Zobrist
+{
+  /**
+   * The number of slots each pile gets. (This is enough for the biggest
+   * pile, which is a full stock or waste.)
+   */
+  static final int SLOTS_PER_PILE = SolitaireGame.TALON_CAPACITY;
+
+  /**
+   * The first pile number of the tableaus. Tableau {@code i} is pile
+   * {@code TABLEAU_PILES + i}.
+   */
+  static final int TABLEAU_PILES = 0;
+
+  /**
+   * The first pile number of the foundations. Foundation {@code i} is
+   * pile {@code FOUNDATION_PILES + i}.
+   */
+  static final int FOUNDATION_PILES = 7;
+
+  /**
+   * The pile number of the stock.
+   */
+  static final int STOCK_PILE = 11;
+
+  /**
+   * The pile number of the waste.
+   */
+  static final int WASTE_PILE = 12;
+
+  /**
+   * How many piles there are in a game.
+   */
+  static final int NUMBER_OF_PILES = 13;
+
+  private static final long SEED = 0x5EED_50_11_7A12EL;
+
+  /**
+   * The key for card {@code c} in slot {@code s} is at index
+   * {@code s * 52 + c}.
+   */
+  private static final long[] CARD_KEYS =
+      new long[NUMBER_OF_PILES * SLOTS_PER_PILE * Card.NUMBER_OF_CARDS];
+
+  /**
+   * The key for slot {@code s} holding a face-up card is at index
+   * {@code s}.
+   */
+  private static final long[] FACE_UP_KEYS =
+      new long[NUMBER_OF_PILES * SLOTS_PER_PILE];
+
+  static {
+    SplittableRandom random = new SplittableRandom(SEED);
+    for (int i = 0; i < CARD_KEYS.length; i++)
+    {
+      CARD_KEYS[i] = random.nextLong();
+    }
+    for (int i = 0; i < FACE_UP_KEYS.length; i++)
+    {
+      FACE_UP_KEYS[i] = random.nextLong();
+    }
+  }
+
+  private Zobrist()
+  {
+  }
+
+  /**
+   * Returns the number of the bottom slot of a pile.
+   *
+   * @param pile The pile number, such as {@link #STOCK_PILE}.
+   */
+  static int firstSlotOf(int pile)
+  {
+    return pile * SLOTS_PER_PILE;
+  }
+
+  /**
+   * Returns the key for a card sitting in a slot, whether it's face up or
+   * face down.
+   *
+   * @param slot The slot number.
+   * @param cardId The card's ID.
+   */
+  static long cardKey(int slot, int cardId)
+  {
+    return CARD_KEYS[slot * Card.NUMBER_OF_CARDS + cardId];
+  }
+
+  /**
+   * Returns the extra key for a slot whose card is face up.
+   *
+   * @param slot The slot number.
+   */
+  static long faceUpKey(int slot)
+  {
+    return FACE_UP_KEYS[slot];
+  }
+}